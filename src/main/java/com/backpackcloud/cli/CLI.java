@@ -25,27 +25,31 @@
 package com.backpackcloud.cli;
 
 import com.backpackcloud.UnbelievableException;
-import com.backpackcloud.cli.ui.Prompt;
 import com.backpackcloud.cli.ui.PromptWriter;
 import com.backpackcloud.cli.ui.Theme;
-import com.backpackcloud.cli.ui.components.CommandCompleter;
-import com.backpackcloud.cli.ui.components.PromptHighlighter;
+import com.backpackcloud.cli.ui.components.FileSuggester;
+import com.backpackcloud.cli.ui.components.UsageIndex;
+import com.backpackcloud.preferences.Preference;
 import com.backpackcloud.preferences.UserPreferences;
-import org.jline.reader.EndOfFileException;
-import org.jline.reader.LineReader;
-import org.jline.reader.LineReaderBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jline.reader.History;
 import org.jline.reader.ParsedLine;
-import org.jline.reader.UserInterruptException;
+import org.jline.reader.Parser;
+import org.jline.reader.impl.DefaultParser;
 import org.jline.reader.impl.history.DefaultHistory;
 import org.jline.terminal.Terminal;
-import org.jline.utils.AttributedString;
-import org.jline.utils.AttributedStyle;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class CLI {
 
@@ -53,71 +57,188 @@ public class CLI {
   public static final String EVENT_COMMAND_END = "command-end";
   public static final String EVENT_COMMAND_ERROR = "command-error";
 
-  private final Terminal terminal;
+  public static final String PIPE = "|";
+  public static final String REDIRECT = ">";
+  public static final String REDIRECT_APPEND = ">>";
+  public static final String OUTPUT_FORMAT_FLAG = "--output-format=";
+
+  /**
+   * The system property that turns {@link #start()} into a training run, used to dump a class
+   * data sharing archive with {@code -XX:ArchiveClassesAtExit}. Any value runs the whole
+   * training, while {@value #TRAINING_PROMPT} stops as soon as the first prompt is ready.
+   */
+  public static final String TRAINING_PROPERTY = "zipper.training";
+  public static final String TRAINING_PROMPT = "prompt";
+
   private final UserPreferences preferences;
   private final Theme theme;
 
-  private final LineReader lineReader;
+  private final Parser parser;
   private final Map<String, Command> commands;
 
-  private final PromptHighlighter highlighter;
-
   private final Collection<PromptWriter> leftPrompt;
   private final Collection<PromptWriter> rightPrompt;
+  private final List<String[]> startupCommands;
+  private final List<String[]> trainingCommands;
   private final EventBus eventBus;
+  private final UsageIndex usageIndex;
+  private final FileSuggester fileSuggester;
 
-  private final Writer console;
+  private final Terminal terminal;
+  private final History history;
+  private final ErrorRegistry errorRegistry;
+  private final List<Session> sessions;
+  private volatile Session session;
+  private final StartupProfiler startupProfiler;
 
-  private boolean stop;
+  private volatile ObjectMapper recordMapper;
 
   public CLI(Terminal terminal,
              UserPreferences preferences,
              Theme theme,
              EventBus eventBus) {
+    this(terminal, preferences, theme, eventBus, new DefaultHistory(), new UsageIndex(),
+      new ErrorRegistry(), new StartupProfiler(), new FileSuggester());
+  }
+
+  /**
+   * Creates a CLI with every component it shares between its sessions. Meant for the
+   * {@link com.backpackcloud.cli.builder.CLIBuilder builder}, which lives in another package.
+   * <p>
+   * The main session is only created when it's first needed, so this CLI doesn't escape
+   * before it's fully built.
+   */
+  public CLI(Terminal terminal,
+             UserPreferences preferences,
+             Theme theme,
+             EventBus eventBus,
+             History history,
+             UsageIndex usageIndex,
+             ErrorRegistry errorRegistry,
+             StartupProfiler startupProfiler,
+             FileSuggester fileSuggester) {
     this.terminal = terminal;
     this.preferences = preferences;
+    this.history = history;
+    this.errorRegistry = errorRegistry;
+    this.startupProfiler = startupProfiler;
     this.theme = theme;
-    this.leftPrompt = new ArrayList<>();
-    this.rightPrompt = new ArrayList<>();
+    this.leftPrompt = new CopyOnWriteArrayList<>();
+    this.rightPrompt = new CopyOnWriteArrayList<>();
+    this.startupCommands = new ArrayList<>();
+    this.trainingCommands = new ArrayList<>();
     this.eventBus = eventBus;
+    this.usageIndex = usageIndex;
+    this.fileSuggester = fileSuggester;
+    this.parser = new DefaultParser();
+
+    this.commands = new ConcurrentHashMap<>();
+    this.sessions = new CopyOnWriteArrayList<>();
 
-    this.commands = new HashMap<>();
+    scan("UsageIndex", usageIndex);
+  }
+
+  /**
+   * @return the profiler holding the startup phases of this CLI
+   */
+  public StartupProfiler startupProfiler() {
+    return startupProfiler;
+  }
 
-    this.highlighter = new PromptHighlighter(preferences, new HashSet<>(), theme);
+  /**
+   * @return the session bound to the terminal given to this CLI
+   */
+  public Session session() {
+    Session main = session;
+    if (main == null) {
+      synchronized (sessions) {
+        main = session;
+        if (main == null) {
+          // the main session uses the preferences given to the CLI as they are
+          main = new Session(this, terminal, preferences, history, errorRegistry);
+          sessions.add(main);
+          session = main;
+        }
+      }
+    }
+    return main;
+  }
 
-    this.lineReader = LineReaderBuilder.builder()
-      .terminal(terminal)
-      .highlighter(highlighter)
-      .history(new DefaultHistory())
-      .completer(new CommandCompleter(this.commands, preferences))
-      .build();
+  /**
+   * Opens a new session on the given terminal. The session gets a copy of the current
+   * preferences and its own history, error registry and prompt state, sharing only the
+   * commands and components with the other sessions.
+   *
+   * @param terminal the terminal of the session
+   * @return the new session
+   */
+  public Session openSession(Terminal terminal) {
+    return openSession(terminal, new DefaultHistory());
+  }
 
-    this.console = new Writer(
-      theme,
-      AttributedStyle.DEFAULT,
-      AttributedString::new,
-      text -> terminal.writer().print(text.toAnsi()),
-      terminal
-    );
+  /**
+   * Opens a new session on the given terminal, with the given history.
+   *
+   * @param terminal the terminal of the session
+   * @param history  the history of the session
+   * @return the new session
+   * @see #openSession(Terminal)
+   */
+  public Session openSession(Terminal terminal, History history) {
+    Session newSession = new Session(this, terminal, copyPreferences(), history, new ErrorRegistry());
+    sessions.add(newSession);
+    return newSession;
+  }
 
-    this.lineReader.option(LineReader.Option.DISABLE_EVENT_EXPANSION, true);
+  void close(Session closed) {
+    if (closed != session) {
+      sessions.remove(closed);
+    }
+  }
 
-    preferences.watch(Preferences.AUTO_SUGGEST, enabled -> {
-      if (enabled) {
-        this.lineReader.setAutosuggestion(LineReader.SuggestionType.COMPLETER);
-      } else {
-        this.lineReader.setAutosuggestion(LineReader.SuggestionType.NONE);
+  private UserPreferences copyPreferences() {
+    UserPreferences copy = new UserPreferences();
+    for (Preference<?> preference : preferences.list()) {
+      copy.register(preference.spec());
+      Object value = preference.inputValue().get();
+      if (value != null) {
+        copy.find(preference.spec().id()).ifPresent(copied -> copied.set(String.valueOf(value)));
       }
-    });
+    }
+    return copy;
+  }
+
+  /**
+   * Creates a writer that prints to the given terminal using the theme of this CLI.
+   * Plain text is printed if the terminal is a dumb one.
+   *
+   * @param terminal the terminal to print to
+   * @return a writer for the given terminal
+   */
+  public Writer writerFor(Terminal terminal) {
+    return session().writerFor(terminal);
+  }
+
+  /**
+   * Creates a writer that prints to the given output using the theme of this CLI, without
+   * going through a terminal. Unless output batching is disabled, the output is left for
+   * the caller to flush once it's done.
+   *
+   * @param output the output to print to
+   * @param ansi   whether the styles should be printed as escape sequences
+   * @return a writer for the given output
+   */
+  public Writer writerFor(java.io.Writer output, boolean ansi) {
+    return session().writerFor(output, ansi);
   }
 
   public void addLeftPrompt(PromptWriter writer) {
-    this.eventBus.scan(writer);
+    scan(writer.getClass().getSimpleName(), writer);
     this.leftPrompt.add(writer);
   }
 
   public void addRightPrompt(PromptWriter writer) {
-    this.eventBus.scan(writer);
+    scan(writer.getClass().getSimpleName(), writer);
     this.rightPrompt.add(writer);
   }
 
@@ -125,123 +246,238 @@ public class CLI {
     for (Command command : commands) {
       String name = command.name();
       this.commands.put(name, command);
-      this.highlighter.addCommand(name);
-      this.eventBus.scan(command);
+      this.sessions.forEach(openSession -> openSession.addCommand(name));
+      scan(name, command);
+    }
+  }
+
+  private void scan(String name, Object component) {
+    startupProfiler.measure("scan " + name, () -> eventBus.scan(component));
+  }
+
+  /**
+   * Marks the end of the startup, which happens when the first prompt is ready or when the
+   * CLI starts taking commands without a prompt. If {@value StartupProfiler#REPORT_PROPERTY}
+   * is set, the startup report is written as JSON to the file it points to.
+   */
+  public void finishStartup() {
+    if (!startupProfiler.finish()) {
+      return;
+    }
+    String file = System.getProperty(StartupProfiler.REPORT_PROPERTY);
+    if (file != null && !file.isBlank()) {
+      try {
+        Files.writeString(Path.of(file),
+          recordMapper().writerWithDefaultPrettyPrinter().writeValueAsString(StartupReport.of(startupProfiler)));
+      } catch (IOException e) {
+        throw new UnbelievableException(e);
+      }
     }
   }
 
   public void stop() {
-    stop = true;
+    session().stop();
   }
 
-  private void flush() {
-    terminal.flush();
+  /**
+   * Adds a command line to run when the CLI starts, before any command is read.
+   *
+   * @param words the words of the command line, starting with the command name
+   */
+  public void addStartupCommand(String... words) {
+    this.startupCommands.add(words);
   }
 
+  /**
+   * Adds a command line to run when the CLI is started for training.
+   *
+   * @param words the words of the command line, starting with the command name
+   * @see #TRAINING_PROPERTY
+   */
+  public void addTrainingCommand(String... words) {
+    this.trainingCommands.add(words);
+  }
+
+  /**
+   * Starts reading commands. If the terminal is not interactive (which happens when the
+   * input is piped), the commands are read from the standard input as fast as possible
+   * instead.
+   * <p>
+   * If the {@link #TRAINING_PROPERTY training property} is set, a training session is run
+   * instead and nothing is read, so the JVM can exit right after it.
+   */
   public void start() {
-    String query;
-    while (!stop) {
-      try {
-        String left = buildLeftPrompt();
-        String right = buildRightPrompt();
-
-        query = lineReader.readLine(left, right, (Character) null, null).trim();
-
-        execute(query);
-      } catch (UnbelievableException e) {
-        eventBus.send(EVENT_COMMAND_ERROR, EventBus.param("error", e));
-        if (e.getMessage() != null) {
-          console.style()
-            .parse("command_error")
-            .bold().italic()
-            .set().write(e.getMessage()).newLine();
-        } else {
-          console.style()
-            .parse("command_error")
-            .bold().italic()
-            .set().write("An error occurred").newLine();
-        }
-      } catch (EndOfFileException e) {
-        // if ctrl+d is pressed, exit cli
-        return;
-      } catch (UserInterruptException e) {
-        // exit cli if there's no input
-        // this would make it easy to just cancel the current prompt and start again
-        // if ctrl+c is pressed without any input, cli will just end
-        if (e.getPartialLine().isBlank()) {
-          return;
-        }
-      }
+    Session main = session();
+    String training = System.getProperty(TRAINING_PROPERTY);
+    if (training != null) {
+      main.train(trainingCommands, TRAINING_PROMPT.equals(training));
+      return;
+    }
+    startupCommands.forEach(main::run);
+    if (!main.isInteractive()) {
+      finishStartup();
+      main.run(System.in);
+      return;
+    }
+    try {
+      main.start();
+    } finally {
+      usageIndex.save();
     }
   }
 
+  /**
+   * Runs a single command line and returns its exit status, without reading anything
+   * from the user. The words are used as they are given, with no further parsing, so
+   * the arguments of a program can be passed directly.
+   *
+   * @param words the words of the command line, starting with the command name
+   * @return {@code 0} if the command succeeded or {@code 1} if it failed
+   */
+  public int run(String... words) {
+    return session().run(words);
+  }
+
+  /**
+   * Runs a single command line, printing its output with the given writer.
+   *
+   * @param writer the writer to print the output with
+   * @param words  the words of the command line, starting with the command name
+   * @return {@code 0} if the command succeeded or {@code 1} if it failed
+   * @see #run(String...)
+   */
+  public int run(Writer writer, String... words) {
+    return session().run(writer, words);
+  }
+
+  /**
+   * Runs the command lines read from the given input, one per line, without any prompt,
+   * highlighting or completion. The input is read as a script, so blank lines and comments
+   * are ignored and lines can be continued with a trailing {@code \}.
+   * <p>
+   * Depending on the preferences, the execution either stops at the first failure or
+   * goes through all the lines and reports how many have failed. The output is only
+   * flushed when its buffer is full, unless output batching is disabled.
+   *
+   * @param input the input to read the command lines from
+   * @return {@code 0} if all the commands succeeded or {@code 1} otherwise
+   */
+  public int run(InputStream input) {
+    return session().run(input);
+  }
+
+  /**
+   * Runs the command lines read from the given input, printing their output with the
+   * given writer. The lines are handled in the same way as {@link #run(InputStream)}.
+   *
+   * @param writer the writer to print the output with
+   * @param input  the input to read the command lines from
+   * @return {@code 0} if all the commands succeeded or {@code 1} otherwise
+   */
+  public int run(Writer writer, InputStream input) {
+    return session().run(writer, input);
+  }
+
   public void execute(String... commands) {
-    execute(console, commands);
+    session().execute(commands);
   }
 
   public void execute(Writer writer, String... commands) {
-    eventBus.send(EVENT_COMMAND_BEGIN);
-    try {
-      for (String command : commands) {
-        if (!command.isEmpty()) {
-          parseAndExecute(writer, lineReader.getParser().parse(command, 0));
+    session().execute(writer, commands);
+  }
+
+  /**
+   * Parses the given line the same way the lines typed by the user are parsed.
+   *
+   * @param line the line to parse
+   * @return the parsed line
+   */
+  public ParsedLine parse(String line) {
+    return parser.parse(line, 0);
+  }
+
+  /**
+   * Executes an already parsed line in the current execution, without notifying
+   * any event nor handling any error.
+   * <p>
+   * If the line is a pipeline ({@code cmd1 | cmd2 | ...}), each command runs in its own
+   * thread and the objects returned by one command are handed to the next one through
+   * a {@link Pipe}, only the last command writes to the given writer.
+   * <p>
+   * If the line ends with {@code > file} or {@code >> file}, the output is written to
+   * the file as plain text instead.
+   * <p>
+   * The format of the results can be changed for this line with an {@code --output-format=}
+   * flag, otherwise the format set in the preferences is used.
+   *
+   * @param writer     the writer for the command output
+   * @param parsedLine the line to execute
+   */
+  public void dispatch(Writer writer, ParsedLine parsedLine) {
+    session().dispatch(writer, parsedLine);
+  }
+
+  /**
+   * Creates a writer for printing command results as records in the given format.
+   *
+   * @param format the format of the records
+   * @param writer the writer for the records
+   * @return a new record writer
+   */
+  public RecordWriter recordWriter(OutputFormat format, Writer writer) {
+    return new RecordWriter(format, recordMapper(), writer);
+  }
+
+  private ObjectMapper recordMapper() {
+    ObjectMapper mapper = recordMapper;
+    if (mapper == null) {
+      synchronized (this) {
+        mapper = recordMapper;
+        if (mapper == null) {
+          mapper = recordMapper = new ObjectMapper();
         }
       }
-    } catch (Exception e) {
-      eventBus.send(EVENT_COMMAND_ERROR, EventBus.param("error", e));
-    } finally {
-      eventBus.send(EVENT_COMMAND_END);
     }
+    return mapper;
   }
 
-  private String buildLeftPrompt() {
-    StringBuilder builder = new StringBuilder();
-    Writer writer = stringBuilderWriter(builder);
-    Prompt prompt = Prompt.create(theme, writer, terminal,
-      preferences.supplier(Preferences.LEFT_PROMPT_TAIL).get(),
-      preferences.supplier(Preferences.LEFT_PROMPT_SEPARATOR).get(),
-      preferences.supplier(Preferences.LEFT_PROMPT_HEAD).get()
-    );
-
-    leftPrompt.forEach(promptWriter -> promptWriter.addTo(prompt, PromptWriter.PromptSide.LEFT));
-
-    return builder.toString();
+  /**
+   * @return the commands registered in this CLI
+   */
+  public Collection<Command> registeredCommands() {
+    return Collections.unmodifiableCollection(commands.values());
   }
 
-  private String buildRightPrompt() {
-    StringBuilder builder = new StringBuilder();
-    Writer writer = stringBuilderWriter(builder);
-    Prompt prompt = Prompt.create(theme, writer, terminal,
-      preferences.supplier(Preferences.RIGHT_PROMPT_TAIL).get(),
-      preferences.supplier(Preferences.RIGHT_PROMPT_SEPARATOR).get(),
-      preferences.supplier(Preferences.RIGHT_PROMPT_HEAD).get()
-    );
+  Map<String, Command> commands() {
+    return commands;
+  }
 
-    rightPrompt.forEach(promptWriter -> promptWriter.addTo(prompt, PromptWriter.PromptSide.RIGHT));
+  Collection<PromptWriter> leftPrompt() {
+    return leftPrompt;
+  }
 
-    prompt.closeSegments();
+  Collection<PromptWriter> rightPrompt() {
+    return rightPrompt;
+  }
 
-    return builder.toString();
+  Theme theme() {
+    return theme;
   }
 
-  private Writer stringBuilderWriter(StringBuilder stringBuilder) {
-    return new Writer(theme, AttributedStyle.DEFAULT,
-      AttributedString::new,
-      text -> stringBuilder.append(text.toAnsi()),
-      terminal);
+  Parser parser() {
+    return parser;
   }
 
-  private void parseAndExecute(Writer writer, ParsedLine parsedLine) {
-    String commandName = parsedLine.words().getFirst();
-    Command command = commands.get(commandName);
-    CommandContext currentContext;
+  EventBus eventBus() {
+    return eventBus;
+  }
 
-    if (command == null) {
-      throw new UnbelievableException("Unknown command " + commandName);
-    }
+  UsageIndex usageIndex() {
+    return usageIndex;
+  }
 
-    currentContext = new CommandContext(this, parsedLine, writer);
-    command.execute(currentContext);
+  FileSuggester fileSuggester() {
+    return fileSuggester;
   }
 
 }
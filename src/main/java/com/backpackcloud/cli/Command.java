@@ -24,10 +24,12 @@
 
 package com.backpackcloud.cli;
 
+import com.backpackcloud.UnbelievableException;
 import com.backpackcloud.cli.ui.Suggestion;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Defines a command that can be issued by the user via the interactive interface.
@@ -60,6 +62,28 @@ public interface Command {
    */
   void execute(CommandContext context);
 
+  /**
+   * Executes this command with the given arguments bound by name, instead of parsed
+   * from the input words. Commands without named parameters fail if any argument is
+   * given.
+   *
+   * @param context   the context in which this command was issued.
+   * @param arguments the arguments mapped by the name of their parameters.
+   */
+  default void execute(CommandContext context, Map<String, Object> arguments) {
+    if (!arguments.isEmpty()) {
+      throw new UnbelievableException("Command " + name() + " doesn't accept named arguments");
+    }
+    execute(context);
+  }
+
+  /**
+   * @return the actions of this command mapped to the names of their parameters.
+   */
+  default Map<String, List<String>> actions() {
+    return Collections.emptyMap();
+  }
+
   /**
    * Suggest a list of candidates to the user to help them decide which
    * arguments to fill.
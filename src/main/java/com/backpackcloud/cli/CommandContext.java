@@ -26,6 +26,8 @@ package com.backpackcloud.cli;
 
 import org.jline.reader.ParsedLine;
 
+import java.util.Optional;
+
 /**
  * Defines which context a command was issued.
  *
@@ -33,18 +35,40 @@ import org.jline.reader.ParsedLine;
  */
 public class CommandContext {
 
-  private final CLI cli;
+  private final Session session;
   private final ParsedLine parsedLine;
   private final Writer writer;
+  private final OutputFormat outputFormat;
+  private final Pipe inputPipe;
+  private final Pipe outputPipe;
 
   public CommandContext(CLI cli, ParsedLine parsedLine, Writer writer) {
-    this.cli = cli;
+    this(cli.session(), parsedLine, writer, OutputFormat.TEXT, null, null);
+  }
+
+  public CommandContext(Session session,
+                        ParsedLine parsedLine,
+                        Writer writer,
+                        OutputFormat outputFormat,
+                        Pipe inputPipe,
+                        Pipe outputPipe) {
+    this.session = session;
     this.parsedLine = parsedLine;
     this.writer = writer;
+    this.outputFormat = outputFormat;
+    this.inputPipe = inputPipe;
+    this.outputPipe = outputPipe;
   }
 
   public CLI cli() {
-    return cli;
+    return session.cli();
+  }
+
+  /**
+   * @return the session running the command
+   */
+  public Session session() {
+    return session;
   }
 
   public CommandInput input() {
@@ -55,5 +79,37 @@ public class CommandContext {
     return writer;
   }
 
+  /**
+   * @return the format the command results should be printed
+   */
+  public OutputFormat outputFormat() {
+    return outputFormat;
+  }
+
+  /**
+   * Creates a writer for printing the command results as records in the
+   * {@link #outputFormat() output format}. The writer must be closed after the last record.
+   *
+   * @return a new record writer
+   */
+  public RecordWriter recordWriter() {
+    return session.cli().recordWriter(outputFormat, writer);
+  }
+
+  /**
+   * @return the pipe carrying the objects produced by the previous command in the pipeline
+   */
+  public Optional<Pipe> inputPipe() {
+    return Optional.ofNullable(inputPipe);
+  }
+
+  /**
+   * @return the pipe that should receive the objects produced by the command, if it's not
+   * the last one in the pipeline
+   */
+  public Optional<Pipe> outputPipe() {
+    return Optional.ofNullable(outputPipe);
+  }
+
 
 }
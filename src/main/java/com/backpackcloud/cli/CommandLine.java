@@ -0,0 +1,184 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import org.jline.reader.ParsedLine;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A command line whose words are already known, so it can be dispatched without
+ * going through the parser.
+ * <p>
+ * Words that were quoted or escaped are kept as literals, so they are never taken as
+ * a pipe or a redirect even if they look like one.
+ *
+ * @param line     the text of the line
+ * @param words    the words of the line, starting with the command name
+ * @param literals the indexes of the words that must be taken literally
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public record CommandLine(String line, List<String> words, Set<Integer> literals) implements ParsedLine {
+
+  public CommandLine(String line, List<String> words) {
+    this(line, words, Set.of());
+  }
+
+  public CommandLine(List<String> words) {
+    this(String.join(" ", words), words);
+  }
+
+  /**
+   * Creates a line whose words are all taken literally, like the arguments some command
+   * received and wants to run as a command of its own.
+   *
+   * @param words the words of the line, starting with the command name
+   * @return a line without pipes or redirects
+   */
+  public static CommandLine literal(List<String> words) {
+    return new CommandLine(String.join(" ", words), words,
+      IntStream.range(0, words.size()).boxed().collect(Collectors.toUnmodifiableSet()));
+  }
+
+  /**
+   * Converts the given line, finding out which of its words were quoted or escaped.
+   * <p>
+   * The raw line is split the same way the {@link org.jline.reader.impl.DefaultParser}
+   * does it. If that doesn't give the same number of words, no word is taken as a literal.
+   *
+   * @param parsedLine the line to convert
+   * @return the given line if it's already a command line, or its converted version
+   */
+  public static CommandLine of(ParsedLine parsedLine) {
+    if (parsedLine instanceof CommandLine commandLine) {
+      return commandLine;
+    }
+    return new CommandLine(parsedLine.line(), parsedLine.words(), literalsOf(parsedLine.line(), parsedLine.words().size()));
+  }
+
+  /**
+   * @param index the index of the word
+   * @return whether the word at the given index must be taken literally
+   */
+  public boolean isLiteral(int index) {
+    return literals.contains(index);
+  }
+
+  /**
+   * @param from the index of the first word, inclusive
+   * @param to   the index of the last word, exclusive
+   * @return a line with the words in the given range, keeping what is literal
+   */
+  public CommandLine subLine(int from, int to) {
+    List<String> range = words.subList(from, to);
+    Set<Integer> rangeLiterals = new HashSet<>();
+    for (int i = from; i < to; i++) {
+      if (isLiteral(i)) {
+        rangeLiterals.add(i - from);
+      }
+    }
+    return new CommandLine(String.join(" ", range), range, Set.copyOf(rangeLiterals));
+  }
+
+  @Override
+  public String word() {
+    return words.isEmpty() ? "" : words.getLast();
+  }
+
+  @Override
+  public int wordCursor() {
+    return word().length();
+  }
+
+  @Override
+  public int wordIndex() {
+    return Math.max(0, words.size() - 1);
+  }
+
+  @Override
+  public int cursor() {
+    return line.length();
+  }
+
+  private static Set<Integer> literalsOf(String line, int size) {
+    Set<Integer> literals = new HashSet<>();
+    int count = 0;
+    boolean inWord = false;
+    boolean content = false;
+    boolean plain = true;
+    boolean escaped = false;
+    char quote = 0;
+
+    for (int i = 0; i <= line.length(); i++) {
+      boolean end = i == line.length();
+      char c = end ? ' ' : line.charAt(i);
+      if (!end && escaped) {
+        escaped = false;
+        content = true;
+      } else if (!end && quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        } else if (c == '\\') {
+          escaped = true;
+        } else {
+          content = true;
+        }
+      } else if (Character.isWhitespace(c)) {
+        // the parser drops words made only of empty quotes
+        if (inWord && content) {
+          if (count == size) {
+            return Set.of();
+          }
+          if (!plain) {
+            literals.add(count);
+          }
+          count++;
+        }
+        inWord = false;
+      } else {
+        if (!inWord) {
+          inWord = true;
+          content = false;
+          plain = true;
+        }
+        if (c == '\\') {
+          escaped = true;
+          plain = false;
+        } else if (c == '"' || c == '\'') {
+          quote = c;
+          plain = false;
+        } else {
+          content = true;
+        }
+      }
+    }
+    return count == size ? Set.copyOf(literals) : Set.of();
+  }
+
+}
@@ -33,7 +33,7 @@ import java.util.stream.Stream;
 public class ErrorRegistry implements Registry {
 
   private final List<Exception> errors;
-  private boolean viewed;
+  private volatile boolean viewed;
 
   public ErrorRegistry() {
     this(new ArrayList<>());
@@ -49,34 +49,50 @@ public class ErrorRegistry implements Registry {
   }
 
   @Observe(CLI.EVENT_COMMAND_ERROR)
-  public void add(Exception error) {
+  public synchronized void add(Exception error) {
     viewed = false;
     errors.add(error);
   }
 
   @Override
-  public void clear() {
+  public synchronized void clear() {
     viewed = true;
     errors.clear();
   }
 
   @Override
-  public boolean isEmpty() {
+  public synchronized boolean isEmpty() {
     return errors.isEmpty();
   }
 
   @Override
-  public int size() {
+  public synchronized int size() {
     return errors.size();
   }
 
-  public Stream<Exception> stream() {
+  public synchronized Stream<Exception> stream() {
     viewed = true;
-    return errors.stream();
+    // a copy, so the errors can be added while the stream is consumed
+    return List.copyOf(errors).stream();
   }
 
   public String name() {
     return "errors";
   }
 
+  /**
+   * Finds the message to show for the given error. Actions are invoked through reflection,
+   * so the actual error is usually wrapped and only its root cause has a useful message.
+   *
+   * @param error the error
+   * @return the message of the root cause, or its type if it has no message
+   */
+  public static String messageOf(Throwable error) {
+    Throwable cause = error;
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+  }
+
 }
@@ -7,8 +7,8 @@ import com.backpackcloud.reflection.Mirror;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.backpackcloud.reflection.predicates.MethodPredicates.annotatedWith;
 import static com.backpackcloud.reflection.predicates.ParameterPredicates.ofName;
@@ -18,7 +18,9 @@ public class EventBus {
   private final List<EventListener> listeners;
 
   public EventBus() {
-    listeners = new ArrayList<>();
+    // events are sent far more often than components are scanned, and sessions may
+    // send them from different threads
+    listeners = new CopyOnWriteArrayList<>();
   }
 
   public void scan(Object component) {
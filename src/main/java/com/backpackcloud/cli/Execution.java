@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import org.jline.reader.ParsedLine;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A single invocation of the CLI, from the moment it begins until it ends, carrying its
+ * own timing and status.
+ * <p>
+ * An execution is sent along with the command events, so listeners can tell concurrent
+ * executions apart instead of keeping their state in fields shared by all of them. It
+ * is only changed by the thread running it.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class Execution {
+
+  private final long start;
+  private final List<ParsedLine> lines;
+
+  private volatile Exception error;
+  private volatile long end;
+
+  public Execution() {
+    this.start = System.nanoTime();
+    this.lines = new ArrayList<>();
+  }
+
+  void add(ParsedLine line) {
+    lines.add(line);
+  }
+
+  void fail(Exception error) {
+    this.error = error;
+  }
+
+  void finish() {
+    this.end = System.nanoTime();
+  }
+
+  /**
+   * @return the lines executed successfully
+   */
+  public List<ParsedLine> lines() {
+    return Collections.unmodifiableList(lines);
+  }
+
+  /**
+   * @return whether this execution has failed
+   */
+  public boolean failed() {
+    return error != null;
+  }
+
+  /**
+   * @return the error that made this execution fail
+   */
+  public Optional<Exception> error() {
+    return Optional.ofNullable(error);
+  }
+
+  /**
+   * @return whether this execution has ended
+   */
+  public boolean finished() {
+    return end != 0;
+  }
+
+  /**
+   * @return how long this execution took or, if it's still running, how long it's been
+   * running
+   */
+  public Duration duration() {
+    long last = end != 0 ? end : System.nanoTime();
+    return Duration.ofNanos(last - start);
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import com.backpackcloud.UnbelievableException;
+import org.jline.utils.AttributedString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Writes the output of a command to a file as plain text.
+ * <p>
+ * Styles are discarded and the text is encoded straight into a large buffer that is
+ * only handed to the file channel when full, so big outputs are written in a few large
+ * chunks without going through the terminal.
+ * <p>
+ * Every command of a pipeline writes to the same sink from its own thread, so writes
+ * are serialized.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class FileSink implements Consumer<AttributedString>, AutoCloseable {
+
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final CharsetEncoder encoder;
+
+  public FileSink(Path path, boolean append) {
+    this(path, append, DEFAULT_BUFFER_SIZE);
+  }
+
+  public FileSink(Path path, boolean append, int bufferSize) {
+    this.path = path;
+    try {
+      this.channel = FileChannel.open(path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      throw new UnbelievableException("Unable to open " + path, e);
+    }
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    this.encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  @Override
+  public void accept(AttributedString text) {
+    write(text.toString());
+  }
+
+  /**
+   * Writes the given text, removing any ANSI sequence it may carry.
+   *
+   * @param text the text to write
+   */
+  public synchronized void write(String text) {
+    if (text.indexOf('\u001b') >= 0) {
+      text = AttributedString.stripAnsi(text);
+    }
+    CharBuffer input = CharBuffer.wrap(text);
+    encoder.reset();
+    while (true) {
+      CoderResult result = encoder.encode(input, buffer, true);
+      if (result.isOverflow()) {
+        drain();
+      } else {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Writes everything buffered so far to the file.
+   */
+  public synchronized void flush() {
+    drain();
+  }
+
+  @Override
+  public synchronized void close() {
+    try (channel) {
+      drain();
+    } catch (IOException e) {
+      throw new UnbelievableException("Unable to close " + path, e);
+    }
+  }
+
+  private void drain() {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new UnbelievableException("Unable to write to " + path, e);
+    } finally {
+      buffer.clear();
+    }
+  }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import com.backpackcloud.UnbelievableException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A bounded channel that carries the objects returned by a command to the next command
+ * in a pipeline.
+ * <p>
+ * The producer blocks while the pipe is full, so a slow consumer throttles the commands
+ * before it instead of having the whole result set piling up in memory. Once the consumer
+ * is done, the pipe gets cancelled and any further attempt to send objects through it
+ * fails with a {@link CancellationException}, stopping the producer.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class Pipe {
+
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private static final Object END = new Object();
+
+  private final BlockingQueue<Object> queue;
+
+  private volatile boolean cancelled;
+  private volatile Throwable failure;
+
+  public Pipe() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public Pipe(int capacity) {
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Sends the given object to the consumer, waiting for room in the pipe if needed.
+   * Null values are ignored.
+   *
+   * @param object the object to send
+   * @throws CancellationException if the consumer is no longer reading from this pipe
+   */
+  public void send(Object object) {
+    if (object == null) {
+      return;
+    }
+    put(object);
+  }
+
+  /**
+   * Signals that no more objects will be sent.
+   */
+  public void close() {
+    if (!cancelled) {
+      put(END);
+    }
+  }
+
+  /**
+   * Signals that the producer failed. The consumer will get the failure after reading
+   * the objects already in the pipe.
+   *
+   * @param failure the failure to propagate
+   */
+  public void fail(Throwable failure) {
+    this.failure = failure;
+    close();
+  }
+
+  /**
+   * Stops the pipe, discarding any pending object and releasing both a blocked producer
+   * and a blocked consumer.
+   */
+  public void cancel() {
+    this.cancelled = true;
+    this.queue.clear();
+    // if a producer takes the slot first, the consumer will be woken by its object instead
+    this.queue.offer(END);
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Returns a lazy stream over the objects sent through this pipe. The stream can only be
+   * consumed once and closing it cancels the pipe.
+   *
+   * @return a stream of the objects sent through this pipe
+   */
+  public Stream<Object> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), false)
+      .onClose(this::cancel);
+  }
+
+  private Iterator<Object> iterator() {
+    return new Iterator<>() {
+
+      private Object next;
+      private boolean done;
+
+      @Override
+      public boolean hasNext() {
+        if (next == null && !done) {
+          Object object = take();
+          if (object == END) {
+            done = true;
+            if (failure != null) {
+              throw failure instanceof UnbelievableException e ? e : new UnbelievableException(failure);
+            }
+          } else {
+            next = object;
+          }
+        }
+        return next != null;
+      }
+
+      @Override
+      public Object next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Object result = next;
+        next = null;
+        return result;
+      }
+    };
+  }
+
+  private void put(Object object) {
+    if (cancelled) {
+      throw new CancellationException("Pipe closed by the consumer");
+    }
+    try {
+      queue.put(object);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while sending to the pipe");
+    }
+  }
+
+  private Object take() {
+    if (cancelled) {
+      return END;
+    }
+    try {
+      Object object = queue.take();
+      return cancelled ? END : object;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UnbelievableException("Interrupted while reading from the pipe");
+    }
+  }
+
+}
@@ -41,6 +41,13 @@ public final class Preferences {
     "true"
   );
 
+  public static final PreferenceSpec<Boolean> FUZZY_COMPLETION = new PreferenceSpec<>(
+    "fuzzy-completion",
+    "matches suggestions by approximate terms instead of prefixes",
+    PreferenceType.FLAG,
+    "false"
+  );
+
   public static final PreferenceSpec<Boolean> AUTO_SUGGEST = new PreferenceSpec<>(
     "auto-suggest",
     "suggests as you type",
@@ -76,6 +83,55 @@ public final class Preferences {
     "false"
   );
 
+  public static final PreferenceSpec<Integer> FOREACH_PARALLELISM = new PreferenceSpec<>(
+    "foreach-parallelism",
+    "sets how many inputs the foreach command processes at the same time",
+    PreferenceType.NUMBER,
+    "8"
+  );
+
+  public static final PreferenceSpec<Boolean> FOREACH_ORDERED = new PreferenceSpec<>(
+    "foreach-ordered",
+    "prints the foreach outputs in the same order as the inputs",
+    PreferenceType.FLAG,
+    "true"
+  );
+
+  public static final PreferenceSpec<Boolean> FOREACH_FAIL_FAST = new PreferenceSpec<>(
+    "foreach-fail-fast",
+    "stops the foreach command at the first failure",
+    PreferenceType.FLAG,
+    "false"
+  );
+
+  public static final PreferenceSpec<Boolean> STOP_ON_ERROR = new PreferenceSpec<>(
+    "stop-on-error",
+    "stops reading commands from a non-interactive input at the first failure",
+    PreferenceType.FLAG,
+    "true"
+  );
+
+  public static final PreferenceSpec<Boolean> BATCH_OUTPUT = new PreferenceSpec<>(
+    "batch-output",
+    "flushes the output of non-interactive inputs only when the buffer is full",
+    PreferenceType.FLAG,
+    "true"
+  );
+
+  public static final PreferenceSpec<Integer> PASTE_CONFIRMATION = new PreferenceSpec<>(
+    "paste-confirmation",
+    "asks before running a paste with at least this many commands (0 never asks)",
+    PreferenceType.NUMBER,
+    "20"
+  );
+
+  public static final PreferenceSpec<String> OUTPUT_FORMAT = new PreferenceSpec<>(
+    "output-format",
+    "sets how command results are printed (text, ndjson, json or csv)",
+    PreferenceType.TEXT,
+    "text"
+  );
+
   public static final PreferenceSpec<String> LEFT_PROMPT_HEAD = new PreferenceSpec<>(
     "left-prompt-head",
     "The head icon for the left prompt",
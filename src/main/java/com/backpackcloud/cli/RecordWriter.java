@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import com.backpackcloud.UnbelievableException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.jline.utils.AttributedStyle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes command results as machine-readable records.
+ * <p>
+ * Each record is serialized and written as soon as it's received, without any styling,
+ * so a stream of results never needs to be held in memory. Every record goes through
+ * the mapper only once: NDJSON uses a writer that doesn't indent and CSV reads the
+ * columns from the tree of the record.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class RecordWriter implements AutoCloseable {
+
+  private final OutputFormat format;
+  private final ObjectMapper mapper;
+  private final ObjectWriter compactWriter;
+  private final ObjectWriter prettyWriter;
+  private final Writer writer;
+
+  private List<String> columns;
+  private long count;
+
+  public RecordWriter(OutputFormat format, ObjectMapper mapper, Writer writer) {
+    this.format = format;
+    this.mapper = mapper;
+    this.compactWriter = mapper.writer();
+    this.prettyWriter = mapper.writerWithDefaultPrettyPrinter();
+    this.writer = writer.withStyle(AttributedStyle.DEFAULT);
+  }
+
+  public void write(Object record) {
+    switch (format) {
+      case TEXT -> writer.write(String.valueOf(record) + "\n");
+      case NDJSON -> writer.write(serialize(compactWriter, record) + "\n");
+      case JSON -> writer.write((count == 0 ? "[\n" : ",\n") + serialize(prettyWriter, record));
+      case CSV -> writeCsv(record);
+    }
+    count++;
+  }
+
+  @Override
+  public void close() {
+    if (format == OutputFormat.JSON) {
+      writer.write(count == 0 ? "[]\n" : "\n]\n");
+    }
+    writer.flush();
+  }
+
+  private void writeCsv(Object record) {
+    if (isScalar(record)) {
+      writeCsvRecord(List.of("value"), List.of(String.valueOf(record)));
+      return;
+    }
+    JsonNode tree = mapper.valueToTree(record);
+    if (!tree.isObject()) {
+      writeCsvRecord(List.of("value"), List.of(csvValue(tree)));
+      return;
+    }
+    if (columns == null) {
+      List<String> names = new ArrayList<>(tree.size());
+      tree.fieldNames().forEachRemaining(names::add);
+      columns = names;
+      writeCsvLine(columns);
+    }
+    List<String> values = new ArrayList<>(columns.size());
+    for (String column : columns) {
+      values.add(csvValue(tree.get(column)));
+    }
+    writeCsvLine(values);
+  }
+
+  private void writeCsvRecord(List<String> names, List<String> values) {
+    if (columns == null) {
+      columns = names;
+      writeCsvLine(columns);
+    }
+    writeCsvLine(values);
+  }
+
+  private String csvValue(JsonNode value) {
+    if (value == null || value.isNull() || value.isMissingNode()) {
+      return "";
+    } else if (value.isContainerNode()) {
+      return serialize(compactWriter, value);
+    }
+    return value.asText();
+  }
+
+  private void writeCsvLine(List<String> values) {
+    StringBuilder line = new StringBuilder();
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      String value = values.get(i);
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+      } else {
+        line.append(value);
+      }
+    }
+    writer.write(line.append('\n').toString());
+  }
+
+  private static String serialize(ObjectWriter writer, Object value) {
+    try {
+      return writer.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private static boolean isScalar(Object value) {
+    return value instanceof CharSequence
+      || value instanceof Number
+      || value instanceof Boolean
+      || value instanceof Character
+      || value instanceof Enum<?>;
+  }
+
+  /**
+   * Removes the line breaks of a JSON document, so it fits in a single line. Line breaks
+   * can't be part of a JSON string, so they're just indentation.
+   *
+   * @param json the JSON document
+   * @return the document in a single line
+   */
+  public static String compact(String json) {
+    if (json.indexOf('\n') < 0) {
+      return json;
+    }
+    StringBuilder result = new StringBuilder(json.length());
+    boolean skipping = false;
+    for (int i = 0; i < json.length(); i++) {
+      char c = json.charAt(i);
+      if (c == '\n' || c == '\r') {
+        skipping = true;
+      } else if (!skipping || !Character.isWhitespace(c)) {
+        skipping = false;
+        result.append(c);
+      }
+    }
+    return result.toString().stripTrailing();
+  }
+
+}
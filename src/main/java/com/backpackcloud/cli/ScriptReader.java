@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import com.backpackcloud.UnbelievableException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads command lines from a script, one at a time.
+ * <p>
+ * Blank lines and lines starting with {@code #} are skipped and a line ending with
+ * {@code \} continues on the next one. Each command line carries the number of the
+ * line it started, so errors can be reported back to the script.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class ScriptReader implements AutoCloseable {
+
+  private final BufferedReader reader;
+  private int lineNumber;
+
+  public ScriptReader(BufferedReader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * @return the next command line or {@code null} if the script has ended
+   */
+  public ScriptLine next() {
+    try {
+      StringBuilder command = null;
+      int start = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        line = line.strip();
+        if (command == null) {
+          if (line.isEmpty() || line.startsWith("#")) {
+            continue;
+          }
+          command = new StringBuilder();
+          start = lineNumber;
+        }
+        if (line.endsWith("\\")) {
+          command.append(line.substring(0, line.length() - 1).stripTrailing()).append(' ');
+        } else {
+          command.append(line);
+          return new ScriptLine(start, command.toString().strip());
+        }
+      }
+      // a continuation on the last line
+      return command == null ? null : new ScriptLine(start, command.toString().strip());
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  /**
+   * A command line from a script.
+   *
+   * @param number  the number of the line where the command starts
+   * @param command the command line, with any continuation joined
+   */
+  public record ScriptLine(int number, String command) {
+
+  }
+
+}
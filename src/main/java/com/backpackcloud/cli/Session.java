@@ -0,0 +1,876 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.ui.Prompt;
+import com.backpackcloud.cli.ui.PromptWriter;
+import com.backpackcloud.cli.ui.Suggestion;
+import com.backpackcloud.cli.ui.TerminalStreams;
+import com.backpackcloud.cli.ui.components.CommandCompleter;
+import com.backpackcloud.cli.ui.components.FuzzyCompletionMatcher;
+import com.backpackcloud.cli.ui.components.PromptHighlighter;
+import com.backpackcloud.preferences.UserPreferences;
+import org.jline.reader.EndOfFileException;
+import org.jline.reader.History;
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser;
+import org.jline.reader.UserInterruptException;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.spi.SystemStream;
+import org.jline.terminal.spi.TerminalExt;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStyle;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The state of a single user of a {@link CLI}.
+ * <p>
+ * The commands, the theme and the other components are shared by all the sessions of a
+ * CLI, while each session has its own terminal, history, preferences, error registry and
+ * prompt state. Sessions can run at the same time, each one in its own thread, without
+ * seeing what the others are doing.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class Session implements AutoCloseable {
+
+  private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+  private final CLI cli;
+  private final Terminal terminal;
+  private final UserPreferences preferences;
+  private final History history;
+  private final ErrorRegistry errors;
+  private final Writer console;
+
+  private LineReader lineReader;
+  private PromptHighlighter highlighter;
+  private volatile CommandCompleter completer;
+
+  private volatile boolean stop;
+  private volatile Boolean interactive;
+  private volatile Execution lastExecution;
+  private volatile Path workingDirectory = Path.of("");
+
+  Session(CLI cli, Terminal terminal, UserPreferences preferences, History history, ErrorRegistry errors) {
+    this.cli = cli;
+    this.terminal = terminal;
+    this.preferences = preferences;
+    this.history = history;
+    this.errors = errors;
+    this.console = writerFor(terminal);
+  }
+
+  public CLI cli() {
+    return cli;
+  }
+
+  public Terminal terminal() {
+    return terminal;
+  }
+
+  /**
+   * @return the preferences of this session, changing them doesn't affect other sessions
+   */
+  public UserPreferences preferences() {
+    return preferences;
+  }
+
+  public History history() {
+    return history;
+  }
+
+  /**
+   * @return the errors raised by the commands run in this session
+   */
+  public ErrorRegistry errors() {
+    return errors;
+  }
+
+  /**
+   * @return the writer for the terminal of this session
+   */
+  public Writer console() {
+    return console;
+  }
+
+  /**
+   * @return the directory relative paths are resolved against
+   */
+  public Path workingDirectory() {
+    return workingDirectory;
+  }
+
+  /**
+   * Changes the directory relative paths are resolved against, which is the current
+   * directory of the process unless the session runs for someone somewhere else, like
+   * a daemon client.
+   *
+   * @param workingDirectory the new working directory
+   */
+  public void workingDirectory(Path workingDirectory) {
+    this.workingDirectory = workingDirectory;
+  }
+
+  /**
+   * Resolves a path given to a command of this session.
+   *
+   * @param path the path, either absolute or relative to the working directory
+   * @return the resolved path
+   */
+  public Path resolve(String path) {
+    return workingDirectory.resolve(path);
+  }
+
+  /**
+   * @return whether the last command run in this session has failed
+   */
+  public boolean lastCommandFailed() {
+    Execution execution = lastExecution;
+    return execution != null && execution.failed();
+  }
+
+  /**
+   * @return how long the last command run in this session took
+   */
+  public Duration lastCommandDuration() {
+    Execution execution = lastExecution;
+    return execution != null ? execution.duration() : Duration.ZERO;
+  }
+
+  /**
+   * @return the last execution that ended in this session
+   */
+  public Optional<Execution> lastExecution() {
+    return Optional.ofNullable(lastExecution);
+  }
+
+  /**
+   * Creates a writer that prints to the given terminal using the theme of the CLI.
+   * Plain text is printed if the terminal is a dumb one.
+   *
+   * @param terminal the terminal to print to
+   * @return a writer for the given terminal
+   */
+  public Writer writerFor(Terminal terminal) {
+    // a dumb terminal is usually not a terminal at all, so don't send escape sequences to it
+    boolean plain = Terminal.TYPE_DUMB.equals(terminal.getType());
+    return new Writer(
+      cli.theme(),
+      AttributedStyle.DEFAULT,
+      AttributedString::new,
+      text -> terminal.writer().print(plain ? text.toString() : text.toAnsi()),
+      terminal
+    );
+  }
+
+  /**
+   * Creates a writer that prints to the given output using the theme of the CLI, without
+   * going through a terminal. Unless output batching is disabled, the output is left for
+   * the caller to flush once it's done.
+   *
+   * @param output the output to print to
+   * @param ansi   whether the styles should be printed as escape sequences
+   * @return a writer for the given output
+   */
+  public Writer writerFor(java.io.Writer output, boolean ansi) {
+    boolean batch = preferences.isEnabled(Preferences.BATCH_OUTPUT);
+    return new Writer(cli.theme(), AttributedStyle.DEFAULT, AttributedString::new, text -> {
+      try {
+        output.write(ansi ? text.toAnsi() : text.toString());
+      } catch (IOException e) {
+        throw new UnbelievableException(e);
+      }
+    }, () -> {
+      try {
+        if (!batch) {
+          output.flush();
+        }
+      } catch (IOException e) {
+        throw new UnbelievableException(e);
+      }
+    });
+  }
+
+  // the line reader is only needed when the user is typing commands
+  private LineReader lineReader() {
+    if (lineReader == null) {
+      cli.startupProfiler().measure("line reader", this::createLineReader);
+    }
+    return lineReader;
+  }
+
+  private void createLineReader() {
+    this.highlighter = new PromptHighlighter(preferences, cli.commands().keySet(), cli.theme());
+
+    this.lineReader = LineReaderBuilder.builder()
+      .terminal(terminal)
+      .parser(cli.parser())
+      .highlighter(highlighter)
+      .history(history)
+      .completer(completer())
+      .completionMatcher(new FuzzyCompletionMatcher(preferences))
+      .build();
+
+    this.lineReader.option(LineReader.Option.DISABLE_EVENT_EXPANSION, true);
+    this.lineReader.option(LineReader.Option.BRACKETED_PASTE, true);
+
+    preferences.watch(Preferences.AUTO_SUGGEST, enabled -> {
+      if (enabled) {
+        this.lineReader.setAutosuggestion(LineReader.SuggestionType.COMPLETER);
+      } else {
+        this.lineReader.setAutosuggestion(LineReader.SuggestionType.NONE);
+      }
+    });
+  }
+
+  /**
+   * Stops reading commands in this session.
+   */
+  public void stop() {
+    stop = true;
+  }
+
+  /**
+   * Starts reading commands from the terminal of this session until the user exits. If the
+   * terminal is not interactive, the commands are read from its input as a script.
+   */
+  public void start() {
+    if (!isInteractive()) {
+      run(terminal.input());
+      return;
+    }
+    try {
+      readCommands();
+    } finally {
+      saveHistory();
+    }
+  }
+
+  /**
+   * Goes through what an interactive session goes through without reading anything from the
+   * user, so the classes a real session needs get loaded by a JVM that is dumping a class
+   * data sharing archive. Neither the history nor the usage index are saved afterwards.
+   * <p>
+   * The line reader and both prompts are always built. Unless only the prompt is asked, every
+   * command is also highlighted and completed before the given command lines are run, with
+   * their output discarded.
+   *
+   * @param commands   the command lines to run, each one given as its words
+   * @param promptOnly whether to stop as soon as the first prompt is ready
+   */
+  void train(List<String[]> commands, boolean promptOnly) {
+    LineReader reader = lineReader();
+    buildLeftPrompt();
+    buildRightPrompt();
+    if (promptOnly) {
+      return;
+    }
+    for (String name : new TreeSet<>(cli.commands().keySet())) {
+      highlighter.highlight(reader, name + " ");
+      try {
+        suggest(name.substring(0, 1));
+        suggest(name + " ");
+      } catch (RuntimeException e) {
+        // suggestions may depend on state the training doesn't have
+      }
+    }
+    Writer discard = writerFor(java.io.Writer.nullWriter(), false);
+    commands.forEach(words -> run(discard, words));
+    errors.clear();
+  }
+
+  private void saveHistory() {
+    try {
+      history.save();
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private void readCommands() {
+    String query;
+    while (!stop) {
+      try {
+        LineReader reader = lineReader();
+        StartupProfiler profiler = cli.startupProfiler();
+        String left = profiler.measure("left prompt", this::buildLeftPrompt);
+        String right = profiler.measure("right prompt", this::buildRightPrompt);
+        // the first prompt is ready to be shown, nothing else is part of the startup
+        cli.finishStartup();
+
+        query = reader.readLine(left, right, (Character) null, null).trim();
+
+        // only a bracketed paste can put more than one line in the buffer
+        if (query.indexOf('\n') >= 0) {
+          executePaste(query);
+        } else {
+          execute(query);
+        }
+      } catch (UnbelievableException e) {
+        Execution execution = new Execution();
+        fail(execution, e);
+        execution.finish();
+        lastExecution = execution;
+        printError(e);
+      } catch (EndOfFileException e) {
+        // if ctrl+d is pressed, exit cli
+        return;
+      } catch (UserInterruptException e) {
+        // exit cli if there's no input
+        // this would make it easy to just cancel the current prompt and start again
+        // if ctrl+c is pressed without any input, cli will just end
+        if (e.getPartialLine().isBlank()) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the lines of a paste as a single execution, asking for confirmation first if
+   * the paste is large. A summary is printed at the end.
+   */
+  private void executePaste(String paste) {
+    List<ScriptReader.ScriptLine> lines = new ArrayList<>();
+    try (ScriptReader reader = new ScriptReader(new BufferedReader(new StringReader(paste)))) {
+      ScriptReader.ScriptLine line;
+      while ((line = reader.next()) != null) {
+        lines.add(line);
+      }
+    }
+
+    int threshold = preferences.get(Preferences.PASTE_CONFIRMATION).value();
+    if (threshold > 0 && lines.size() >= threshold && !confirm(String.format("Run %d pasted commands? [y/N] ", lines.size()))) {
+      return;
+    }
+
+    boolean stopOnError = preferences.isEnabled(Preferences.STOP_ON_ERROR);
+    int failed = 0;
+    Execution execution = begin();
+    try {
+      for (ScriptReader.ScriptLine line : lines) {
+        try {
+          ParsedLine parsedLine = cli.parse(line.command());
+          dispatch(console, parsedLine);
+          execution.add(parsedLine);
+        } catch (Exception e) {
+          failed++;
+          fail(execution, e);
+          printError(console, "line " + line.number() + ": " + ErrorRegistry.messageOf(e));
+          if (stopOnError) {
+            break;
+          }
+        }
+      }
+    } finally {
+      end(execution);
+    }
+
+    double elapsed = execution.duration().toNanos() / 1_000_000_000.0;
+    int skipped = lines.size() - execution.lines().size() - failed;
+    console.withStyle("source_label").write("paste: ")
+      .withStyle("source_value").write(execution.lines().size() + " succeeded")
+      .withStyle("source_detail").writeln(String.format(" (%d failed, %d skipped in %.2fs)", failed, skipped, elapsed));
+  }
+
+  private boolean confirm(String question) {
+    LineReader reader = lineReader();
+    // the answer doesn't belong to the history
+    reader.setVariable(LineReader.DISABLE_HISTORY, true);
+    try {
+      String answer = reader.readLine(question).trim();
+      return answer.equalsIgnoreCase("y") || answer.equalsIgnoreCase("yes");
+    } catch (UserInterruptException | EndOfFileException e) {
+      return false;
+    } finally {
+      reader.setVariable(LineReader.DISABLE_HISTORY, false);
+    }
+  }
+
+  /**
+   * Tells whether the commands of this session are typed by someone. A terminal with full
+   * capabilities is only created when the input is a TTY, but a dumb one is also created
+   * for a TTY when the terminal type is {@code dumb} (like in Emacs shells or IDE consoles),
+   * so for system terminals the input itself is checked.
+   *
+   * @return whether the input of this session is a TTY
+   */
+  public boolean isInteractive() {
+    Boolean result = interactive;
+    if (result == null) {
+      // checking the input may take a while, and the terminal of a session doesn't change
+      result = !Terminal.TYPE_DUMB.equals(terminal.getType()) && !Terminal.TYPE_DUMB_COLOR.equals(terminal.getType())
+        || terminal instanceof TerminalExt system && system.getSystemStream() != null
+        && TerminalStreams.isTerminal(SystemStream.Input);
+      interactive = result;
+    }
+    return result;
+  }
+
+  private void printError(Exception e) {
+    printError(console, e.getMessage());
+  }
+
+  private void printError(Writer writer, String message) {
+    writer.style()
+      .parse("command_error")
+      .bold().italic()
+      .set().write(message != null ? message : "An error occurred").newLine();
+  }
+
+  /**
+   * Runs a single command line and returns its exit status, without reading anything
+   * from the user. The words are used as they are given, with no further parsing, so
+   * the arguments of a program can be passed directly.
+   *
+   * @param words the words of the command line, starting with the command name
+   * @return {@code 0} if the command succeeded or {@code 1} if it failed
+   */
+  public int run(String... words) {
+    return run(console, words);
+  }
+
+  /**
+   * Runs a single command line, printing its output with the given writer.
+   *
+   * @param writer the writer to print the output with
+   * @param words  the words of the command line, starting with the command name
+   * @return {@code 0} if the command succeeded or {@code 1} if it failed
+   * @see #run(String...)
+   */
+  public int run(Writer writer, String... words) {
+    if (words.length == 0) {
+      return 0;
+    }
+    try {
+      return runLine(writer, new CommandLine(List.of(words)), "") ? 0 : 1;
+    } finally {
+      writer.flush();
+    }
+  }
+
+  /**
+   * Runs the command lines read from the given input, one per line, without any prompt,
+   * highlighting or completion. The input is read as a script, so blank lines and comments
+   * are ignored and lines can be continued with a trailing {@code \}.
+   * <p>
+   * Depending on the preferences, the execution either stops at the first failure or
+   * goes through all the lines and reports how many have failed. The output is only
+   * flushed when its buffer is full, unless output batching is disabled.
+   *
+   * @param input the input to read the command lines from
+   * @return {@code 0} if all the commands succeeded or {@code 1} otherwise
+   */
+  public int run(InputStream input) {
+    boolean plain = Terminal.TYPE_DUMB.equals(terminal.getType());
+    BufferedWriter output = new BufferedWriter(new OutputStreamWriter(terminal.output(), terminal.encoding()), STREAM_BUFFER_SIZE);
+    try {
+      return runScript(writerFor(output, !plain), input, terminal.encoding(), output::flush);
+    } finally {
+      try {
+        output.flush();
+      } catch (IOException e) {
+        throw new UnbelievableException(e);
+      }
+    }
+  }
+
+  /**
+   * Runs the command lines read from the given input, printing their output with the
+   * given writer. The lines are handled in the same way as {@link #run(InputStream)}.
+   *
+   * @param writer the writer to print the output with
+   * @param input  the input to read the command lines from
+   * @return {@code 0} if all the commands succeeded or {@code 1} otherwise
+   */
+  public int run(Writer writer, InputStream input) {
+    try {
+      return runScript(writer, input, terminal.encoding(), writer::flush);
+    } finally {
+      writer.flush();
+    }
+  }
+
+  private int runScript(Writer writer, InputStream input, Charset encoding, Flushable output) {
+    boolean stopOnError = preferences.isEnabled(Preferences.STOP_ON_ERROR);
+    boolean batch = preferences.isEnabled(Preferences.BATCH_OUTPUT);
+
+    int executed = 0;
+    int failed = 0;
+    try (ScriptReader reader = new ScriptReader(new BufferedReader(new InputStreamReader(input, encoding), STREAM_BUFFER_SIZE))) {
+      ScriptReader.ScriptLine line;
+      while (!stop && (line = reader.next()) != null) {
+        executed++;
+        if (!runLine(writer, cli.parse(line.command()), "line " + line.number() + ": ")) {
+          failed++;
+          if (stopOnError) {
+            break;
+          }
+        }
+        if (!batch) {
+          output.flush();
+        }
+      }
+      if (failed > 0 && !stopOnError) {
+        printError(writer, String.format("%d of %d commands failed", failed, executed));
+      }
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+    return failed == 0 ? 0 : 1;
+  }
+
+  private boolean runLine(Writer writer, ParsedLine parsedLine, String errorPrefix) {
+    Execution execution = begin();
+    try {
+      dispatch(writer, parsedLine);
+      // only lines that succeed are recorded, so typos don't gain rank in the usage index
+      execution.add(parsedLine);
+      return true;
+    } catch (Exception e) {
+      fail(execution, e);
+      printError(writer, errorPrefix + ErrorRegistry.messageOf(e));
+      return false;
+    } finally {
+      end(execution);
+    }
+  }
+
+  public void execute(String... commands) {
+    execute(console, commands);
+  }
+
+  public void execute(Writer writer, String... commands) {
+    Execution execution = begin();
+    try {
+      for (String command : commands) {
+        if (!command.isEmpty()) {
+          ParsedLine parsedLine = cli.parse(command);
+          dispatch(writer, parsedLine);
+          execution.add(parsedLine);
+        }
+      }
+    } catch (Exception e) {
+      fail(execution, e);
+    } finally {
+      end(execution);
+    }
+  }
+
+  /**
+   * Runs a single command with the given arguments bound by name to the parameters of its
+   * action, instead of parsed from the line. The objects returned by the command are sent
+   * to the given pipe instead of being printed, and the pipe is closed once the command is
+   * done.
+   *
+   * @param writer     the writer for the text the command prints
+   * @param parsedLine the line to run, starting with the command name
+   * @param arguments  the arguments mapped by the name of their parameters
+   * @param output     the pipe for the objects returned by the command
+   * @return the execution of the command
+   */
+  public Execution invoke(Writer writer, ParsedLine parsedLine, Map<String, Object> arguments, Pipe output) {
+    Execution execution = begin();
+    try {
+      String commandName = parsedLine.words().getFirst();
+      Command command = cli.commands().get(commandName);
+      if (command == null) {
+        throw new UnbelievableException("Unknown command " + commandName);
+      }
+      try {
+        command.execute(new CommandContext(this, parsedLine, writer, OutputFormat.TEXT, null, output), arguments);
+      } finally {
+        output.close();
+      }
+      execution.add(parsedLine);
+    } catch (Exception e) {
+      fail(execution, e);
+    } finally {
+      end(execution);
+    }
+    return execution;
+  }
+
+  /**
+   * Suggests the candidates for the last word of the given line, the same way they are
+   * suggested while the user types it.
+   *
+   * @param line the line being typed
+   * @return the ranked suggestions
+   */
+  public List<Suggestion> suggest(String line) {
+    return completer().suggestionsFor(cli.parser().parse(line, line.length(), Parser.ParseContext.COMPLETE));
+  }
+
+  private String buildLeftPrompt() {
+    StringBuilder builder = new StringBuilder();
+    Writer writer = stringBuilderWriter(builder);
+    Prompt prompt = Prompt.create(cli.theme(), writer, this,
+      preferences.supplier(Preferences.LEFT_PROMPT_TAIL).get(),
+      preferences.supplier(Preferences.LEFT_PROMPT_SEPARATOR).get(),
+      preferences.supplier(Preferences.LEFT_PROMPT_HEAD).get()
+    );
+
+    cli.leftPrompt().forEach(promptWriter -> promptWriter.addTo(prompt, PromptWriter.PromptSide.LEFT));
+
+    return builder.toString();
+  }
+
+  private String buildRightPrompt() {
+    StringBuilder builder = new StringBuilder();
+    Writer writer = stringBuilderWriter(builder);
+    Prompt prompt = Prompt.create(cli.theme(), writer, this,
+      preferences.supplier(Preferences.RIGHT_PROMPT_TAIL).get(),
+      preferences.supplier(Preferences.RIGHT_PROMPT_SEPARATOR).get(),
+      preferences.supplier(Preferences.RIGHT_PROMPT_HEAD).get()
+    );
+
+    cli.rightPrompt().forEach(promptWriter -> promptWriter.addTo(prompt, PromptWriter.PromptSide.RIGHT));
+
+    prompt.closeSegments();
+
+    return builder.toString();
+  }
+
+  private Writer stringBuilderWriter(StringBuilder stringBuilder) {
+    return new Writer(cli.theme(), AttributedStyle.DEFAULT,
+      AttributedString::new,
+      text -> stringBuilder.append(text.toAnsi()),
+      terminal);
+  }
+
+  /**
+   * Executes an already parsed line in the current execution, without notifying
+   * any event nor handling any error.
+   * <p>
+   * If the line is a pipeline ({@code cmd1 | cmd2 | ...}), each command runs in its own
+   * thread and the objects returned by one command are handed to the next one through
+   * a {@link Pipe}, only the last command writes to the given writer.
+   * <p>
+   * If the line ends with {@code > file} or {@code >> file}, the output is written to
+   * the file as plain text instead.
+   * <p>
+   * The format of the results can be changed for this line with an {@code --output-format=}
+   * flag, otherwise the format set in the preferences is used.
+   *
+   * @param writer     the writer for the command output
+   * @param parsedLine the line to execute
+   */
+  public void dispatch(Writer writer, ParsedLine parsedLine) {
+    OutputFormat format = null;
+    CommandLine commandLine = CommandLine.of(parsedLine);
+    List<String> words = commandLine.words();
+    if (words.stream().anyMatch(word -> word.startsWith(CLI.OUTPUT_FORMAT_FLAG))) {
+      List<String> remaining = new ArrayList<>(words.size());
+      Set<Integer> literals = new HashSet<>();
+      for (int i = 0; i < words.size(); i++) {
+        String word = words.get(i);
+        if (word.startsWith(CLI.OUTPUT_FORMAT_FLAG)) {
+          format = OutputFormat.of(word.substring(CLI.OUTPUT_FORMAT_FLAG.length()));
+        } else {
+          if (commandLine.isLiteral(i)) {
+            literals.add(remaining.size());
+          }
+          remaining.add(word);
+        }
+      }
+      commandLine = new CommandLine(String.join(" ", remaining), remaining, Set.copyOf(literals));
+      words = remaining;
+      parsedLine = commandLine;
+    }
+    if (format == null) {
+      format = OutputFormat.of(preferences.get(Preferences.OUTPUT_FORMAT).value());
+    }
+
+    int size = words.size();
+    if (size > 1 && isRedirect(commandLine, size - 2)) {
+      if (size == 2) {
+        throw new UnbelievableException("Missing command to redirect the output");
+      }
+      boolean append = CLI.REDIRECT_APPEND.equals(words.get(size - 2));
+      try (FileSink sink = new FileSink(resolve(words.getLast()), append)) {
+        CommandLine redirected = commandLine.subLine(0, size - 2);
+        dispatchLine(writer.withDelegate(sink), redirected, redirected, format);
+      }
+    } else if (size > 0 && isRedirect(commandLine, size - 1)) {
+      throw new UnbelievableException("Missing file to redirect the output");
+    } else {
+      dispatchLine(writer, parsedLine, commandLine, format);
+    }
+  }
+
+  private boolean isRedirect(CommandLine commandLine, int index) {
+    String word = commandLine.words().get(index);
+    return !commandLine.isLiteral(index) && (CLI.REDIRECT.equals(word) || CLI.REDIRECT_APPEND.equals(word));
+  }
+
+  private void dispatchLine(Writer writer, ParsedLine parsedLine, CommandLine commandLine, OutputFormat format) {
+    List<ParsedLine> stages = splitPipeline(parsedLine, commandLine);
+    if (stages.size() == 1) {
+      dispatch(writer, parsedLine, format, null, null);
+    } else {
+      dispatchPipeline(writer, stages, format);
+    }
+  }
+
+  private void dispatch(Writer writer, ParsedLine parsedLine, OutputFormat format, Pipe input, Pipe output) {
+    String commandName = parsedLine.words().getFirst();
+    Command command = cli.commands().get(commandName);
+    CommandContext currentContext;
+
+    if (command == null) {
+      throw new UnbelievableException("Unknown command " + commandName);
+    }
+
+    currentContext = new CommandContext(this, parsedLine, writer, format, input, output);
+    command.execute(currentContext);
+  }
+
+  private void dispatchPipeline(Writer writer, List<ParsedLine> stages, OutputFormat format) {
+    List<Pipe> pipes = new ArrayList<>(stages.size() - 1);
+    List<Thread> producers = new ArrayList<>(stages.size() - 1);
+
+    try {
+      for (int i = 0; i < stages.size() - 1; i++) {
+        ParsedLine stage = stages.get(i);
+        Pipe input = pipes.isEmpty() ? null : pipes.getLast();
+        Pipe output = new Pipe();
+        pipes.add(output);
+        producers.add(Thread.ofVirtual().name("pipe-" + stage.words().getFirst()).start(() -> {
+          try {
+            dispatch(writer, stage, format, input, output);
+            output.close();
+          } catch (Throwable e) {
+            // a cancelled pipe means the next command is done and doesn't want anything else
+            if (!output.isCancelled() && !(e instanceof CancellationException)) {
+              output.fail(e);
+            }
+          } finally {
+            if (input != null) {
+              input.cancel();
+            }
+          }
+        }));
+      }
+
+      dispatch(writer, stages.getLast(), format, pipes.getLast(), null);
+    } finally {
+      pipes.forEach(Pipe::cancel);
+      for (Thread producer : producers) {
+        try {
+          producer.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+  }
+
+  private List<ParsedLine> splitPipeline(ParsedLine parsedLine, CommandLine commandLine) {
+    List<String> words = commandLine.words();
+    List<ParsedLine> stages = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i <= words.size(); i++) {
+      if (i == words.size() || (!commandLine.isLiteral(i) && CLI.PIPE.equals(words.get(i)))) {
+        if (i == start) {
+          throw new UnbelievableException("Missing command in pipeline");
+        }
+        stages.add(start == 0 && i == words.size() ? parsedLine : commandLine.subLine(start, i));
+        start = i + 1;
+      }
+    }
+    return stages;
+  }
+
+  @Override
+  public void close() {
+    stop();
+    cli.close(this);
+  }
+
+  void addCommand(String name) {
+    if (lineReader != null) {
+      highlighter.addCommand(name);
+    }
+    CommandCompleter completer = this.completer;
+    if (completer != null) {
+      completer.addCommand(name);
+    }
+  }
+
+  private synchronized CommandCompleter completer() {
+    if (completer == null) {
+      completer = new CommandCompleter(cli.commands(), preferences, cli.usageIndex(), cli.fileSuggester());
+    }
+    return completer;
+  }
+
+  private Execution begin() {
+    Execution execution = new Execution();
+    cli.eventBus().send(CLI.EVENT_COMMAND_BEGIN, EventBus.param("execution", execution));
+    return execution;
+  }
+
+  private void fail(Execution execution, Exception error) {
+    execution.fail(error);
+    errors.add(error);
+    cli.eventBus().send(CLI.EVENT_COMMAND_ERROR,
+      EventBus.param("error", error),
+      EventBus.param("execution", execution));
+  }
+
+  private void end(Execution execution) {
+    execution.finish();
+    lastExecution = execution;
+    cli.eventBus().send(CLI.EVENT_COMMAND_END,
+      EventBus.param("lines", execution.lines()),
+      EventBus.param("execution", execution));
+  }
+
+}
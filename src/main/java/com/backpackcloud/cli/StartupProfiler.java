@@ -0,0 +1,252 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each phase of the startup takes, relative to the moment the profiler
+ * was created. Phases may run at the same time in different threads, so the phases a phase
+ * had to wait for can be recorded as its dependencies to find out the critical path of the
+ * startup. Phases may also contain other phases run by the same thread.
+ * <p>
+ * The startup ends when the profiler is {@link #finish() finished}, which happens when the
+ * first prompt is ready, and nothing is recorded after that.
+ * <p>
+ * The bytes allocated by each phase, and the time the JVM took to get to the profiler, are only
+ * recorded if {@value #ALLOCATIONS_PROPERTY} is set to {@code true}, since getting them loads the
+ * management API, which makes the startup itself slower. Phases run by virtual threads have no
+ * allocation count.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class StartupProfiler {
+
+  /**
+   * The system property that enables recording the bytes allocated by each phase.
+   */
+  public static final String ALLOCATIONS_PROPERTY = "zipper.startup.allocations";
+  /**
+   * The system property with the file to write the {@link StartupReport report} to, as JSON,
+   * when the startup ends.
+   */
+  public static final String REPORT_PROPERTY = "zipper.startup.report";
+
+  private final long origin;
+  private final Duration launch;
+  private final Queue<Measure> measures;
+  private final Map<String, Set<String>> dependencies;
+  private final ThreadMXBean threads;
+  private final AtomicLong end;
+
+  public StartupProfiler() {
+    this(Boolean.getBoolean(ALLOCATIONS_PROPERTY));
+  }
+
+  /**
+   * @param allocations whether the bytes allocated by each phase should be recorded
+   */
+  public StartupProfiler(boolean allocations) {
+    this.origin = System.nanoTime();
+    this.measures = new ConcurrentLinkedQueue<>();
+    this.dependencies = new ConcurrentHashMap<>();
+    this.threads = allocations ? allocationCounter() : null;
+    this.launch = threads != null ? Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime()) : null;
+    this.end = new AtomicLong();
+  }
+
+  private static ThreadMXBean allocationCounter() {
+    if (ManagementFactory.getThreadMXBean() instanceof ThreadMXBean bean && bean.isThreadAllocatedMemorySupported()) {
+      bean.setThreadAllocatedMemoryEnabled(true);
+      return bean;
+    }
+    return null;
+  }
+
+  /**
+   * @return whether the bytes allocated by each phase are recorded
+   */
+  public boolean tracksAllocations() {
+    return threads != null;
+  }
+
+  /**
+   * @return how long the JVM had been running when this profiler was created, if it was recorded
+   */
+  public Optional<Duration> launch() {
+    return Optional.ofNullable(launch);
+  }
+
+  /**
+   * Marks the end of the startup. Only the first call has any effect.
+   *
+   * @return {@code true} if the startup was ended by this call
+   */
+  public boolean finish() {
+    return end.compareAndSet(0, Math.max(1, System.nanoTime() - origin));
+  }
+
+  /**
+   * @return whether the startup has ended
+   */
+  public boolean finished() {
+    return end.get() != 0;
+  }
+
+  /**
+   * @return how long the startup took, or has been taking if it hasn't ended yet
+   */
+  public Duration total() {
+    long nanos = end.get();
+    return Duration.ofNanos(nanos != 0 ? nanos : System.nanoTime() - origin);
+  }
+
+  /**
+   * Runs the given action as a phase of the startup.
+   *
+   * @param name   the name of the phase
+   * @param action the action to run
+   * @return the result of the action
+   */
+  public <T> T measure(String name, Supplier<T> action) {
+    if (finished()) {
+      return action.get();
+    }
+    long allocated = allocatedBytes();
+    long start = System.nanoTime();
+    try {
+      return action.get();
+    } finally {
+      long duration = System.nanoTime() - start;
+      long allocatedAfter = allocatedBytes();
+      measures.add(new Measure(name, Thread.currentThread().getName(), start - origin, duration,
+        allocated < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocated));
+    }
+  }
+
+  // virtual threads have no allocation count
+  private long allocatedBytes() {
+    return threads != null ? threads.getCurrentThreadAllocatedBytes() : -1;
+  }
+
+  /**
+   * Runs the given action as a phase of the startup.
+   *
+   * @param name   the name of the phase
+   * @param action the action to run
+   */
+  public void measure(String name, Runnable action) {
+    measure(name, () -> {
+      action.run();
+      return null;
+    });
+  }
+
+  /**
+   * Records that a phase had to wait for another one to finish.
+   *
+   * @param phase      the name of the phase that waited
+   * @param dependency the name of the phase it waited for
+   */
+  public void dependency(String phase, String dependency) {
+    dependencies.computeIfAbsent(phase, name -> ConcurrentHashMap.newKeySet()).add(dependency);
+  }
+
+  /**
+   * @return the phases measured so far, in the order they started
+   */
+  public List<Phase> phases() {
+    return measures.stream()
+      .map(measure -> new Phase(
+        measure.name(),
+        measure.thread(),
+        Duration.ofNanos(measure.start()),
+        Duration.ofNanos(measure.duration()),
+        measure.allocated(),
+        Set.copyOf(dependencies.getOrDefault(measure.name(), Set.of()))
+      ))
+      .sorted(Comparator.comparing(Phase::start))
+      .toList();
+  }
+
+  /**
+   * Finds the chain of phases that determined when the startup ended: starting from the phase
+   * that ended last, each phase is preceded by the dependency that ended last.
+   *
+   * @return the phases of the critical path, in the order they ran
+   */
+  public List<Phase> criticalPath() {
+    List<Phase> phases = phases();
+    List<Phase> path = new ArrayList<>();
+    Phase current = phases.stream().max(Comparator.comparing(Phase::end)).orElse(null);
+    while (current != null && !path.contains(current)) {
+      path.addFirst(current);
+      Set<String> names = current.dependencies();
+      current = phases.stream()
+        .filter(phase -> names.contains(phase.name()))
+        .max(Comparator.comparing(Phase::end))
+        .orElse(null);
+    }
+    return path;
+  }
+
+  private record Measure(String name, String thread, long start, long duration, long allocated) {
+
+  }
+
+  /**
+   * A phase of the startup.
+   *
+   * @param name         the name of the phase
+   * @param thread       the thread that ran the phase
+   * @param start        when the phase started, relative to the creation of the profiler
+   * @param duration     how long the phase took
+   * @param allocated    the bytes allocated by the phase, or {@code -1} if they weren't recorded
+   * @param dependencies the names of the phases this one had to wait for
+   */
+  public record Phase(String name, String thread, Duration start, Duration duration, long allocated,
+                      Set<String> dependencies) {
+
+    public Duration end() {
+      return start.plus(duration);
+    }
+
+  }
+
+}
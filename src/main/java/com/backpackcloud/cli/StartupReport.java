@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A snapshot of the phases recorded by a {@link StartupProfiler}, with times in milliseconds
+ * so it can be serialized as it is.
+ *
+ * @param launchMillis   how long the JVM had been running when the profiler was created, or
+ *                       {@code null} if it wasn't recorded
+ * @param totalMillis    how long the startup took
+ * @param phases         the phases, in the order they started
+ * @param criticalPath   the names of the phases in the critical path
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public record StartupReport(Double launchMillis, double totalMillis, List<Entry> phases,
+                            List<String> criticalPath) implements Displayable {
+
+  public static StartupReport of(StartupProfiler profiler) {
+    Double launch = profiler.launch()
+      .map(StartupReport::millis)
+      .orElse(null);
+    List<Entry> phases = profiler.phases().stream()
+      .map(phase -> new Entry(
+        phase.name(),
+        phase.thread(),
+        millis(phase.start()),
+        millis(phase.duration()),
+        phase.allocated() < 0 ? null : phase.allocated(),
+        phase.dependencies()
+      ))
+      .toList();
+    List<String> criticalPath = profiler.criticalPath().stream()
+      .map(StartupProfiler.Phase::name)
+      .toList();
+    return new StartupReport(launch, millis(profiler.total()), phases, criticalPath);
+  }
+
+  private static double millis(Duration duration) {
+    return duration.toNanos() / 1_000_000.0;
+  }
+
+  @Override
+  public void toDisplay(Writer writer) {
+    writer.withStyle("startup_label").write("startup: ")
+      .withStyle("startup_value").write(format(totalMillis));
+    if (launchMillis != null) {
+      writer.withStyle("startup_detail").write(" (plus " + format(launchMillis) + " launching the JVM)");
+    }
+    writer.newLine();
+    writer.withStyle("startup_label").writeln(String.format("%-32s %-24s %12s %12s %12s",
+      "phase", "thread", "start", "duration", "allocated"));
+    for (Entry phase : phases) {
+      writer.withStyle(criticalPath.contains(phase.name()) ? "startup_critical" : "startup_value")
+        .write(String.format("%-32s ", phase.name()))
+        .withStyle("startup_detail").write(String.format("%-24s ", phase.thread()))
+        .withStyle("startup_value").write(String.format("%12s %12s %12s",
+          format(phase.startMillis()),
+          format(phase.durationMillis()),
+          phase.allocatedBytes() != null ? formatBytes(phase.allocatedBytes()) : "-"))
+        .newLine();
+    }
+    writer.withStyle("startup_label").write("critical path: ")
+      .withStyle("startup_critical").writeln(String.join(" -> ", criticalPath));
+  }
+
+  private static String format(double millis) {
+    return String.format(Locale.ROOT, "%.2f ms", millis);
+  }
+
+  private static String formatBytes(long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+    if (bytes < 1024 * 1024) {
+      return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+    }
+    return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+  }
+
+  /**
+   * A phase of the startup.
+   *
+   * @param name           the name of the phase
+   * @param thread         the thread that ran the phase
+   * @param startMillis    when the phase started, relative to the creation of the profiler
+   * @param durationMillis how long the phase took
+   * @param allocatedBytes the bytes allocated by the phase, or {@code null} if not recorded
+   * @param dependencies   the names of the phases this one had to wait for
+   */
+  public record Entry(String name, String thread, double startMillis, double durationMillis,
+                      Long allocatedBytes, Set<String> dependencies) {
+
+  }
+
+}
@@ -41,30 +41,42 @@ public class Writer {
   private final AttributedStyle style;
   private final BiFunction<String, AttributedStyle, AttributedString> createTextFunction;
   private final Consumer<AttributedString> delegate;
-  private final Terminal terminal;
+  private final Runnable flusher;
 
   public Writer(Theme theme,
                 AttributedStyle style,
                 BiFunction<String, AttributedStyle, AttributedString> createTextFunction,
                 Consumer<AttributedString> delegate,
                 Terminal terminal) {
+    this(theme, style, createTextFunction, delegate, terminal::flush);
+  }
+
+  public Writer(Theme theme,
+                AttributedStyle style,
+                BiFunction<String, AttributedStyle, AttributedString> createTextFunction,
+                Consumer<AttributedString> delegate,
+                Runnable flusher) {
     this.theme = theme;
     this.style = style;
     this.createTextFunction = createTextFunction;
     this.delegate = delegate;
-    this.terminal = terminal;
+    this.flusher = flusher;
   }
 
   public StyleBuilder<Writer> style() {
     return new StyleBuilder<>(
       AttributedStyle.DEFAULT,
       theme.colorMap(),
-      newStyle -> new Writer(theme, newStyle, createTextFunction, delegate, terminal)
+      newStyle -> new Writer(theme, newStyle, createTextFunction, delegate, flusher)
     );
   }
 
   public Writer withStyle(AttributedStyle newStyle) {
-    return new Writer(theme, newStyle, createTextFunction, delegate, terminal);
+    return new Writer(theme, newStyle, createTextFunction, delegate, flusher);
+  }
+
+  public Writer withDelegate(Consumer<AttributedString> newDelegate) {
+    return new Writer(theme, style, createTextFunction, newDelegate, flusher);
   }
 
   public Writer withStyle(String style) {
@@ -104,7 +116,17 @@ public class Writer {
 
   public Writer newLine() {
     write("\n");
-    terminal.flush();
+    flusher.run();
+    return this;
+  }
+
+  public Writer write(AttributedString text) {
+    delegate.accept(text);
+    return this;
+  }
+
+  public Writer flush() {
+    flusher.run();
     return this;
   }
 
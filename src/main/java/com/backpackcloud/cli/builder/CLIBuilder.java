@@ -33,15 +33,26 @@ import com.backpackcloud.cli.Macro;
 import com.backpackcloud.cli.Module;
 import com.backpackcloud.cli.Preferences;
 import com.backpackcloud.cli.Registry;
+import com.backpackcloud.cli.StartupProfiler;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.Observe;
 import com.backpackcloud.cli.commands.AnnotatedCommand;
 import com.backpackcloud.cli.commands.ClearCommand;
 import com.backpackcloud.cli.commands.ExitCommand;
+import com.backpackcloud.cli.commands.ForeachCommand;
+import com.backpackcloud.cli.commands.LazyCommand;
 import com.backpackcloud.cli.commands.MacroCommand;
 import com.backpackcloud.cli.commands.PreferencesCommand;
+import com.backpackcloud.cli.commands.ProfileCommand;
 import com.backpackcloud.cli.commands.ShowErrorRegistryCommand;
+import com.backpackcloud.cli.commands.SourceCommand;
+import com.backpackcloud.cli.commands.StartupReportCommand;
 import com.backpackcloud.cli.commands.ThemeCommand;
 import com.backpackcloud.cli.ui.PromptWriter;
 import com.backpackcloud.cli.ui.Theme;
+import com.backpackcloud.cli.ui.components.FileSuggester;
+import com.backpackcloud.cli.ui.components.PersistentHistory;
+import com.backpackcloud.cli.ui.components.UsageIndex;
 import com.backpackcloud.cli.ui.prompt.CommandStatusPromptWriter;
 import com.backpackcloud.cli.ui.prompt.ErrorCountPromptWriter;
 import com.backpackcloud.cli.ui.prompt.PromptCharWriter;
@@ -53,43 +64,83 @@ import com.backpackcloud.preferences.Preference;
 import com.backpackcloud.preferences.PreferenceSpec;
 import com.backpackcloud.preferences.UserPreferences;
 import com.backpackcloud.reflection.Context;
+import org.jline.reader.History;
+import org.jline.reader.impl.history.DefaultHistory;
 import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
+import org.jline.terminal.impl.DumbTerminal;
 
 import java.io.IOException;
 import java.lang.reflect.Parameter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.backpackcloud.reflection.predicates.ParameterPredicates.ofType;
 
 public class CLIBuilder {
 
   private final SerialBitter serialBitter;
-  private final Terminal terminal;
+  private final StartupProfiler profiler;
+  private final ComponentGraph components;
+  private final Map<ComponentGraph.Node<?>, Class<?>> pendingComponents;
+  private final ComponentGraph.Node<Terminal> terminal;
   private final UserPreferences userPreferences;
-  private final Theme theme;
+  private final ComponentGraph.Node<Theme> theme;
   private final ErrorRegistry errorRegistry;
   private final List<Registry> registries;
   private final List<Command> commands;
   private final List<PromptWriter> leftPromptWriters;
   private final List<PromptWriter> rightPromptWriters;
+  private final List<String[]> trainingCommands;
   private final Context context;
   private final EventBus eventBus;
+  private final FileSuggester fileSuggester;
+  private final boolean oneShot;
+
+  private History history;
+  private UsageIndex usageIndex;
+  private Path startupScript;
+  private Path trainingScript;
 
   public CLIBuilder(SerialBitter serialBitter) {
+    this(serialBitter, false);
+  }
+
+  private CLIBuilder(SerialBitter serialBitter, boolean oneShot) {
     this.serialBitter = serialBitter;
-    this.terminal = createTerminal();
-    this.userPreferences = createUserPreferences();
-    this.theme = Theme.create(serialBitter);
+    this.oneShot = oneShot;
+    this.profiler = new StartupProfiler();
+    // a one-shot CLI has nothing slow enough to be worth another thread
+    this.components = new ComponentGraph(profiler, !oneShot);
+    this.pendingComponents = new LinkedHashMap<>();
+    this.terminal = components.add("terminal", Terminal.class, this::createTerminal);
+    this.theme = components.add("theme", Theme.class, () ->
+      oneShot ? Theme.lazy(serialBitter) : Theme.create(serialBitter));
+    if (!oneShot) {
+      // the terminal and the theme take the longest and depend on nothing
+      terminal.start();
+      theme.start();
+    }
+    this.userPreferences = profiler.measure("preferences", this::createUserPreferences);
     this.errorRegistry = new ErrorRegistry();
     this.commands = new ArrayList<>();
     this.leftPromptWriters = new ArrayList<>();
     this.rightPromptWriters = new ArrayList<>();
+    this.trainingCommands = new ArrayList<>();
     this.context = new Context();
     this.eventBus = new EventBus();
+    // a single suggester for the whole CLI, so all sessions share the same directory watcher
+    this.fileSuggester = new FileSuggester();
+    this.history = new DefaultHistory();
+    this.usageIndex = new UsageIndex();
 
     this.registries = new ArrayList<>();
     this.registries.add(errorRegistry);
@@ -100,9 +151,13 @@ public class CLIBuilder {
   private void initializeContext() {
     addComponent(serialBitter, SerialBitter.class, Serializer.class, Deserializer.class);
     addComponent(userPreferences, UserPreferences.class);
-    addComponent(theme, Theme.class);
-    addComponent(errorRegistry, ErrorRegistry.class);
+    addComponent(Theme.class, theme);
+    pendingComponents.put(theme, Theme.class);
+    // errors are recorded by the session, listening to them would mix the errors of all sessions
+    this.context.when(ofType(ErrorRegistry.class), errorRegistry);
+    this.serialBitter.addDependency(ErrorRegistry.class, errorRegistry);
     addComponent(eventBus, EventBus.class);
+    addComponent(fileSuggester, FileSuggester.class);
     addComponent(
       Preference.class,
       parameter -> userPreferences.find(parameter.getName())
@@ -121,13 +176,33 @@ public class CLIBuilder {
     return this;
   }
 
+  /**
+   * Adds a component of the given type. The component is created when the CLI is built, along
+   * with the other components that don't depend on it, unless something needs it before that.
+   *
+   * @param componentType the type of the component
+   * @return this builder
+   */
   public CLIBuilder addComponent(Class<?> componentType) {
-    return addComponent(create(componentType), componentType);
+    return addPendingComponent(componentType);
+  }
+
+  private <T> CLIBuilder addPendingComponent(Class<T> componentType) {
+    ComponentGraph.Node<T> node = components.add("component " + componentType.getSimpleName(), componentType,
+      () -> create(componentType));
+    this.pendingComponents.put(node, componentType);
+    return addComponent(componentType, node);
   }
 
   public CLIBuilder addComponent(Object component, Class... componentTypes) {
     for (Class type : componentTypes) {
       this.context.when(ofType(type), component);
+    }
+    return register(component, componentTypes);
+  }
+
+  private CLIBuilder register(Object component, Class<?>... componentTypes) {
+    for (Class type : componentTypes) {
       this.serialBitter.addDependency(type, component);
     }
 
@@ -135,7 +210,7 @@ public class CLIBuilder {
       this.registries.add(registry);
     }
 
-    this.eventBus.scan(component);
+    profiler.measure("scan " + component.getClass().getSimpleName(), () -> eventBus.scan(component));
 
     return this;
   }
@@ -157,12 +232,36 @@ public class CLIBuilder {
     return this;
   }
 
+  /**
+   * Adds a command of the given class. If the class is annotated with {@link CommandDefinition},
+   * only its definition is read here and the command is created the first time it's used.
+   * Commands observing events are always created right away, since they must be listening
+   * from the start.
+   *
+   * @param commandClass the class of the command
+   * @return this builder
+   * @see LazyCommand
+   */
   public CLIBuilder addCommand(Class<?> commandClass) {
+    Command command = profiler.measure("command " + commandClass.getSimpleName(), () -> {
+      if (commandClass.isAnnotationPresent(CommandDefinition.class) && !observesEvents(commandClass)) {
+        return new LazyCommand(commandClass, () -> createCommand(commandClass));
+      }
+      return createCommand(commandClass);
+    });
+    return addCommand(command);
+  }
+
+  private Command createCommand(Class<?> commandClass) {
     Object command = create(commandClass);
     if (command instanceof Command c) {
-      return addCommand(c);
+      return c;
     }
-    return addCommand(new AnnotatedCommand(command, eventBus, userPreferences, terminal));
+    return new AnnotatedCommand(command, eventBus, userPreferences, terminal.get());
+  }
+
+  private boolean observesEvents(Class<?> type) {
+    return Stream.of(type.getMethods()).anyMatch(method -> method.isAnnotationPresent(Observe.class));
   }
 
   public CLIBuilder addCommand(Command command) {
@@ -171,8 +270,9 @@ public class CLIBuilder {
   }
 
   public CLIBuilder addCommand(Object command) {
-    this.commands.add(new AnnotatedCommand(command, eventBus, userPreferences, terminal));
-    return this;
+    Command annotated = profiler.measure("command " + command.getClass().getSimpleName(), () ->
+      new AnnotatedCommand(command, eventBus, userPreferences, terminal.get()));
+    return addCommand(annotated);
   }
 
   public CLIBuilder addMacro(Macro macro) {
@@ -229,9 +329,61 @@ public class CLIBuilder {
     return this;
   }
 
+  public CLIBuilder historyFile(Path file) {
+    return historyFile(file, PersistentHistory.DEFAULT_MAX_SIZE);
+  }
+
+  public CLIBuilder historyFile(Path file, int maxSize) {
+    this.history = new PersistentHistory(file, maxSize);
+    return this;
+  }
+
+  public CLIBuilder usageFile(Path file) {
+    this.usageIndex = new UsageIndex(file);
+    return this;
+  }
+
+  /**
+   * Sets a script to run when the CLI starts. Nothing is run if the file doesn't exist.
+   *
+   * @param file the script file
+   * @return this builder
+   */
+  public CLIBuilder startupScript(Path file) {
+    this.startupScript = file;
+    return this;
+  }
+
+  /**
+   * Adds a command line to run when the CLI is started for training, so the classes it
+   * needs end up in the class data sharing archive dumped by the training run.
+   *
+   * @param words the words of the command line, starting with the command name
+   * @return this builder
+   * @see CLI#TRAINING_PROPERTY
+   */
+  public CLIBuilder addTrainingCommand(String... words) {
+    this.trainingCommands.add(words);
+    return this;
+  }
+
+  /**
+   * Sets a script to run when the CLI is started for training, after the training commands.
+   * Nothing is run if the file doesn't exist.
+   *
+   * @param file the script file
+   * @return this builder
+   * @see #addTrainingCommand(String...)
+   */
+  public CLIBuilder trainingScript(Path file) {
+    this.trainingScript = file;
+    return this;
+  }
+
   public CLIBuilder addDefaultRightPrompts() {
     addRightPrompt(CommandStatusPromptWriter.class);
-    addRightPrompt(ErrorCountPromptWriter.class);
+    // created here, so the deprecated constructor taking a shared registry is never picked
+    addRightPrompt(new ErrorCountPromptWriter());
     addRightPrompt(TimerPromptWriter.class);
     return this;
   }
@@ -243,8 +395,27 @@ public class CLIBuilder {
     return preferences;
   }
 
+  /**
+   * Creates a builder for a CLI that will only {@link CLI#run(String...) run} a single
+   * command line and exit.
+   * <p>
+   * The CLI gets a dumb terminal over the standard streams, loads the theme only if
+   * something styled is printed and has no prompt. The line reader, the highlighter and
+   * the completer are never built unless the CLI is started.
+   *
+   * @param serialBitter the serializer for the theme and components
+   * @return a new builder for a one-shot CLI
+   */
+  public static CLIBuilder oneShot(SerialBitter serialBitter) {
+    return new CLIBuilder(serialBitter, true);
+  }
+
   private Terminal createTerminal() {
     try {
+      if (oneShot) {
+        // skips the provider lookup done by the terminal builder
+        return new DumbTerminal("zipper", Terminal.TYPE_DUMB, System.in, System.out, StandardCharsets.UTF_8);
+      }
       return TerminalBuilder.builder()
         .system(true)
         .build();
@@ -255,7 +426,10 @@ public class CLIBuilder {
 
   private void initializeCommands() {
     addCommand(new ClearCommand(this.registries));
-    addCommands(ExitCommand.class, PreferencesCommand.class, ShowErrorRegistryCommand.class, ThemeCommand.class);
+    addCommands(ExitCommand.class, ForeachCommand.class, PreferencesCommand.class, ProfileCommand.class, SourceCommand.class, StartupReportCommand.class, ThemeCommand.class);
+    // not injected, the errors shown must come from the session running the command
+    addCommand(new LazyCommand(ShowErrorRegistryCommand.class, () ->
+      new AnnotatedCommand(new ShowErrorRegistryCommand(), eventBus, userPreferences, terminal.get())));
   }
 
   private void initializeLeftPrompt() {
@@ -266,15 +440,45 @@ public class CLIBuilder {
     addDefaultRightPrompts();
   }
 
+  /**
+   * @return the profiler recording the startup phases of the CLI being built
+   */
+  public StartupProfiler startupProfiler() {
+    return profiler;
+  }
+
   public CLI build() {
+    profiler.dependency("build", "preferences");
+    return profiler.measure("build", this::createCLI);
+  }
+
+  private CLI createCLI() {
+    components.initialize("build");
+    pendingComponents.forEach((node, type) -> register(node.get(), type));
+    pendingComponents.clear();
     CLI cli = new CLI(
-      terminal,
+      terminal.get(),
       userPreferences,
-      theme,
-      eventBus
+      theme.get(),
+      eventBus,
+      history,
+      usageIndex,
+      errorRegistry,
+      profiler,
+      fileSuggester
     );
     initializeCommands();
     commands.forEach(cli::register);
+    if (startupScript != null && Files.isRegularFile(startupScript)) {
+      cli.addStartupCommand("source", startupScript.toString());
+    }
+    trainingCommands.forEach(cli::addTrainingCommand);
+    if (trainingScript != null && Files.isRegularFile(trainingScript)) {
+      cli.addTrainingCommand("source", trainingScript.toString());
+    }
+    if (oneShot) {
+      return cli;
+    }
     if (leftPromptWriters.isEmpty()) {
       initializeLeftPrompt();
     }
@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.builder;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.StartupProfiler;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The components of a builder that are still to be created. The dependencies between them
+ * are taken from the parameters of their constructors, so each component can be created on
+ * its own virtual thread as soon as the ones it depends on are ready, while the independent
+ * ones are created at the same time.
+ * <p>
+ * A component needed before the graph is initialized is created right away by the thread
+ * that needs it.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class ComponentGraph {
+
+  private final StartupProfiler profiler;
+  private final boolean concurrent;
+  private final List<Node<?>> nodes;
+
+  /**
+   * @param profiler   the profiler recording the creation of each component
+   * @param concurrent whether the components should be created at the same time, otherwise
+   *                   they're all created by the thread that initializes the graph
+   */
+  ComponentGraph(StartupProfiler profiler, boolean concurrent) {
+    this.profiler = profiler;
+    this.concurrent = concurrent;
+    this.nodes = new ArrayList<>();
+  }
+
+  /**
+   * Adds a component to the graph.
+   *
+   * @param name    the name of the startup phase that creates the component
+   * @param type    the type of the component, whose constructors tell its dependencies
+   * @param factory the function that creates the component
+   * @return the node of the component, which gives the component once it's created
+   */
+  <T> Node<T> add(String name, Class<T> type, Supplier<T> factory) {
+    Node<T> node = new Node<>(name, type, factory);
+    nodes.add(node);
+    return node;
+  }
+
+  /**
+   * Creates every component not created yet and waits for all of them.
+   *
+   * @param phase the name of the startup phase waiting for the components
+   */
+  void initialize(String phase) {
+    List<Node<?>> pending = List.copyOf(nodes);
+    nodes.clear();
+    for (Node<?> node : pending) {
+      checkCycles(node, pending, new LinkedHashSet<>());
+    }
+    for (Node<?> node : pending) {
+      List<Node<?>> dependencies = dependenciesOf(node, pending);
+      dependencies.forEach(dependency -> profiler.dependency(node.name, dependency.name));
+      if (concurrent) {
+        CompletableFuture.allOf(dependencies.stream()
+            .map(dependency -> dependency.instance)
+            .toArray(CompletableFuture[]::new))
+          .whenComplete((result, error) -> node.start());
+      }
+    }
+    for (Node<?> node : pending) {
+      profiler.dependency(phase, node.name);
+      node.get();
+    }
+  }
+
+  private List<Node<?>> dependenciesOf(Node<?> node, List<Node<?>> candidates) {
+    Set<Class<?>> types = constructorsOf(node.type)
+      .flatMap(constructor -> Stream.of(constructor.getParameters()))
+      .map(Parameter::getType)
+      .collect(Collectors.toSet());
+    return candidates.stream()
+      .filter(candidate -> candidate != node)
+      .filter(candidate -> types.stream().anyMatch(type -> type.isAssignableFrom(candidate.type)))
+      .collect(Collectors.toList());
+  }
+
+  private Stream<Constructor<?>> constructorsOf(Class<?> type) {
+    Constructor<?>[] constructors = type.getConstructors();
+    return Stream.of(constructors.length > 0 ? constructors : type.getDeclaredConstructors());
+  }
+
+  private void checkCycles(Node<?> node, List<Node<?>> candidates, Set<Node<?>> path) {
+    if (!path.add(node)) {
+      throw new UnbelievableException("Circular dependency between components: " + path.stream()
+        .map(visited -> visited.name)
+        .collect(Collectors.joining(" -> ")) + " -> " + node.name);
+    }
+    for (Node<?> dependency : dependenciesOf(node, candidates)) {
+      checkCycles(dependency, candidates, path);
+    }
+    path.remove(node);
+  }
+
+  /**
+   * A component that is created only once, either on its own virtual thread or by the
+   * first thread that needs it.
+   */
+  class Node<T> implements Supplier<T> {
+
+    private final String name;
+    private final Class<T> type;
+    private final Supplier<T> factory;
+    private final CompletableFuture<T> instance;
+    private final AtomicReference<Thread> creator;
+
+    private Node(String name, Class<T> type, Supplier<T> factory) {
+      this.name = name;
+      this.type = type;
+      this.factory = factory;
+      this.instance = new CompletableFuture<>();
+      this.creator = new AtomicReference<>();
+    }
+
+    /**
+     * Starts creating the component on its own thread, unless it's already being created. The
+     * thread is a virtual one, unless the profiler is recording allocations.
+     */
+    void start() {
+      Thread.Builder builder = profiler.tracksAllocations() ? Thread.ofPlatform() : Thread.ofVirtual();
+      Thread thread = builder.name("zipper-" + name).unstarted(this::create);
+      if (creator.compareAndSet(null, thread)) {
+        thread.start();
+      }
+    }
+
+    @Override
+    public T get() {
+      Thread current = Thread.currentThread();
+      if (creator.compareAndSet(null, current)) {
+        create();
+      } else if (creator.get() == current && !instance.isDone()) {
+        throw new UnbelievableException("Component " + name + " depends on itself");
+      }
+      try {
+        return instance.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw new UnbelievableException(e.getCause());
+      }
+    }
+
+    private void create() {
+      try {
+        instance.complete(profiler.measure(name, factory));
+      } catch (Throwable e) {
+        instance.completeExceptionally(e);
+      }
+    }
+
+  }
+
+}
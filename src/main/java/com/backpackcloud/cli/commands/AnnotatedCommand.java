@@ -5,7 +5,13 @@ import com.backpackcloud.cli.Command;
 import com.backpackcloud.cli.CommandContext;
 import com.backpackcloud.cli.CommandInput;
 import com.backpackcloud.cli.Displayable;
+import com.backpackcloud.cli.ErrorRegistry;
 import com.backpackcloud.cli.EventBus;
+import com.backpackcloud.cli.OutputFormat;
+import com.backpackcloud.cli.Pipe;
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.cli.RecordWriter;
+import com.backpackcloud.cli.Session;
 import com.backpackcloud.cli.Writer;
 import com.backpackcloud.cli.annotations.Action;
 import com.backpackcloud.cli.annotations.CommandDefinition;
@@ -15,9 +21,11 @@ import com.backpackcloud.cli.annotations.Paginate;
 import com.backpackcloud.cli.annotations.ParameterCount;
 import com.backpackcloud.cli.annotations.ParameterSuggestion;
 import com.backpackcloud.cli.annotations.ParameterSuggestions;
+import com.backpackcloud.cli.annotations.PipedInput;
 import com.backpackcloud.cli.annotations.PreferenceValue;
 import com.backpackcloud.cli.ui.Paginator;
 import com.backpackcloud.cli.ui.Suggestion;
+import com.backpackcloud.cli.ui.components.FuzzyIndex;
 import com.backpackcloud.cli.ui.components.PromptSuggestion;
 import com.backpackcloud.preferences.Preference;
 import com.backpackcloud.preferences.UserPreferences;
@@ -27,16 +35,20 @@ import com.backpackcloud.reflection.predicates.ParameterPredicates;
 import com.backpackcloud.text.InputValue;
 import org.jline.terminal.Terminal;
 
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
 import java.lang.reflect.Executable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -57,6 +69,7 @@ public class AnnotatedCommand implements Command {
 
   private final Map<String, CommandAction> actions;
   private final Map<String, Method> suggestions;
+  private final FuzzyIndex actionIndex;
 
   public AnnotatedCommand(Object command,
                           EventBus eventBus,
@@ -73,6 +86,7 @@ public class AnnotatedCommand implements Command {
     this.definition = commandClass.getAnnotation(CommandDefinition.class);
     this.actions = new HashMap<>();
     this.suggestions = new HashMap<>();
+    this.actionIndex = new FuzzyIndex();
     initialize();
     initializeSuggestions();
   }
@@ -87,6 +101,7 @@ public class AnnotatedCommand implements Command {
           name = actionMethod.getName();
         }
         actions.put(name, new CommandAction(name, actionMethod, inputParameters));
+        actionIndex.add(name);
       });
   }
 
@@ -135,23 +150,35 @@ public class AnnotatedCommand implements Command {
 
   @Override
   public void execute(CommandContext context) {
+    execute(context, Collections.emptyMap());
+  }
+
+  @Override
+  public void execute(CommandContext context, Map<String, Object> arguments) {
     List<InputValue> input = context.input().words();
     // no need to check anything if there's only one action
     if (actions.size() == 1) {
-      invokeAction(context, actions.values().iterator().next().actionMethod, input);
+      invokeAction(context, actions.values().iterator().next(), arguments, input);
     } else {
       if (input.isEmpty()) {
         throw new UnbelievableException("No action given");
       }
       String actionName = input.getFirst().get();
       if (actions.containsKey(actionName)) {
-        invokeAction(context, actions.get(actionName).actionMethod, input.size() > 1 ? input.subList(1, input.size()) : Collections.emptyList());
+        invokeAction(context, actions.get(actionName), arguments, input.size() > 1 ? input.subList(1, input.size()) : Collections.emptyList());
       } else {
         throw new UnbelievableException("Action " + actionName + " not recognized");
       }
     }
   }
 
+  @Override
+  public Map<String, List<String>> actions() {
+    Map<String, List<String>> result = new TreeMap<>();
+    actions.forEach((name, action) -> result.put(name, action.inputParameters()));
+    return result;
+  }
+
   @Override
   public List<Suggestion> suggest(CommandInput commandInput) {
     List<InputValue> inputWords = new ArrayList<>(commandInput.words());
@@ -174,7 +201,10 @@ public class AnnotatedCommand implements Command {
         }
       }
     } else if (actions.size() > 1) {
-      return actions.keySet().stream()
+      Stream<String> names = preferences.isEnabled(Preferences.FUZZY_COMPLETION) ?
+        actionIndex.search(actionName).stream() :
+        actions.keySet().stream();
+      return names
         .map(PromptSuggestion::suggest)
         .collect(Collectors.toList());
     }
@@ -194,8 +224,20 @@ public class AnnotatedCommand implements Command {
       .collect(Collectors.toList());
   }
 
-  private void invokeAction(CommandContext commandContext, Method actionMethod, List<InputValue> words) {
-    Object[] args = resolveArgs(commandContext, Collections.emptyMap(), words, actionMethod);
+  private void invokeAction(CommandContext commandContext, CommandAction action, Map<String, Object> arguments, List<InputValue> words) {
+    Method actionMethod = action.actionMethod();
+    for (String name : arguments.keySet()) {
+      if (!action.inputParameters().contains(name)) {
+        throw new UnbelievableException("Action " + action.name() + " has no parameter " + name);
+      }
+    }
+
+    if (commandContext.inputPipe().isPresent() && Stream.of(actionMethod.getParameters())
+      .noneMatch(ParameterPredicates.annotatedWith(PipedInput.class))) {
+      throw new UnbelievableException("Command " + name() + " doesn't accept piped input");
+    }
+
+    Object[] args = resolveArgs(commandContext, arguments, words, actionMethod);
 
     Object returnValue;
 
@@ -209,9 +251,18 @@ public class AnnotatedCommand implements Command {
       throw new UnbelievableException(e);
     }
 
-    if (actionMethod.isAnnotationPresent(Paginate.class)) {
+    if (commandContext.outputPipe().isPresent()) {
+      sendReturn(commandContext.outputPipe().get(), returnValue);
+    } else if (commandContext.outputFormat() != OutputFormat.TEXT) {
+      if (returnValue != null) {
+        try (RecordWriter records = commandContext.recordWriter()) {
+          writeRecords(records, returnValue);
+        }
+      }
+    } else if (actionMethod.isAnnotationPresent(Paginate.class)) {
       Paginate annotation = actionMethod.getAnnotation(Paginate.class);
-      Paginator paginator = new Paginator(preferences, terminal, commandContext);
+      Session session = commandContext.session();
+      Paginator paginator = new Paginator(session.preferences(), session.terminal(), commandContext);
 
       if (returnValue instanceof List<?> returnList) {
         paginator.from(returnList)
@@ -247,6 +298,30 @@ public class AnnotatedCommand implements Command {
     }
   }
 
+  private void sendReturn(Pipe pipe, Object value) {
+    if (value instanceof Stream<?> stream) {
+      try (stream) {
+        stream.forEach(pipe::send);
+      }
+    } else if (value instanceof Iterable<?> iterable) {
+      iterable.forEach(pipe::send);
+    } else {
+      pipe.send(value);
+    }
+  }
+
+  private void writeRecords(RecordWriter records, Object value) {
+    if (value instanceof Stream<?> stream) {
+      try (stream) {
+        stream.forEach(records::write);
+      }
+    } else if (value instanceof Iterable<?> iterable) {
+      iterable.forEach(records::write);
+    } else {
+      records.write(value);
+    }
+  }
+
   private Object[] resolveArgs(CommandContext commandContext, Map<String, Object> valuesMap, List<InputValue> commandInputs, Executable executable) {
     Iterator<InputValue> inputIterator = commandInputs.iterator();
     Supplier<String> inputSupplier = () -> {
@@ -267,17 +342,27 @@ public class AnnotatedCommand implements Command {
       }
     });
 
+    // commands run in a session use its preferences and terminal
+    UserPreferences preferences = commandContext != null ? commandContext.session().preferences() : this.preferences;
+    Terminal terminal = commandContext != null ? commandContext.session().terminal() : this.terminal;
+
     if (commandContext != null) {
+      Session session = commandContext.session();
       context
         .when(ofType(CommandContext.class), commandContext)
-        .when(ofType(Writer.class), commandContext::writer);
+        .when(ofType(Session.class), session)
+        .when(ofType(UserPreferences.class), session::preferences)
+        .when(ofType(ErrorRegistry.class), session::errors)
+        .when(ofType(Writer.class), commandContext::writer)
+        .when(ParameterPredicates.annotatedWith(PipedInput.class), parameter ->
+          commandContext.inputPipe().map(pipe -> pipedInput(pipe, parameter.getType())).orElse(null));
     }
 
     valuesMap.forEach((key, value) ->
       context.when(parameter -> parameter.isAnnotationPresent(InputParameter.class) &&
           (parameter.getAnnotation(InputParameter.class).value().equals(key) ||
             (parameter.getAnnotation(InputParameter.class).value().isEmpty() && parameter.getName().equals(key))),
-        parameter -> value));
+        parameter -> convert(parameter.getType(), value)));
 
     context
       .when(ofType(Preference.class), parameter -> preferences.find(resolvePreferenceId(parameter.getName()))
@@ -317,6 +402,53 @@ public class AnnotatedCommand implements Command {
     return context.resolve(executable.getParameters());
   }
 
+  // named arguments may come as plain values (from JSON, for instance) instead of the parameter type
+  private Object convert(Class<?> type, Object value) {
+    if (value == null || type.isInstance(value)) {
+      return value;
+    }
+    if (type.isArray() && value instanceof Collection<?> values) {
+      Object array = Array.newInstance(type.getComponentType(), values.size());
+      int index = 0;
+      for (Object element : values) {
+        Array.set(array, index++, convert(type.getComponentType(), element));
+      }
+      return array;
+    }
+    String text = String.valueOf(value);
+    if (type == InputValue.class) {
+      return InputValue.of(text);
+    }
+    if (type.isEnum()) {
+      return InputValue.of(text).asEnum(type.asSubclass(Enum.class))
+        .orElseThrow(() -> new UnbelievableException("Invalid value " + text + " for " + type.getSimpleName()));
+    }
+    Class<?> boxed = MethodType.methodType(type).wrap().returnType();
+    if (boxed.isInstance(value)) {
+      return value;
+    }
+    try {
+      Method valueOf = boxed.getDeclaredMethod("valueOf", String.class);
+      return valueOf.invoke(null, text);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new UnbelievableException("Unable to bind " + text + " to " + type.getSimpleName());
+    } catch (InvocationTargetException e) {
+      throw new UnbelievableException(e.getTargetException());
+    }
+  }
+
+  private Object pipedInput(Pipe pipe, Class<?> type) {
+    if (type.isAssignableFrom(Stream.class)) {
+      return pipe.stream();
+    } else if (type.isAssignableFrom(Iterator.class)) {
+      return pipe.stream().iterator();
+    } else if (type.isAssignableFrom(Iterable.class)) {
+      Stream<Object> stream = pipe.stream();
+      return (Iterable<Object>) stream::iterator;
+    }
+    throw new UnbelievableException("Piped input must be bound to a Stream, an Iterator or an Iterable");
+  }
+
   private String resolvePreferenceId(String name) {
     StringBuilder result = new StringBuilder();
     for (int i = 0; i < name.length(); i++) {
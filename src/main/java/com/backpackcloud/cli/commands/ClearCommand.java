@@ -24,6 +24,7 @@
 
 package com.backpackcloud.cli.commands;
 
+import com.backpackcloud.cli.ErrorRegistry;
 import com.backpackcloud.cli.Registry;
 import com.backpackcloud.cli.annotations.Action;
 import com.backpackcloud.cli.annotations.CommandDefinition;
@@ -54,7 +55,10 @@ public class ClearCommand {
   }
 
   @Action
-  public void execute(@InputParameter String... args) {
+  public void execute(ErrorRegistry errors, @InputParameter String... args) {
+    // the errors belong to the session running the command
+    Map<String, Registry> registries = new HashMap<>(this.registries);
+    registries.put(errors.name(), errors);
     if (args.length == 0) {
       registries.values().forEach(Registry::clear);
     } else {
@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CommandLine;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.SyntaxError;
+import org.jline.reader.impl.DefaultParser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A command line with parameters in the form of {@code {index}} or
+ * {@code {index:default value}}, compiled once so it can be expanded many times.
+ * <p>
+ * The template is parsed when compiled, so an expansion only needs to fill the words
+ * with the arguments. Arguments that could change the structure of the line (like the
+ * ones containing spaces or quotes) make the expanded text go through the parser again,
+ * just as if it was typed. The same goes for every expansion of a template with such
+ * default values, since the parser would split them when compiling it.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public final class CommandTemplate {
+
+  private static final Pattern PARAMETER_PATTERN = Pattern.compile("\\{(?<parameter>[^}]+)}");
+
+  private final String template;
+  private final List<Segment> text;
+  private final List<Word> words;
+  private final boolean parsed;
+
+  private CommandTemplate(String template, List<Segment> text, List<Word> words, boolean parsed) {
+    this.template = template;
+    this.text = text;
+    this.words = words;
+    this.parsed = parsed;
+  }
+
+  public String template() {
+    return template;
+  }
+
+  /**
+   * Expands this template into a command line.
+   *
+   * @param args   the arguments to fill the parameters
+   * @param parser the parser to use if the arguments change the structure of the line
+   * @return the expanded command line
+   */
+  public ParsedLine expand(List<String> args, Function<String, ParsedLine> parser) {
+    if (words == null || (parsed && !args.stream().allMatch(CommandTemplate::isNeutral))) {
+      return parser.apply(expandText(args));
+    }
+    List<String> result = new ArrayList<>(words.size());
+    Set<Integer> literals = new HashSet<>();
+    StringBuilder word = new StringBuilder();
+    for (Word templateWord : words) {
+      word.setLength(0);
+      for (Segment segment : templateWord.segments()) {
+        segment.appendTo(word, args);
+      }
+      // just like the parser, empty words are discarded
+      if (!word.isEmpty()) {
+        if (templateWord.literal()) {
+          literals.add(result.size());
+        }
+        result.add(word.toString());
+      }
+    }
+    // quoted words stay quoted, so they are not taken as pipes or redirects
+    return new CommandLine(String.join(" ", result), result, Set.copyOf(literals));
+  }
+
+  /**
+   * Expands this template into text, without parsing it.
+   *
+   * @param args the arguments to fill the parameters
+   * @return the expanded text
+   */
+  public String expandText(List<String> args) {
+    StringBuilder result = new StringBuilder(template.length());
+    for (Segment segment : text) {
+      segment.appendTo(result, args);
+    }
+    return result.toString();
+  }
+
+  public static CommandTemplate compile(String template) {
+    List<Segment> text = segments(template);
+    if (!text.stream().allMatch(segment -> segment.index() < 0 || isNeutral(segment.value()))) {
+      return new CommandTemplate(template, text, null, true);
+    }
+    List<Word> words = new ArrayList<>();
+    try {
+      CommandLine parsed = CommandLine.of(new DefaultParser().parse(template, 0));
+      for (int i = 0; i < parsed.words().size(); i++) {
+        String word = parsed.words().get(i);
+        if (!word.isEmpty()) {
+          words.add(new Word(segments(word), parsed.isLiteral(i)));
+        }
+      }
+    } catch (SyntaxError e) {
+      // it can still be expanded as text
+      words = null;
+    }
+    return new CommandTemplate(template, text, words, true);
+  }
+
+  /**
+   * Creates a template out of words that were already parsed, like the arguments of a
+   * command. Each word is taken literally and the arguments are put in the words as they
+   * are, so neither the words nor the arguments are ever parsed again.
+   *
+   * @param words the words of the template
+   * @return the template
+   */
+  public static CommandTemplate of(List<String> words) {
+    String template = String.join(" ", words);
+    List<Word> templateWords = words.stream()
+      .map(word -> new Word(segments(word), true))
+      .toList();
+    return new CommandTemplate(template, segments(template), templateWords, false);
+  }
+
+  private static List<Segment> segments(String text) {
+    List<Segment> segments = new ArrayList<>();
+    Matcher matcher = PARAMETER_PATTERN.matcher(text);
+    int position = 0;
+    while (matcher.find()) {
+      if (matcher.start() > position) {
+        segments.add(new Segment(text.substring(position, matcher.start()), -1));
+      }
+      String[] split = matcher.group("parameter").split(":");
+      try {
+        int index = Integer.parseInt(split[0]);
+        segments.add(new Segment(split.length > 1 ? split[1] : "", index));
+      } catch (NumberFormatException e) {
+        throw new UnbelievableException("Invalid parameter " + matcher.group() + " in " + text);
+      }
+      position = matcher.end();
+    }
+    if (position < text.length()) {
+      segments.add(new Segment(text.substring(position), -1));
+    }
+    return segments;
+  }
+
+  private static boolean isNeutral(String arg) {
+    for (int i = 0; i < arg.length(); i++) {
+      char c = arg.charAt(i);
+      if (Character.isWhitespace(c) || c == '"' || c == '\'' || c == '\\') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A word of the template, which is literal if it was quoted or escaped.
+   */
+  private record Word(List<Segment> segments, boolean literal) {
+
+  }
+
+  /**
+   * Either a literal text (index is negative) or a parameter with its default value.
+   */
+  private record Segment(String value, int index) {
+
+    private void appendTo(StringBuilder builder, List<String> args) {
+      if (index < 0) {
+        builder.append(value);
+      } else if (args.size() > index) {
+        builder.append(args.get(index));
+      } else {
+        builder.append(value);
+      }
+    }
+
+  }
+
+}
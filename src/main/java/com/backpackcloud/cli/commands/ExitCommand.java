@@ -36,7 +36,7 @@ public class ExitCommand {
 
   @Action
   public void execute(CommandContext context) {
-    context.cli().stop();
+    context.session().stop();
   }
 
 }
@@ -0,0 +1,312 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CommandContext;
+import com.backpackcloud.cli.ErrorRegistry;
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.cli.Session;
+import com.backpackcloud.cli.Writer;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.InputParameter;
+import com.backpackcloud.cli.annotations.ParameterSuggestion;
+import com.backpackcloud.cli.ui.Suggestion;
+import com.backpackcloud.cli.ui.components.FileSuggester;
+import com.backpackcloud.preferences.UserPreferences;
+import org.jline.terminal.Terminal;
+import org.jline.utils.AttributedString;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs a command template for each input read from a file, from the standard input
+ * or from a range expansion. The input replaces the {@code {0}} parameter of the
+ * template or, if there's none, is added as its last argument.
+ * <p>
+ * Inputs are processed in virtual threads, at most {@link Preferences#FOREACH_PARALLELISM}
+ * at the same time. The output of each input is buffered and printed at once, either in
+ * the order of the inputs or as soon as they finish. When printing in order, an input
+ * that takes long holds the ones after it, which keeps the buffered outputs bounded.
+ * <p>
+ * Only the output of the commands goes to the command writer. The failures, the final
+ * summary and the progress are printed in the session console (the progress only if
+ * someone is there to see it), so they never end up in a redirected or piped output.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+@CommandDefinition(
+  name = "foreach",
+  description = "Runs a command for each input from a file, the standard input or a range"
+)
+public class ForeachCommand {
+
+  private static final Pattern RANGE_PATTERN = Pattern.compile(
+    "(?<from>-?\\d+)\\.\\.(?<to>-?\\d+)(\\.\\.(?<step>\\d+))?"
+  );
+  private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(2);
+
+  private final FileSuggester fileSuggester;
+
+  public ForeachCommand(FileSuggester fileSuggester) {
+    this.fileSuggester = fileSuggester;
+  }
+
+  @Action
+  public void file(CommandContext context,
+                   Writer writer,
+                   @InputParameter("file") String file,
+                   @InputParameter("command") String... command) {
+    if (file == null) {
+      throw new UnbelievableException("No file given");
+    }
+    try (Stream<String> lines = Files.lines(context.session().resolve(file))) {
+      run(context, writer, lines, command);
+    } catch (IOException | UncheckedIOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  @Action
+  public void stdin(CommandContext context,
+                    Writer writer,
+                    @InputParameter("command") String... command) {
+    // the input of the session terminal is not closed, it doesn't belong to this command
+    Terminal terminal = context.session().terminal();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(terminal.input(), terminal.encoding()));
+    run(context, writer, reader.lines(), command);
+  }
+
+  @Action
+  public void range(CommandContext context,
+                    Writer writer,
+                    @InputParameter("range") String range,
+                    @InputParameter("command") String... command) {
+    if (range == null) {
+      throw new UnbelievableException("No range given");
+    }
+    run(context, writer, expand(range), command);
+  }
+
+  @ParameterSuggestion(action = "file", parameter = "file")
+  public List<Suggestion> suggestFiles(@InputParameter("file") String file) {
+    return fileSuggester.suggest(file);
+  }
+
+  /**
+   * Expands a range like {@code 1..100}, {@code 100..1..5} or {@code 001..100} (which
+   * keeps the zeroes) or a list like {@code a,b,c}.
+   */
+  private Stream<String> expand(String range) {
+    Matcher matcher = RANGE_PATTERN.matcher(range);
+    if (!matcher.matches()) {
+      return Stream.of(range.split(","));
+    }
+    String from = matcher.group("from");
+    long start = Long.parseLong(from);
+    long end = Long.parseLong(matcher.group("to"));
+    long step = matcher.group("step") != null ? Long.parseLong(matcher.group("step")) : 1;
+    if (step == 0) {
+      throw new UnbelievableException("Invalid step in range " + range);
+    }
+    long count = Math.abs(end - start) / step + 1;
+    long direction = end >= start ? step : -step;
+    String format = from.startsWith("0") && from.length() > 1 ? "%0" + from.length() + "d" : "%d";
+    return LongStream.range(0, count)
+      .mapToObj(i -> String.format(format, start + i * direction));
+  }
+
+  private void run(CommandContext context, Writer writer, Stream<String> inputs, String[] command) {
+    if (command == null || command.length == 0) {
+      throw new UnbelievableException("No command given");
+    }
+    // the words were already parsed, joining and parsing them again would change them
+    List<String> words = new ArrayList<>(List.of(command));
+    if (words.stream().noneMatch(word -> word.contains("{0"))) {
+      words.add("{0}");
+    }
+
+    UserPreferences preferences = context.session().preferences();
+    Execution execution = new Execution(
+      context.session(),
+      writer,
+      CommandTemplate.of(words),
+      Math.max(1, preferences.get(Preferences.FOREACH_PARALLELISM).value()),
+      preferences.isEnabled(Preferences.FOREACH_ORDERED),
+      preferences.isEnabled(Preferences.FOREACH_FAIL_FAST)
+    );
+    execution.run(inputs.map(String::strip).filter(input -> !input.isEmpty()).iterator());
+  }
+
+  private static class Execution {
+
+    private final Session session;
+    private final Writer writer;
+    private final CommandTemplate template;
+    private final boolean ordered;
+    private final boolean failFast;
+
+    private final Semaphore permits;
+    private final Map<Long, List<AttributedString>> pending;
+    private final AtomicLong succeeded;
+    private final AtomicLong failed;
+    private final AtomicReference<Exception> firstError;
+
+    private long next;
+    private long start;
+
+    private Execution(Session session, Writer writer, CommandTemplate template, int parallelism, boolean ordered, boolean failFast) {
+      this.session = session;
+      this.writer = writer;
+      this.template = template;
+      this.ordered = ordered;
+      this.failFast = failFast;
+      this.permits = new Semaphore(parallelism);
+      this.pending = new HashMap<>();
+      this.succeeded = new AtomicLong();
+      this.failed = new AtomicLong();
+      this.firstError = new AtomicReference<>();
+    }
+
+    private void run(Iterator<String> inputs) {
+      start = System.nanoTime();
+      Thread progress = session.isInteractive() ? Thread.ofVirtual().start(this::reportProgress) : null;
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        long index = 0;
+        while (inputs.hasNext() && !(failFast && failed.get() > 0)) {
+          permits.acquire();
+          String input = inputs.next();
+          long current = index++;
+          executor.execute(() -> process(current, input));
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        if (progress != null) {
+          progress.interrupt();
+        }
+      }
+
+      report();
+      if (failFast && firstError.get() != null) {
+        throw new UnbelievableException("Stopped at the first failure: " + ErrorRegistry.messageOf(firstError.get()));
+      }
+    }
+
+    private void process(long index, String input) {
+      List<AttributedString> output = new ArrayList<>();
+      Writer inputWriter = writer.withDelegate(output::add);
+      try {
+        session.dispatch(inputWriter, template.expand(List.of(input), session.cli()::parse));
+        succeeded.incrementAndGet();
+      } catch (Exception e) {
+        failed.incrementAndGet();
+        firstError.compareAndSet(null, e);
+        synchronized (this) {
+          session.console().withStyle("error").write(input + ": ").writeln(ErrorRegistry.messageOf(e));
+        }
+      } finally {
+        complete(index, output);
+      }
+    }
+
+    private synchronized void complete(long index, List<AttributedString> output) {
+      if (!ordered) {
+        print(output);
+        permits.release();
+        return;
+      }
+      pending.put(index, output);
+      List<AttributedString> nextOutput;
+      while ((nextOutput = pending.remove(next)) != null) {
+        print(nextOutput);
+        next++;
+        // only printed inputs give room for new ones
+        permits.release();
+      }
+    }
+
+    private void print(List<AttributedString> output) {
+      output.forEach(writer::write);
+      writer.flush();
+    }
+
+    private void reportProgress() {
+      try {
+        while (true) {
+          Thread.sleep(PROGRESS_INTERVAL);
+          synchronized (this) {
+            long done = succeeded.get() + failed.get();
+            session.console().withStyle("foreach_label").write("foreach: ")
+              .withStyle("foreach_value").write(done + " done")
+              .withStyle("foreach_detail").writeln(String.format(
+                " (%d failed, %.1f/s)", failed.get(), throughput(done)));
+          }
+        }
+      } catch (InterruptedException e) {
+        // finished
+      }
+    }
+
+    private synchronized void report() {
+      long done = succeeded.get() + failed.get();
+      session.console().withStyle("foreach_label").write("foreach: ")
+        .withStyle("foreach_value").write(done + " inputs")
+        .withStyle("foreach_detail").writeln(String.format(
+          " (%d failed in %.2fs, %.1f/s)", failed.get(), elapsed() / 1_000_000_000.0, throughput(done)));
+    }
+
+    private long elapsed() {
+      return System.nanoTime() - start;
+    }
+
+    private double throughput(long done) {
+      long elapsed = elapsed();
+      return elapsed == 0 ? 0 : done * 1_000_000_000.0 / elapsed;
+    }
+
+  }
+
+}
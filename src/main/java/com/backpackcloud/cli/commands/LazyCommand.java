@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.Command;
+import com.backpackcloud.cli.CommandContext;
+import com.backpackcloud.cli.CommandInput;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.ui.Suggestion;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A command known only by its {@link CommandDefinition} until it's needed. The command object,
+ * with everything it depends on and the table of its actions, is only created the first time
+ * the command is executed or asked for suggestions, so the commands a session never uses don't
+ * slow down its startup.
+ * <p>
+ * The command is created only once, even if it's first used by several sessions at the same time.
+ * If creating it fails, the next use tries again.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class LazyCommand implements Command {
+
+  private final CommandDefinition definition;
+  private final Supplier<? extends Command> factory;
+
+  private volatile Command command;
+
+  /**
+   * @param commandClass the class of the command, annotated with {@link CommandDefinition}
+   * @param factory      the function that creates the command when it's first needed
+   */
+  public LazyCommand(Class<?> commandClass, Supplier<? extends Command> factory) {
+    if (!commandClass.isAnnotationPresent(CommandDefinition.class)) {
+      throw new UnbelievableException("Command is not annotated with @CommandDefinition");
+    }
+    this.definition = commandClass.getAnnotation(CommandDefinition.class);
+    this.factory = factory;
+  }
+
+  /**
+   * @return whether the command has already been created
+   */
+  public boolean initialized() {
+    return command != null;
+  }
+
+  private Command command() {
+    Command result = command;
+    if (result == null) {
+      synchronized (this) {
+        result = command;
+        if (result == null) {
+          result = factory.get();
+          command = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String type() {
+    return definition.type();
+  }
+
+  @Override
+  public String name() {
+    return definition.name();
+  }
+
+  @Override
+  public String description() {
+    return definition.description();
+  }
+
+  @Override
+  public void execute(CommandContext context) {
+    command().execute(context);
+  }
+
+  @Override
+  public void execute(CommandContext context, Map<String, Object> arguments) {
+    command().execute(context, arguments);
+  }
+
+  @Override
+  public Map<String, List<String>> actions() {
+    return command().actions();
+  }
+
+  @Override
+  public List<Suggestion> suggest(CommandInput input) {
+    return command().suggest(input);
+  }
+
+}
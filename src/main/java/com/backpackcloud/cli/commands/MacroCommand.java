@@ -27,20 +27,22 @@ package com.backpackcloud.cli.commands;
 import com.backpackcloud.cli.Command;
 import com.backpackcloud.cli.CommandContext;
 import com.backpackcloud.cli.Macro;
+import com.backpackcloud.cli.Session;
 import com.backpackcloud.text.InputValue;
+import org.jline.reader.ParsedLine;
 
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class MacroCommand implements Command {
 
-  private static final Pattern PARAMETER_PATTERN = Pattern.compile("\\{(?<parameter>[^}]+)}");
-
   private final Macro macro;
+  private final List<CommandTemplate> steps;
 
   public MacroCommand(Macro macro) {
     this.macro = macro;
+    this.steps = macro.commands().stream()
+      .map(CommandTemplate::compile)
+      .toList();
   }
 
   @Override
@@ -60,23 +62,16 @@ public class MacroCommand implements Command {
 
   @Override
   public void execute(CommandContext context) {
-    List<InputValue> args = context.input().words();
-    macro.commands().stream()
-      .map(input -> {
-        Matcher matcher = PARAMETER_PATTERN.matcher(input);
-
-        return matcher.replaceAll(result -> {
-          String[] split = result.group("parameter").split(":");
-          int index = Integer.parseInt(split[0]);
-          String defaultValue = split.length > 1 ? split[1] : "";
-          if (args.size() > index) {
-            return args.get(index).get();
-          } else {
-            return defaultValue;
-          }
-        });
-      })
-      .forEach(context.cli()::execute);
+    Session session = context.session();
+    List<String> args = context.input().words().stream()
+      .map(InputValue::get)
+      .toList();
+    for (CommandTemplate step : steps) {
+      ParsedLine line = step.expand(args, session.cli()::parse);
+      if (!line.words().isEmpty() && !line.words().getFirst().isEmpty()) {
+        session.dispatch(context.writer(), line);
+      }
+    }
   }
 
 }
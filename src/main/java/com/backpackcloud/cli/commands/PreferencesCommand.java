@@ -60,8 +60,8 @@ public class PreferencesCommand {
   }
 
   @Action
-  public void list(Writer writer) {
-    userPreferences.list().forEach(preference -> writer
+  public void list(Writer writer, UserPreferences preferences) {
+    preferences.list().forEach(preference -> writer
       .withStyle("preference_name")
       .write(preference.spec().id()).write(": ")
 
@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CommandContext;
+import com.backpackcloud.cli.CommandLine;
+import com.backpackcloud.cli.ErrorRegistry;
+import com.backpackcloud.cli.Session;
+import com.backpackcloud.cli.Writer;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.InputParameter;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a command line repeatedly, discarding its output, and reports the latency
+ * distribution, the bytes allocated per run and the garbage collections triggered
+ * while measuring.
+ * <p>
+ * Allocation is read from the current thread, so work that the profiled command
+ * delegates to other threads is not accounted for. Virtual threads can't report their
+ * allocation at all, so it's shown as unavailable for sessions running on them. The
+ * profiling stops at the first run that fails.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+@CommandDefinition(
+  name = "profile",
+  description = "Runs a command repeatedly and reports its latency and allocation"
+)
+public class ProfileCommand {
+
+  private static final int DEFAULT_RUNS = 10;
+
+  private final com.sun.management.ThreadMXBean threads;
+  private final List<GarbageCollectorMXBean> collectors;
+
+  public ProfileCommand() {
+    this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    this.collectors = ManagementFactory.getGarbageCollectorMXBeans();
+  }
+
+  @Action
+  public void execute(CommandContext context,
+                      Writer writer,
+                      @InputParameter("runs") Integer runs,
+                      @InputParameter("warmup") Integer warmup,
+                      @InputParameter("command") String... command) {
+    if (command.length == 0) {
+      throw new UnbelievableException("No command given");
+    }
+    int measuredRuns = runs != null && runs > 0 ? runs : DEFAULT_RUNS;
+    int warmupRuns = warmup != null ? Math.max(warmup, 0) : 0;
+
+    // the words are already parsed, quoting them back into a line would be lossy, and
+    // none of them can be a pipe or a redirect since those were quoted to get here
+    CommandLine commandLine = CommandLine.literal(List.of(command));
+    Writer sink = writer.withDelegate(text -> {
+    });
+
+    for (int i = 0; i < warmupRuns; i++) {
+      run(context.session(), sink, commandLine, "warmup run " + (i + 1));
+    }
+
+    long[] latencies = new long[measuredRuns];
+    long[] allocations = new long[measuredRuns];
+    long gcCount = collectionCount();
+    long gcTime = collectionTime();
+
+    for (int i = 0; i < measuredRuns; i++) {
+      long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+      long start = System.nanoTime();
+
+      run(context.session(), sink, commandLine, "run " + (i + 1));
+
+      latencies[i] = System.nanoTime() - start;
+      long allocatedAfter = threads.getCurrentThreadAllocatedBytes();
+      // virtual threads, like the ones of daemon and RPC sessions, can't tell their allocation
+      allocations[i] = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+    }
+
+    gcCount = collectionCount() - gcCount;
+    gcTime = collectionTime() - gcTime;
+
+    Arrays.sort(latencies);
+    Arrays.sort(allocations);
+
+    writer.withStyle("profile_label").write("runs: ")
+      .withStyle("profile_value").write(measuredRuns)
+      .withStyle("profile_detail").writeln(String.format(" (%d warmup)", warmupRuns));
+
+    writer.withStyle("profile_label").write("latency: ")
+      .withStyle("profile_value").write(formatTime(average(latencies)))
+      .withStyle("profile_detail").writeln(String.format(
+        " (min %s, p50 %s, p90 %s, p99 %s, max %s)",
+        formatTime(latencies[0]),
+        formatTime(percentile(latencies, 0.5)),
+        formatTime(percentile(latencies, 0.9)),
+        formatTime(percentile(latencies, 0.99)),
+        formatTime(latencies[measuredRuns - 1])
+      ));
+
+    if (allocations[0] < 0) {
+      writer.withStyle("profile_label").write("allocated: ")
+        .withStyle("profile_value").write("n/a")
+        .withStyle("profile_detail").writeln(" (not measurable from this thread)");
+    } else {
+      writer.withStyle("profile_label").write("allocated: ")
+        .withStyle("profile_value").write(formatBytes(average(allocations)) + "/run")
+        .withStyle("profile_detail").writeln(String.format(
+          " (min %s, p50 %s, max %s)",
+          formatBytes(allocations[0]),
+          formatBytes(percentile(allocations, 0.5)),
+          formatBytes(allocations[measuredRuns - 1])
+        ));
+    }
+
+    writer.withStyle("profile_label").write("gc: ")
+      .withStyle("profile_value").write(gcCount + " collections")
+      .withStyle("profile_detail").writeln(String.format(" (%dms)", gcTime));
+  }
+
+  // dispatched directly, so failures aren't swallowed nor added to the error registry on every run
+  private void run(Session session, Writer writer, CommandLine commandLine, String run) {
+    try {
+      session.dispatch(writer, commandLine);
+    } catch (Exception e) {
+      // no cause, or the root cause message would be shown instead of this one
+      throw new UnbelievableException("Failed at " + run + ": " + ErrorRegistry.messageOf(e));
+    }
+  }
+
+  private long collectionCount() {
+    return collectors.stream()
+      .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+      .filter(count -> count > 0)
+      .sum();
+  }
+
+  private long collectionTime() {
+    return collectors.stream()
+      .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+      .filter(time -> time > 0)
+      .sum();
+  }
+
+  private long average(long[] values) {
+    return (long) Arrays.stream(values).average().orElse(0);
+  }
+
+  private long percentile(long[] sortedValues, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedValues.length) - 1;
+    return sortedValues[Math.max(0, Math.min(index, sortedValues.length - 1))];
+  }
+
+  private String formatTime(long nanos) {
+    if (nanos >= 1_000_000_000) {
+      return String.format("%.2fs", nanos / 1_000_000_000.0);
+    } else if (nanos >= 1_000_000) {
+      return String.format("%.2fms", nanos / 1_000_000.0);
+    } else if (nanos >= 1_000) {
+      return String.format("%.2fµs", nanos / 1_000.0);
+    }
+    return nanos + "ns";
+  }
+
+  private String formatBytes(long bytes) {
+    if (bytes >= 1024 * 1024) {
+      return String.format("%.2fMB", bytes / (1024.0 * 1024));
+    } else if (bytes >= 1024) {
+      return String.format("%.2fKB", bytes / 1024.0);
+    }
+    return bytes + "B";
+  }
+
+}
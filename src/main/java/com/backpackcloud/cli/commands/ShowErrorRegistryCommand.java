@@ -38,12 +38,23 @@ import java.io.StringWriter;
 public class ShowErrorRegistryCommand {
 
   private final ErrorRegistry registry;
+
+  public ShowErrorRegistryCommand() {
+    this.registry = null;
+  }
+
+  /**
+   * @deprecated the errors are read from the session running the command, use
+   * {@link #ShowErrorRegistryCommand()}. The given registry is shown to every session.
+   */
+  @Deprecated
   public ShowErrorRegistryCommand(ErrorRegistry registry) {
     this.registry = registry;
   }
 
   @Action
-  public void execute(Paginator paginator) {
+  public void execute(Paginator paginator, ErrorRegistry sessionRegistry) {
+    ErrorRegistry registry = this.registry != null ? this.registry : sessionRegistry;
     paginator.from(registry.stream())
       .print((writer, e) -> {
         StringWriter stringWriter = new StringWriter();
@@ -0,0 +1,152 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CommandContext;
+import com.backpackcloud.cli.ErrorRegistry;
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.cli.ScriptReader;
+import com.backpackcloud.cli.Session;
+import com.backpackcloud.cli.Writer;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.InputParameter;
+import com.backpackcloud.cli.annotations.ParameterSuggestion;
+import com.backpackcloud.cli.ui.Suggestion;
+import com.backpackcloud.cli.ui.components.FileSuggester;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Runs the commands of a script file, as if they were typed one after another.
+ * <p>
+ * The file is read as it goes, so scripts of any size can be used. Blank lines and lines
+ * starting with {@code #} are ignored and a line ending with {@code \} continues on the
+ * next one. Failures are reported with the line they came from and, depending on
+ * {@link Preferences#STOP_ON_ERROR}, either stop the script or are counted in the
+ * summary printed at the end.
+ * <p>
+ * A script can source other scripts, up to {@value #MAX_DEPTH} levels deep, but never one
+ * that is still running, as that would never end.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+@CommandDefinition(
+  name = "source",
+  description = "Runs the commands from a script file"
+)
+public class SourceCommand {
+
+  public static final int MAX_DEPTH = 32;
+
+  // nested scripts always run in the thread of the script that sources them
+  private static final ThreadLocal<Deque<Path>> RUNNING = ThreadLocal.withInitial(ArrayDeque::new);
+
+  private final FileSuggester fileSuggester;
+
+  public SourceCommand(FileSuggester fileSuggester) {
+    this.fileSuggester = fileSuggester;
+  }
+
+  @Action
+  public void execute(CommandContext context,
+                      Writer writer,
+                      @InputParameter("file") String file) {
+    if (file == null) {
+      throw new UnbelievableException("No file given");
+    }
+    Path path = context.session().resolve(file);
+    if (!Files.isRegularFile(path)) {
+      throw new UnbelievableException("File " + file + " not found");
+    }
+
+    Deque<Path> running = RUNNING.get();
+    Path script = realPath(path);
+    if (running.contains(script)) {
+      throw new UnbelievableException("Script " + file + " is already being sourced");
+    }
+    if (running.size() >= MAX_DEPTH) {
+      throw new UnbelievableException("Too many nested scripts, the limit is " + MAX_DEPTH);
+    }
+    running.push(script);
+    try {
+      run(context, writer, file, path);
+    } finally {
+      running.pop();
+    }
+  }
+
+  private void run(CommandContext context, Writer writer, String file, Path path) {
+    Session session = context.session();
+    boolean stopOnError = session.preferences().isEnabled(Preferences.STOP_ON_ERROR);
+    long start = System.nanoTime();
+    int executed = 0;
+    int failed = 0;
+
+    try (ScriptReader reader = new ScriptReader(Files.newBufferedReader(path))) {
+      ScriptReader.ScriptLine line;
+      while ((line = reader.next()) != null) {
+        executed++;
+        try {
+          session.dispatch(writer, session.cli().parse(line.command()));
+        } catch (Exception e) {
+          String message = String.format("%s:%d: %s", file, line.number(), ErrorRegistry.messageOf(e));
+          if (stopOnError) {
+            throw new UnbelievableException(message);
+          }
+          failed++;
+          writer.withStyle("error").writeln(message);
+        }
+      }
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+
+    double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+    writer.withStyle("source_label").write("source: ")
+      .withStyle("source_value").write(executed + " commands")
+      .withStyle("source_detail").writeln(String.format(" (%d failed in %.2fs)", failed, elapsed));
+  }
+
+  private Path realPath(Path path) {
+    try {
+      return path.toRealPath();
+    } catch (IOException e) {
+      throw new UnbelievableException("Unable to read " + path, e);
+    }
+  }
+
+  @ParameterSuggestion(parameter = "file")
+  public List<Suggestion> suggestFiles(@InputParameter("file") String file) {
+    return fileSuggester.suggest(file);
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.daemon;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.ui.TerminalStreams;
+import org.jline.terminal.spi.SystemStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A thin client for a {@link DaemonServer}.
+ * <p>
+ * The client doesn't load anything besides what it needs to talk to the socket: it sends
+ * the arguments and the terminal size, streams the standard input in the background and
+ * copies the output to its own until the daemon sends the exit status. No arguments
+ * makes the daemon read the commands from the standard input.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class DaemonClient {
+
+  /**
+   * The system property holding the socket path used by {@link #main(String[])}.
+   */
+  public static final String SOCKET_PROPERTY = "zipper.socket";
+
+  private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+  private final Path socket;
+
+  public DaemonClient(Path socket) {
+    this.socket = socket;
+  }
+
+  /**
+   * Runs the given arguments in the daemon using the standard streams of this process.
+   * The terminal size is taken from the {@code COLUMNS} and {@code LINES} variables and
+   * ANSI output is only asked for when this process is attached to a terminal, and
+   * relative paths are resolved against the current directory of this process.
+   *
+   * @param args the command line to run
+   * @return the exit status sent by the daemon
+   */
+  public int run(String... args) {
+    boolean ansi = !"dumb".equals(System.getenv("TERM")) && TerminalStreams.isTerminal(SystemStream.Output);
+    return run(System.in, System.out, dimension("COLUMNS", 80), dimension("LINES", 24), ansi,
+      Path.of("").toAbsolutePath(), args);
+  }
+
+  /**
+   * Runs the given arguments in the daemon.
+   *
+   * @param input     the input to forward to the daemon
+   * @param output    the output to copy the daemon output to
+   * @param columns   the width of the client terminal
+   * @param rows      the height of the client terminal
+   * @param ansi      whether the output may contain escape sequences
+   * @param directory the directory to resolve relative paths against
+   * @param args      the command line to run
+   * @return the exit status sent by the daemon
+   */
+  public int run(InputStream input, OutputStream output, int columns, int rows, boolean ansi, Path directory,
+                 String... args) {
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      Frames.write(channel, Frames.HELLO, new Frames.Hello(columns, rows, ansi, directory.toAbsolutePath().toString(), List.of(args)).encode());
+      Thread.ofVirtual().name("zipper-client-input").start(() -> forward(input, channel));
+
+      Frames.Frame frame;
+      while ((frame = Frames.read(channel)) != null) {
+        switch (frame.type()) {
+          case Frames.OUTPUT -> {
+            output.write(frame.payload());
+            output.flush();
+          }
+          case Frames.EXIT -> {
+            return ByteBuffer.wrap(frame.payload()).getInt();
+          }
+          default -> throw new UnbelievableException("Unexpected frame from the daemon: " + (char) frame.type());
+        }
+      }
+      throw new UnbelievableException("The daemon closed the connection before sending the exit status");
+    } catch (IOException e) {
+      throw new UnbelievableException("Unable to talk to the daemon at " + socket, e);
+    }
+  }
+
+  private void forward(InputStream input, SocketChannel channel) {
+    byte[] buffer = new byte[INPUT_BUFFER_SIZE];
+    try {
+      int read;
+      while ((read = input.read(buffer)) >= 0) {
+        Frames.write(channel, Frames.INPUT, buffer, 0, read);
+      }
+      Frames.write(channel, Frames.INPUT_END, new byte[0]);
+    } catch (IOException e) {
+      // the session has ended and doesn't want the rest of the input
+    }
+  }
+
+  private static int dimension(String variable, int defaultValue) {
+    try {
+      String value = System.getenv(variable);
+      return value != null ? Integer.parseInt(value.strip()) : defaultValue;
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Runs the arguments in the daemon listening to the socket given by the
+   * {@value #SOCKET_PROPERTY} system property and exits with its status.
+   */
+  public static void main(String[] args) {
+    String socket = System.getProperty(SOCKET_PROPERTY);
+    if (socket == null) {
+      System.err.println("No daemon socket given, set it with -D" + SOCKET_PROPERTY + "=<path>");
+      System.exit(2);
+    }
+    try {
+      System.exit(new DaemonClient(Path.of(socket)).run(args));
+    } catch (UnbelievableException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+  }
+
+}
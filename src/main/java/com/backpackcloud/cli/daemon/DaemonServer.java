@@ -0,0 +1,168 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.daemon;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+
+/**
+ * Keeps a CLI warm and runs the commands sent by {@link DaemonClient clients} through a
+ * Unix domain socket.
+ * <p>
+ * The CLI is built once, so each client only pays for the connection instead of a whole
+ * JVM startup. Every client gets a session running on its own virtual thread, with the
+ * output sent back to it and the exit status of the commands at the end. The socket is
+ * only accessible by its owner, as anyone able to connect can run any command. It's bound
+ * inside a private directory and only moved to its path once its permissions are set, and
+ * the daemon refuses to start if they can't be set.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class DaemonServer implements AutoCloseable {
+
+  private static final String BOUND_SOCKET = "socket";
+
+  private final CLI cli;
+  private final Path socket;
+  private final ServerSocketChannel server;
+
+  /**
+   * Binds a new daemon to the given socket. A socket file left behind by a daemon that is
+   * no longer running is replaced.
+   *
+   * @param cli    the CLI to run the commands
+   * @param socket the path of the socket to listen to
+   */
+  public DaemonServer(CLI cli, Path socket) {
+    this.cli = cli;
+    this.socket = socket;
+    UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+    Path directory = null;
+    ServerSocketChannel channel = null;
+    try {
+      if (Files.exists(socket)) {
+        if (isAlive(address)) {
+          throw new UnbelievableException("A daemon is already listening on " + socket);
+        }
+        Files.delete(socket);
+      }
+      // the socket is bound inside a directory only the owner can enter, so nobody can
+      // connect before its permissions are set and it's moved to where clients expect it
+      directory = Files.createTempDirectory(socket.toAbsolutePath().getParent(), ".zipper-",
+        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+      Path bound = directory.resolve(BOUND_SOCKET);
+      channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(UnixDomainSocketAddress.of(bound));
+      Files.setPosixFilePermissions(bound, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+      Files.move(bound, socket, StandardCopyOption.ATOMIC_MOVE);
+      this.server = channel;
+    } catch (IOException | UnsupportedOperationException e) {
+      closeQuietly(channel);
+      throw new UnbelievableException("Unable to listen on " + socket, e);
+    } finally {
+      deleteQuietly(directory);
+    }
+  }
+
+  /**
+   * Accepts clients until this daemon is closed, starting a session for each one of them.
+   */
+  public void serve() {
+    cli.finishStartup();
+    try {
+      while (server.isOpen()) {
+        SocketChannel channel = server.accept();
+        Thread.ofVirtual()
+          .name("zipper-session-" + socket.getFileName())
+          .start(new DaemonSession(cli, channel));
+      }
+    } catch (AsynchronousCloseException e) {
+      // closed while waiting for a client
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  /**
+   * @return the path of the socket this daemon is listening to
+   */
+  public Path socket() {
+    return socket;
+  }
+
+  @Override
+  public void close() {
+    try {
+      server.close();
+      Files.deleteIfExists(socket);
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private static boolean isAlive(UnixDomainSocketAddress address) {
+    try {
+      SocketChannel.open(address).close();
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static void closeQuietly(ServerSocketChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // already failing, the original error is the one that matters
+      }
+    }
+  }
+
+  private static void deleteQuietly(Path directory) {
+    if (directory != null) {
+      try {
+        // the socket is only left there if something failed before moving it
+        Files.deleteIfExists(directory.resolve(BOUND_SOCKET));
+        Files.deleteIfExists(directory);
+      } catch (IOException e) {
+        // an empty hidden directory is all that is left behind
+      }
+    }
+  }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.daemon;
+
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.Session;
+import com.backpackcloud.cli.Writer;
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * A single client connected to the daemon.
+ * <p>
+ * Each client gets a {@link Session} of its own, on a terminal backed by the socket and
+ * sized as the client terminal. The output of the commands is written straight to the
+ * socket, so it goes back to the client that asked for it.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class DaemonSession implements Runnable {
+
+  private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+  private final CLI cli;
+  private final SocketChannel channel;
+
+  DaemonSession(CLI cli, SocketChannel channel) {
+    this.cli = cli;
+    this.channel = channel;
+  }
+
+  @Override
+  public void run() {
+    try (channel) {
+      Frames.Frame frame = Frames.read(channel);
+      if (frame == null || frame.type() != Frames.HELLO) {
+        return;
+      }
+      Frames.Hello hello = Frames.Hello.decode(frame.payload());
+      ChannelOutput output = new ChannelOutput();
+      ChannelInput input = new ChannelInput();
+      OutputStreamWriter writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+      int status;
+      try (Terminal terminal = new SessionTerminal(hello.ansi() ? Terminal.TYPE_DUMB_COLOR : Terminal.TYPE_DUMB, input, output);
+           Session session = cli.openSession(terminal)) {
+        terminal.setSize(new Size(hello.columns(), hello.rows()));
+        session.workingDirectory(Path.of(hello.directory()));
+        status = execute(session, session.writerFor(writer, hello.ansi()), input, hello);
+        writer.flush();
+      }
+      Frames.write(channel, Frames.EXIT, ByteBuffer.allocate(Integer.BYTES).putInt(status).array());
+    } catch (IOException e) {
+      // the client is gone, there is no one left to tell
+    }
+  }
+
+  private int execute(Session session, Writer writer, InputStream input, Frames.Hello hello) {
+    try {
+      if (hello.arguments().isEmpty()) {
+        return session.run(writer, input);
+      }
+      return session.run(writer, hello.arguments().toArray(String[]::new));
+    } catch (RuntimeException e) {
+      writer.writeln(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+      return 1;
+    }
+  }
+
+  /**
+   * Buffers the output and sends it to the client as output frames when flushed.
+   */
+  private class ChannelOutput extends OutputStream {
+
+    private final byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+    private int count;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buffer.length) {
+        flush();
+      }
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (length > buffer.length - count) {
+        flush();
+        if (length > buffer.length) {
+          Frames.write(channel, Frames.OUTPUT, bytes, offset, length);
+          return;
+        }
+      }
+      System.arraycopy(bytes, offset, buffer, count, length);
+      count += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (count > 0) {
+        Frames.write(channel, Frames.OUTPUT, buffer, 0, count);
+        count = 0;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      // the channel outlives the terminal, the exit status still has to be sent
+      flush();
+    }
+
+  }
+
+  /**
+   * Reads the standard input of the client from its input frames, as they are needed.
+   */
+  private class ChannelInput extends InputStream {
+
+    private byte[] chunk = new byte[0];
+    private int position;
+    private boolean ended;
+
+    @Override
+    public int read() throws IOException {
+      if (!fill()) {
+        return -1;
+      }
+      return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int read = Math.min(length, chunk.length - position);
+      System.arraycopy(chunk, position, bytes, offset, read);
+      position += read;
+      return read;
+    }
+
+    private boolean fill() throws IOException {
+      while (!ended && position == chunk.length) {
+        Frames.Frame frame = Frames.read(channel);
+        if (frame == null || frame.type() == Frames.INPUT_END) {
+          ended = true;
+        } else if (frame.type() == Frames.INPUT) {
+          chunk = frame.payload();
+          position = 0;
+        }
+      }
+      return position < chunk.length;
+    }
+
+    @Override
+    public void close() {
+      // the channel is closed by the session
+    }
+
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.daemon;
+
+import com.backpackcloud.UnbelievableException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The wire format used between the daemon and its clients.
+ * <p>
+ * Every message is a frame made of a one byte type, a four bytes length and the payload.
+ * The client opens a session with a {@link #HELLO} frame and then streams its standard
+ * input, while the daemon streams back the output and ends the session with an
+ * {@link #EXIT} frame carrying the exit status.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+final class Frames {
+
+  /**
+   * Client to daemon: the terminal size, whether it understands ANSI, the working
+   * directory and the arguments.
+   */
+  static final byte HELLO = 'H';
+  /**
+   * Client to daemon: a chunk of the standard input.
+   */
+  static final byte INPUT = 'I';
+  /**
+   * Client to daemon: the standard input has ended.
+   */
+  static final byte INPUT_END = 'E';
+  /**
+   * Daemon to client: a chunk of the output.
+   */
+  static final byte OUTPUT = 'O';
+  /**
+   * Daemon to client: the exit status of the session.
+   */
+  static final byte EXIT = 'X';
+
+  static final int HEADER_SIZE = 5;
+  static final int MAX_PAYLOAD_SIZE = 1 << 20;
+
+  private Frames() {
+
+  }
+
+  record Frame(byte type, byte[] payload) {
+
+  }
+
+  /**
+   * The opening of a session: what the client is and what it wants to run. No arguments
+   * means the commands should be read from the standard input. Relative paths in the
+   * commands are resolved against the directory the client was run from.
+   */
+  record Hello(int columns, int rows, boolean ansi, String directory, List<String> arguments) {
+
+    byte[] encode() {
+      try {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(columns);
+        data.writeInt(rows);
+        data.writeBoolean(ansi);
+        data.writeUTF(directory);
+        data.writeInt(arguments.size());
+        for (String argument : arguments) {
+          data.writeUTF(argument);
+        }
+        return bytes.toByteArray();
+      } catch (IOException e) {
+        throw new UnbelievableException(e);
+      }
+    }
+
+    static Hello decode(byte[] payload) throws IOException {
+      DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+      int columns = data.readInt();
+      int rows = data.readInt();
+      boolean ansi = data.readBoolean();
+      String directory = data.readUTF();
+      int size = data.readInt();
+      List<String> arguments = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        arguments.add(data.readUTF());
+      }
+      return new Hello(columns, rows, ansi, directory, arguments);
+    }
+
+  }
+
+  static void write(GatheringByteChannel channel, byte type, byte[] payload, int offset, int length) throws IOException {
+    ByteBuffer[] buffers = {
+      ByteBuffer.allocate(HEADER_SIZE).put(type).putInt(length).flip(),
+      ByteBuffer.wrap(payload, offset, length)
+    };
+    while (buffers[0].hasRemaining() || buffers[1].hasRemaining()) {
+      channel.write(buffers);
+    }
+  }
+
+  static void write(GatheringByteChannel channel, byte type, byte[] payload) throws IOException {
+    write(channel, type, payload, 0, payload.length);
+  }
+
+  /**
+   * Reads the next frame from the channel.
+   *
+   * @return the frame read or {@code null} if the channel has ended before a new frame
+   */
+  static Frame read(ReadableByteChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (!fill(channel, header, true)) {
+      return null;
+    }
+    header.flip();
+    byte type = header.get();
+    int length = header.getInt();
+    if (length < 0 || length > MAX_PAYLOAD_SIZE) {
+      throw new IOException("Invalid frame length: " + length);
+    }
+    ByteBuffer payload = ByteBuffer.allocate(length);
+    fill(channel, payload, false);
+    return new Frame(type, payload.array());
+  }
+
+  private static boolean fill(ReadableByteChannel channel, ByteBuffer buffer, boolean endAllowed) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        if (endAllowed && buffer.position() == 0) {
+          return false;
+        }
+        throw new EOFException("Connection closed in the middle of a frame");
+      }
+    }
+    return true;
+  }
+
+}
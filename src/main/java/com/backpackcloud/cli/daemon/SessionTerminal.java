@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.daemon;
+
+import org.jline.terminal.impl.DumbTerminal;
+import org.jline.utils.InfoCmp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The terminal of a client session.
+ * <p>
+ * Parsing the capabilities of a terminal takes a few milliseconds, which is more than
+ * running most commands, so they are parsed once per terminal type and copied into every
+ * new terminal.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class SessionTerminal extends DumbTerminal {
+
+  private static final Map<String, Capabilities> CAPABILITIES = new ConcurrentHashMap<>();
+
+  SessionTerminal(String type, InputStream input, OutputStream output) throws IOException {
+    super("zipper", type, input, output, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected void parseInfoCmp() {
+    Capabilities capabilities = CAPABILITIES.computeIfAbsent(getType(), Capabilities::parse);
+    bools.addAll(capabilities.bools());
+    ints.putAll(capabilities.ints());
+    strings.putAll(capabilities.strings());
+  }
+
+  private record Capabilities(Set<InfoCmp.Capability> bools,
+                              Map<InfoCmp.Capability, Integer> ints,
+                              Map<InfoCmp.Capability, String> strings) {
+
+    static Capabilities parse(String type) {
+      Capabilities capabilities = new Capabilities(EnumSet.noneOf(InfoCmp.Capability.class), new HashMap<>(), new HashMap<>());
+      try {
+        InfoCmp.parseInfoCmp(InfoCmp.getInfoCmp(type), capabilities.bools(), capabilities.ints(), capabilities.strings());
+      } catch (IOException e) {
+        // a terminal without capabilities is still usable, as any dumb terminal
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return capabilities;
+    }
+
+  }
+
+}
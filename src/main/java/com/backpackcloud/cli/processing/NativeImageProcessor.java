@@ -0,0 +1,271 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.processing;
+
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.Observe;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generates the reflection configuration a GraalVM native image needs to run the
+ * commands of an application.
+ * <p>
+ * Zipper creates commands, prompt writers and components through reflection, finds their
+ * actions and observers by scanning their methods and serializes the results of the
+ * actions. None of that works in a native image unless the classes involved are
+ * registered, so this processor registers:
+ * <ul>
+ *   <li>classes annotated with {@link CommandDefinition}, along with the parameter types
+ *   of their actions that are created through a {@code valueOf(String)} method and the
+ *   types returned by them;</li>
+ *   <li>classes with methods annotated with {@link Observe};</li>
+ *   <li>implementations of {@code Command}, {@code PromptWriter} and {@code Registry}.</li>
+ * </ul>
+ * The configuration is written to {@code META-INF/native-image/zipper/<name>/reflect-config.json},
+ * where the name comes from the {@value #NAME_OPTION} option.
+ * <p>
+ * The processor isn't registered as a service, so it never runs unless asked to. With
+ * {@code javac}, pass {@code -processor com.backpackcloud.cli.processing.NativeImageProcessor}
+ * with zipper in the class path. With Maven, add zipper to the {@code annotationProcessorPaths}
+ * of the compiler plugin and name the processor in its {@code annotationProcessors}:
+ * <pre>{@code
+ * <configuration>
+ *   <annotationProcessorPaths>
+ *     <path>
+ *       <groupId>com.backpackcloud</groupId>
+ *       <artifactId>zipper</artifactId>
+ *       <version>${zipper.version}</version>
+ *     </path>
+ *   </annotationProcessorPaths>
+ *   <annotationProcessors>
+ *     <annotationProcessor>com.backpackcloud.cli.processing.NativeImageProcessor</annotationProcessor>
+ *   </annotationProcessors>
+ *   <compilerArgs>
+ *     <arg>-Azipper.native.name=my-application</arg>
+ *   </compilerArgs>
+ * </configuration>
+ * }</pre>
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(NativeImageProcessor.NAME_OPTION)
+public class NativeImageProcessor extends AbstractProcessor {
+
+  public static final String NAME_OPTION = "zipper.native.name";
+  public static final String DEFAULT_NAME = "application";
+
+  private static final List<String> COMPONENT_TYPES = List.of(
+    "com.backpackcloud.cli.Command",
+    "com.backpackcloud.cli.Registry",
+    "com.backpackcloud.cli.ui.PromptWriter"
+  );
+
+  private final Map<String, Entry> entries = new TreeMap<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      write();
+    } else {
+      for (Element element : roundEnv.getRootElements()) {
+        scan(element);
+      }
+    }
+    // other processors might be interested in the same annotations
+    return false;
+  }
+
+  private void scan(Element element) {
+    if (element instanceof TypeElement type) {
+      inspect(type);
+      ElementFilter.typesIn(type.getEnclosedElements()).forEach(this::scan);
+    }
+  }
+
+  private void inspect(TypeElement type) {
+    List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements());
+    boolean command = type.getAnnotation(CommandDefinition.class) != null;
+    boolean observer = methods.stream().anyMatch(method -> method.getAnnotation(Observe.class) != null);
+
+    if (command || observer || isComponent(type)) {
+      entry(type).constructors = true;
+      entry(type).methods = true;
+    }
+    if (command) {
+      methods.stream()
+        .filter(method -> method.getAnnotation(Action.class) != null)
+        .forEach(action -> {
+          action.getParameters().forEach(this::inspectParameter);
+          inspectResult(action.getReturnType());
+        });
+    }
+  }
+
+  private boolean isComponent(TypeElement type) {
+    if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+      return false;
+    }
+    return COMPONENT_TYPES.stream()
+      .map(processingEnv.getElementUtils()::getTypeElement)
+      .filter(Objects::nonNull)
+      .anyMatch(component -> processingEnv.getTypeUtils()
+        .isAssignable(type.asType(), processingEnv.getTypeUtils().erasure(component.asType())));
+  }
+
+  // arguments are converted by looking up a valueOf(String) method in the parameter type
+  private void inspectParameter(VariableElement parameter) {
+    if (parameter.asType() instanceof DeclaredType declared && declared.asElement() instanceof TypeElement type
+      && !isPlatformType(type) && type.getKind() != ElementKind.ENUM && hasValueOf(type)) {
+      entry(type).valueOf = true;
+    }
+  }
+
+  private boolean hasValueOf(TypeElement type) {
+    return ElementFilter.methodsIn(type.getEnclosedElements()).stream()
+      .anyMatch(method -> method.getSimpleName().contentEquals("valueOf")
+        && method.getModifiers().contains(Modifier.STATIC)
+        && method.getParameters().size() == 1
+        && method.getParameters().getFirst().asType().toString().equals("java.lang.String"));
+  }
+
+  // results are serialized when printed in a format other than text
+  private void inspectResult(TypeMirror result) {
+    if (result.getKind() == TypeKind.ARRAY) {
+      inspectResult(((ArrayType) result).getComponentType());
+    } else if (result instanceof DeclaredType declared && declared.asElement() instanceof TypeElement type) {
+      if (!isPlatformType(type)) {
+        Entry entry = entry(type);
+        if (!entry.serialized) {
+          entry.serialized = true;
+          entry.methods = true;
+          entry.constructors = true;
+          ElementFilter.fieldsIn(type.getEnclosedElements()).forEach(field -> inspectResult(field.asType()));
+          ElementFilter.recordComponentsIn(type.getEnclosedElements()).forEach(component -> inspectResult(component.asType()));
+        }
+      }
+      declared.getTypeArguments().forEach(this::inspectResult);
+    }
+  }
+
+  private boolean isPlatformType(TypeElement type) {
+    String name = type.getQualifiedName().toString();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.");
+  }
+
+  private Entry entry(TypeElement type) {
+    String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+    return entries.computeIfAbsent(name, Entry::new);
+  }
+
+  private void write() {
+    if (entries.isEmpty()) {
+      return;
+    }
+    String name = processingEnv.getOptions().getOrDefault(NAME_OPTION, DEFAULT_NAME);
+    String path = "META-INF/native-image/zipper/" + name + "/reflect-config.json";
+    try {
+      FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
+      try (Writer writer = file.openWriter()) {
+        writer.write(toJson());
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + path + ": " + e.getMessage());
+    }
+  }
+
+  private String toJson() {
+    StringBuilder json = new StringBuilder("[\n");
+    int index = 0;
+    for (Entry entry : entries.values()) {
+      json.append(index++ == 0 ? "" : ",\n").append("  {\n")
+        .append("    \"name\": \"").append(entry.name).append('"');
+      if (entry.constructors) {
+        json.append(",\n    \"allDeclaredConstructors\": true")
+          .append(",\n    \"allPublicConstructors\": true");
+      }
+      if (entry.methods) {
+        json.append(",\n    \"allDeclaredMethods\": true")
+          .append(",\n    \"allPublicMethods\": true");
+      }
+      if (entry.serialized) {
+        json.append(",\n    \"allDeclaredFields\": true");
+      }
+      if (entry.valueOf && !entry.methods) {
+        json.append(",\n    \"methods\": [{\"name\": \"valueOf\", \"parameterTypes\": [\"java.lang.String\"]}]");
+      }
+      json.append("\n  }");
+    }
+    return json.append("\n]\n").toString();
+  }
+
+  private static class Entry {
+
+    private final String name;
+
+    private boolean constructors;
+    private boolean methods;
+    private boolean serialized;
+    private boolean valueOf;
+
+    Entry(String name) {
+      this.name = name;
+    }
+
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.rpc;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.RecordWriter;
+import com.backpackcloud.io.SerialBitter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sends the messages of the protocol, one JSON document per line.
+ * <p>
+ * Messages are serialized by the thread sending them and only the writing is serialized,
+ * so concurrent requests don't wait for each other to be encoded.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class RpcChannel {
+
+  private final SerialBitter serializer;
+  private final Writer output;
+
+  RpcChannel(SerialBitter serializer, Writer output) {
+    this.serializer = serializer;
+    this.output = output;
+  }
+
+  void respond(Object id, Object result) {
+    Map<String, Object> message = message();
+    message.put("id", id);
+    message.put("result", result);
+    send(message);
+  }
+
+  void error(Object id, int code, String description) {
+    Map<String, Object> error = new LinkedHashMap<>();
+    error.put("code", code);
+    error.put("message", description);
+    Map<String, Object> message = message();
+    message.put("id", id);
+    message.put("error", error);
+    send(message);
+  }
+
+  void notify(String method, Map<String, Object> params) {
+    Map<String, Object> message = message();
+    message.put("method", method);
+    message.put("params", params);
+    send(message);
+  }
+
+  private Map<String, Object> message() {
+    Map<String, Object> message = new LinkedHashMap<>();
+    message.put("jsonrpc", RpcServer.VERSION);
+    return message;
+  }
+
+  private void send(Map<String, Object> message) {
+    String line = RecordWriter.compact(serializer.serialize(message));
+    synchronized (this) {
+      try {
+        output.write(line);
+        output.write('\n');
+        output.flush();
+      } catch (IOException e) {
+        throw new UnbelievableException(e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.rpc;
+
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Sends the text printed by a command as notifications of the request that ran it.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class RpcOutput extends Writer {
+
+  private final RpcChannel channel;
+  private final Object id;
+  private final StringBuilder buffer;
+
+  RpcOutput(RpcChannel channel, Object id) {
+    this.channel = channel;
+    this.id = id;
+    this.buffer = new StringBuilder();
+  }
+
+  @Override
+  public synchronized void write(char[] chars, int offset, int length) {
+    buffer.append(chars, offset, length);
+  }
+
+  @Override
+  public synchronized void write(String text) {
+    buffer.append(text);
+  }
+
+  @Override
+  public synchronized void flush() {
+    if (!buffer.isEmpty()) {
+      channel.notify(RpcServer.OUTPUT, Map.of("id", id, "text", buffer.toString()));
+      buffer.setLength(0);
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+  }
+
+}
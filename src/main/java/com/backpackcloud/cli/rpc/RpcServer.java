@@ -0,0 +1,344 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.rpc;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.Command;
+import com.backpackcloud.cli.CommandLine;
+import com.backpackcloud.cli.ErrorRegistry;
+import com.backpackcloud.cli.Execution;
+import com.backpackcloud.cli.Pipe;
+import com.backpackcloud.cli.Session;
+import com.backpackcloud.cli.Writer;
+import com.backpackcloud.cli.ui.Suggestion;
+import com.backpackcloud.io.SerialBitter;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Serves the CLI through JSON-RPC 2.0 messages, one per line, so editors and other tools
+ * can drive it without scraping a terminal.
+ * <p>
+ * The supported methods are:
+ * <ul>
+ *   <li>{@code commands}: lists the commands, their actions and the parameters of each
+ *   action.</li>
+ *   <li>{@code execute}: runs a {@code command}, optionally choosing an {@code action},
+ *   with named {@code arguments} bound to the action parameters and positional
+ *   {@code words} for the rest. Each object returned by the command is sent as a
+ *   {@value #RESULT} notification and the text it prints as {@value #OUTPUT}
+ *   notifications, both carrying the id of the request. The response comes last, with
+ *   the duration of the command.</li>
+ *   <li>{@code suggest}: suggests the candidates for the last word of a {@code line}.</li>
+ * </ul>
+ * A {@value #CANCEL} notification with the {@code id} of a request stops it.
+ * <p>
+ * Every request runs on its own virtual thread, so a slow command doesn't hold the others
+ * and the responses may come in any order. All of them share a session of their own, with
+ * its own preferences and errors.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class RpcServer implements AutoCloseable {
+
+  public static final String VERSION = "2.0";
+
+  public static final String RESULT = "result";
+  public static final String OUTPUT = "output";
+  public static final String CANCEL = "$/cancel";
+
+  private final CLI cli;
+  private final Session session;
+  private final SerialBitter serializer;
+  private final BufferedReader input;
+  private final RpcChannel channel;
+  private final Map<Object, Request> requests;
+
+  public RpcServer(CLI cli, InputStream input, OutputStream output) {
+    this.cli = cli;
+    this.session = cli.openSession(createTerminal());
+    this.serializer = SerialBitter.JSON();
+    this.input = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    this.channel = new RpcChannel(serializer, new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+    this.requests = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Reads requests until the input ends, then waits for the pending ones to finish.
+   */
+  public void serve() {
+    cli.finishStartup();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      String line;
+      while ((line = input.readLine()) != null) {
+        if (!line.isBlank()) {
+          receive(executor, line);
+        }
+      }
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    session.close();
+  }
+
+  private void receive(ExecutorService executor, String line) {
+    Object parsed;
+    try {
+      parsed = serializer.deserialize(line, Object.class);
+    } catch (RuntimeException e) {
+      channel.error(null, RpcError.PARSE_ERROR, "Invalid JSON");
+      return;
+    }
+    // valid JSON but not a request, like null, an array or a number
+    if (!(parsed instanceof Map<?, ?> message)) {
+      channel.error(null, RpcError.INVALID_REQUEST, "The request must be an object");
+      return;
+    }
+    Object id = message.get("id");
+    Map<String, Object> params = message.get("params") instanceof Map<?, ?> map ? fieldsOf(map) : Map.of();
+
+    if (!(message.get("method") instanceof String method)) {
+      channel.error(id, RpcError.INVALID_REQUEST, "Missing method");
+    } else if (CANCEL.equals(method)) {
+      Request request = params.get("id") != null ? requests.get(params.get("id")) : null;
+      if (request != null) {
+        request.cancel();
+      }
+    } else if (id == null) {
+      // every other method has something to answer
+      channel.error(null, RpcError.INVALID_REQUEST, "Missing id for " + method);
+    } else {
+      Request request = new Request(id, method, params);
+      if (requests.putIfAbsent(id, request) != null) {
+        channel.error(id, RpcError.INVALID_REQUEST, "Request " + id + " is already running");
+      } else {
+        executor.execute(request);
+      }
+    }
+  }
+
+  private Object commands() {
+    return cli.registeredCommands().stream()
+      .sorted(Comparator.comparing(Command::name))
+      .map(command -> {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", command.name());
+        result.put("type", command.type());
+        result.put("description", command.description());
+        result.put("actions", command.actions());
+        return result;
+      })
+      .toList();
+  }
+
+  private Object execute(Request request) {
+    String command = param(request.params, "command", String.class);
+    List<String> words = new ArrayList<>();
+    words.add(command);
+    if (request.params.get("action") != null) {
+      words.add(param(request.params, "action", String.class));
+    }
+    if (request.params.get("words") != null) {
+      List<?> values = param(request.params, "words", List.class);
+      values.forEach(word -> words.add(String.valueOf(word)));
+    }
+    Map<String, Object> arguments = request.params.get("arguments") != null ?
+      fieldsOf(param(request.params, "arguments", Map.class)) :
+      Map.of();
+
+    RpcOutput text = new RpcOutput(channel, request.id);
+    Writer writer = session.writerFor(text, false);
+    Pipe results = new Pipe();
+    ResultSender sender = new ResultSender(request.id, results);
+    Thread senderThread = Thread.ofVirtual().name("rpc-results-" + request.id).start(sender);
+
+    Execution execution = session.invoke(writer, new CommandLine(words), arguments, results);
+    text.flush();
+    join(senderThread, results);
+
+    if (request.cancelled) {
+      throw new RpcError(RpcError.REQUEST_CANCELLED, "Request " + request.id + " cancelled");
+    }
+    if (sender.failure != null) {
+      throw new RpcError(RpcError.INTERNAL_ERROR, "Unable to send the results: " + ErrorRegistry.messageOf(sender.failure));
+    }
+    if (execution.failed()) {
+      throw new RpcError(RpcError.COMMAND_FAILED, ErrorRegistry.messageOf(execution.error().orElseThrow()));
+    }
+    return Map.of("duration", execution.duration().toMillis());
+  }
+
+  private Object suggest(Request request) {
+    return session.suggest(param(request.params, "line", String.class)).stream()
+      .map(this::toMap)
+      .toList();
+  }
+
+  private Map<String, Object> toMap(Suggestion suggestion) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("value", suggestion.value());
+    suggestion.description().ifPresent(description -> result.put("description", description));
+    suggestion.group().ifPresent(group -> result.put("group", group));
+    result.put("complete", suggestion.isComplete());
+    return result;
+  }
+
+  private <T> T param(Map<String, Object> params, String name, Class<T> type) {
+    Object value = params.get(name);
+    if (!type.isInstance(value)) {
+      throw new RpcError(RpcError.INVALID_PARAMS, "Missing or invalid parameter " + name);
+    }
+    return type.cast(value);
+  }
+
+  // JSON object keys are always strings
+  private Map<String, Object> fieldsOf(Map<?, ?> object) {
+    Map<String, Object> fields = new LinkedHashMap<>();
+    object.forEach((key, value) -> fields.put(String.valueOf(key), value));
+    return fields;
+  }
+
+  // the results must all be sent before the response, even if the request gets cancelled
+  private void join(Thread thread, Pipe pipe) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        thread.join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+        pipe.cancel();
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Terminal createTerminal() {
+    // nothing should reach the actual terminal, it would mess with the messages
+    try {
+      return new DumbTerminal("zipper", Terminal.TYPE_DUMB, InputStream.nullInputStream(), OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private class Request implements Runnable {
+
+    private final Object id;
+    private final String method;
+    private final Map<String, Object> params;
+
+    private volatile Thread thread;
+    private volatile boolean cancelled;
+
+    Request(Object id, String method, Map<String, Object> params) {
+      this.id = id;
+      this.method = method;
+      this.params = params;
+    }
+
+    @Override
+    public void run() {
+      thread = Thread.currentThread();
+      try {
+        if (cancelled) {
+          throw new RpcError(RpcError.REQUEST_CANCELLED, "Request " + id + " cancelled");
+        }
+        Object result = switch (method) {
+          case "commands" -> commands();
+          case "execute" -> execute(this);
+          case "suggest" -> suggest(this);
+          default -> throw new RpcError(RpcError.METHOD_NOT_FOUND, "Unknown method " + method);
+        };
+        channel.respond(id, result);
+      } catch (RpcError e) {
+        channel.error(id, e.code(), e.getMessage());
+      } catch (RuntimeException e) {
+        channel.error(id, RpcError.INTERNAL_ERROR, ErrorRegistry.messageOf(e));
+      } finally {
+        requests.remove(id, this);
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+      Thread running = thread;
+      if (running != null) {
+        running.interrupt();
+      }
+    }
+
+  }
+
+  private class ResultSender implements Runnable {
+
+    private final Object id;
+    private final Pipe results;
+
+    private volatile RuntimeException failure;
+
+    ResultSender(Object id, Pipe results) {
+      this.id = id;
+      this.results = results;
+    }
+
+    @Override
+    public void run() {
+      // closing the stream cancels the pipe, stopping the command if it's still producing
+      try (Stream<Object> stream = results.stream()) {
+        stream.forEach(value -> channel.notify(RESULT, Map.of("id", id, "value", value)));
+      } catch (RuntimeException e) {
+        failure = e;
+      }
+    }
+
+  }
+
+}
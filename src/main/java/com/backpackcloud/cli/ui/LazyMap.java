@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A map that is only loaded when first accessed.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class LazyMap<K, V> extends AbstractMap<K, V> {
+
+  private final Supplier<Map<K, V>> loader;
+  private volatile Map<K, V> map;
+
+  LazyMap(Supplier<Map<K, V>> loader) {
+    this.loader = loader;
+  }
+
+  private Map<K, V> map() {
+    Map<K, V> result = map;
+    if (result == null) {
+      synchronized (this) {
+        result = map;
+        if (result == null) {
+          result = loader.get();
+          map = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public V get(Object key) {
+    return map().get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return map().containsKey(key);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return map().put(key, value);
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return map().entrySet();
+  }
+
+}
@@ -99,7 +99,8 @@ public class Paginator {
       int pages = (int) Math.ceil((double) count / pageSize);
 
       Writer writer = context.writer();
-      if (preferences.isDisabled(Preferences.RESULT_PAGING) || pages == 1) {
+      // there's no way to read the keys from a dumb terminal
+      if (preferences.isDisabled(Preferences.RESULT_PAGING) || pages == 1 || Terminal.TYPE_DUMB.equals(terminal.getType())) {
         data.forEach(item -> consumer.accept(writer, item));
         return;
       }
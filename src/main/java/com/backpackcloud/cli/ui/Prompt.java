@@ -25,6 +25,7 @@
 package com.backpackcloud.cli.ui;
 
 import com.backpackcloud.cli.Displayable;
+import com.backpackcloud.cli.Session;
 import com.backpackcloud.cli.Writer;
 import org.jline.terminal.Terminal;
 import org.jline.utils.AttributedString;
@@ -33,6 +34,7 @@ import org.jline.utils.AttributedStyle;
 public class Prompt {
 
   private final Writer writer;
+  private final Session session;
   private final Terminal terminal;
   private final Theme theme;
 
@@ -45,6 +47,23 @@ public class Prompt {
 
   private boolean isOpened;
 
+  public Prompt(Theme theme,
+                Writer writer,
+                Session session,
+                String tail,
+                String separator,
+                String head,
+                String foreground,
+                String background) {
+    this(theme, writer, session, session.terminal(), tail, separator, head, foreground, background);
+  }
+
+  /**
+   * @deprecated prompts are shown to a session, use
+   * {@link #Prompt(Theme, Writer, Session, String, String, String, String, String)}.
+   * Prompts created from a terminal have no {@link #session() session}.
+   */
+  @Deprecated
   public Prompt(Theme theme,
                 Writer writer,
                 Terminal terminal,
@@ -53,8 +72,21 @@ public class Prompt {
                 String head,
                 String foreground,
                 String background) {
+    this(theme, writer, null, terminal, tail, separator, head, foreground, background);
+  }
+
+  private Prompt(Theme theme,
+                 Writer writer,
+                 Session session,
+                 Terminal terminal,
+                 String tail,
+                 String separator,
+                 String head,
+                 String foreground,
+                 String background) {
     this.theme = theme;
     this.writer = writer;
+    this.session = session;
     this.terminal = terminal;
     this.tail = theme.iconMap().symbolOf(tail);
     this.separator = theme.iconMap().symbolOf(separator);
@@ -160,6 +192,14 @@ public class Prompt {
     return writer;
   }
 
+  /**
+   * @return the session the prompt is shown to, or {@code null} if the prompt was created
+   * from a terminal only
+   */
+  public Session session() {
+    return session;
+  }
+
   public void writeIndicator(String style) {
     writer.withStyle(style).write(theme.iconMap().symbolOf("prompt")).write(" ");
   }
@@ -176,6 +216,17 @@ public class Prompt {
     return this;
   }
 
+  public static Prompt create(Theme theme, Writer writer, Session session, String tail, String separator, String head) {
+    return new Prompt(theme, writer, session, tail, separator, head,
+      "prompt-segment-fg", "prompt-segment-bg"
+    );
+  }
+
+  /**
+   * @deprecated prompts are shown to a session, use
+   * {@link #create(Theme, Writer, Session, String, String, String)}.
+   */
+  @Deprecated
   public static Prompt create(Theme theme, Writer writer, Terminal terminal, String tail, String separator, String head) {
     return new Prompt(theme, writer, terminal, tail, separator, head,
       "prompt-segment-fg", "prompt-segment-bg"
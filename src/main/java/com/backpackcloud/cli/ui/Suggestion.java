@@ -70,6 +70,17 @@ public interface Suggestion {
   Optional<String> group();
 
   default Candidate toCandidate() {
+    return toCandidate(0);
+  }
+
+  /**
+   * Creates a candidate with the given rank. Candidates with lower ranks are
+   * presented first.
+   *
+   * @param rank the position of this suggestion among the others
+   * @return the candidate for this suggestion
+   */
+  default Candidate toCandidate(int rank) {
     return new Candidate(
       this.value(),
       this.value(),
@@ -77,7 +88,8 @@ public interface Suggestion {
       this.description().orElse(null),
       null,
       null,
-      this.isComplete()
+      this.isComplete(),
+      rank
     );
   }
 
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui;
+
+import org.jline.terminal.spi.SystemStream;
+import org.jline.terminal.spi.TerminalProvider;
+
+import java.util.List;
+
+/**
+ * Tells whether the standard streams of this process are attached to a terminal.
+ * <p>
+ * The terminal type can't tell it ({@code TERM=dumb} is also used for real terminals)
+ * and {@link System#console()} doesn't either since JDK 22, so the JLine providers are
+ * asked instead, in the same order the terminal builder tries them.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public final class TerminalStreams {
+
+  private static final List<String> PROVIDERS = List.of("ffm", "jni", "exec");
+
+  private TerminalStreams() {
+  }
+
+  /**
+   * @param stream the stream to check
+   * @return {@code true} if the stream is attached to a terminal, {@code false} if it's
+   * redirected or if no provider is able to tell
+   */
+  public static boolean isTerminal(SystemStream stream) {
+    for (String name : PROVIDERS) {
+      try {
+        return TerminalProvider.load(name).isSystemStream(stream);
+      } catch (Exception | LinkageError e) {
+        // the provider is not available in this platform or JDK, trying the next one
+      }
+    }
+    return false;
+  }
+
+}
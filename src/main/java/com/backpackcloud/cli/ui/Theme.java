@@ -28,35 +28,144 @@ import com.backpackcloud.configuration.Configuration;
 import com.backpackcloud.configuration.ResourceConfiguration;
 import com.backpackcloud.io.Deserializer;
 
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 
 public record Theme(ColorMap colorMap, IconMap iconMap, StyleMap styleMap) {
 
+  /**
+   * The system property with the file to cache the parsed theme in. Once the file
+   * is written, themes are loaded from it without parsing the YAML resources until
+   * one of them changes.
+   */
+  public static final String CACHE_PROPERTY = "zipper.theme.cache";
+
+  private static final String COLORS = "colors";
+  private static final String ICONS = "icons";
+  private static final String STYLES = "styles";
+  private static final List<String> MAPS = List.of(COLORS, ICONS, STYLES);
+
   public static Theme create(Deserializer deserializer) {
-    Function<String, Map<String, String>> loadMap = name -> {
-      Configuration configuration = new ResourceConfiguration("META-INF/zipper/" + name + ".yml");
-      Map<String, String> map = deserializer.deserialize(configuration.read(), HashMap.class);
-
-      Configuration extraMap = new ResourceConfiguration("META-INF/config/" + name + ".yml");
-      if (extraMap.isSet()) {
-        String content = extraMap.read();
-        if (content != null && !content.isEmpty()) {
-          map.putAll(deserializer.deserialize(extraMap.read(), HashMap.class));
-        }
-      }
-      return map;
-    };
-    ColorMap colorMap = new ColorMap(loadMap.apply("colors"));
-    IconMap iconMap = new IconMap(loadMap.apply("icons"));
-
-    Map<String, String> styleMap = loadMap.apply("styles");
+    Path cache = cacheFile();
+    if (cache != null) {
+      return create(deserializer, cache);
+    }
+    ColorMap colorMap = new ColorMap(loadMap(deserializer, COLORS));
+    IconMap iconMap = new IconMap(loadMap(deserializer, ICONS));
+    StyleMap styleMap = new StyleMap(loadStyles(deserializer, colorMap));
+
+    return new Theme(colorMap, iconMap, styleMap);
+  }
+
+  /**
+   * Creates a theme from the given cache file. The resources are parsed and the
+   * file is rewritten if it doesn't exist or was built from other resources.
+   *
+   * @param deserializer the deserializer for the theme resources
+   * @param cache        the cache file
+   * @return the created theme
+   */
+  public static Theme create(Deserializer deserializer, Path cache) {
+    Map<String, Map<String, String>> maps = loadCached(deserializer, cache);
+
+    return new Theme(new ColorMap(maps.get(COLORS)), new IconMap(maps.get(ICONS)), new StyleMap(maps.get(STYLES)));
+  }
+
+  /**
+   * Creates a theme that only reads its resources when they're first needed, which
+   * is cheaper for short executions that may not even print anything styled.
+   *
+   * @param deserializer the deserializer for the theme resources
+   * @return a theme that loads itself on demand
+   */
+  public static Theme lazy(Deserializer deserializer) {
+    Path cache = cacheFile();
+    if (cache != null) {
+      // the cache holds every map, so they are all read at once
+      LazyMap<String, Map<String, String>> maps = new LazyMap<>(() -> loadCached(deserializer, cache));
+      return new Theme(
+        new ColorMap(new LazyMap<>(() -> maps.get(COLORS))),
+        new IconMap(new LazyMap<>(() -> maps.get(ICONS))),
+        new StyleMap(new LazyMap<>(() -> maps.get(STYLES)))
+      );
+    }
+    ColorMap colorMap = new ColorMap(new LazyMap<>(() -> loadMap(deserializer, COLORS)));
+    IconMap iconMap = new IconMap(new LazyMap<>(() -> loadMap(deserializer, ICONS)));
+    StyleMap styleMap = new StyleMap(new LazyMap<>(() -> loadStyles(deserializer, colorMap)));
+
+    return new Theme(colorMap, iconMap, styleMap);
+  }
+
+  private static Path cacheFile() {
+    String file = System.getProperty(CACHE_PROPERTY);
+    return file == null || file.isBlank() ? null : Path.of(file);
+  }
+
+  private static Map<String, Map<String, String>> loadCached(Deserializer deserializer, Path file) {
+    // reading the resources is cheap, parsing them is what the cache saves
+    Map<String, String> sources = readSources(MAPS);
+    long checksum = ThemeCache.checksum(sources);
+    ThemeCache cache = new ThemeCache(file);
+
+    return cache.read(checksum)
+      .filter(maps -> maps.keySet().containsAll(MAPS))
+      .orElseGet(() -> {
+        Map<String, String> colors = parseMap(deserializer, sources, COLORS);
+        Map<String, String> styles = parseMap(deserializer, sources, STYLES);
+        colors.keySet().stream()
+          .filter(color -> !styles.containsKey(color))
+          .forEach(color -> styles.put(color, colors.get(color)));
+
+        Map<String, Map<String, String>> maps = new LinkedHashMap<>();
+        maps.put(COLORS, colors);
+        maps.put(ICONS, parseMap(deserializer, sources, ICONS));
+        maps.put(STYLES, styles);
+        cache.write(checksum, maps);
+        return maps;
+      });
+  }
+
+  private static Map<String, String> readSources(List<String> names) {
+    Map<String, String> sources = new LinkedHashMap<>();
+    for (String name : names) {
+      sources.put(baseResource(name), new ResourceConfiguration(baseResource(name)).read());
+      Configuration extraMap = new ResourceConfiguration(extraResource(name));
+      sources.put(extraResource(name), extraMap.isSet() ? extraMap.read() : null);
+    }
+    return sources;
+  }
+
+  private static Map<String, String> parseMap(Deserializer deserializer, Map<String, String> sources, String name) {
+    Map<String, String> map = deserializer.deserialize(sources.get(baseResource(name)), HashMap.class);
+
+    String content = sources.get(extraResource(name));
+    if (content != null && !content.isEmpty()) {
+      map.putAll(deserializer.deserialize(content, HashMap.class));
+    }
+    return map;
+  }
+
+  private static Map<String, String> loadStyles(Deserializer deserializer, ColorMap colorMap) {
+    Map<String, String> styleMap = loadMap(deserializer, STYLES);
     colorMap.colors().stream()
       .filter(color -> !styleMap.containsKey(color))
       .forEach(color -> styleMap.put(color, colorMap.valueOf(color)));
+    return styleMap;
+  }
+
+  private static Map<String, String> loadMap(Deserializer deserializer, String name) {
+    return parseMap(deserializer, readSources(List.of(name)), name);
+  }
+
+  private static String baseResource(String name) {
+    return "META-INF/zipper/" + name + ".yml";
+  }
 
-    return new Theme(colorMap, iconMap, new StyleMap(styleMap));
+  private static String extraResource(String name) {
+    return "META-INF/config/" + name + ".yml";
   }
 
 }
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+/**
+ * A binary copy of the theme maps, already merged with their overrides, so a theme
+ * can be loaded without parsing its YAML resources.
+ * <p>
+ * The file is keyed by a checksum of the resources it was built from. If any of them
+ * changes, the cache is ignored and rewritten from the parsed resources.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class ThemeCache {
+
+  private static final int MAGIC = 0x7A746865;
+  private static final int VERSION = 1;
+  // far more than any theme has, anything bigger comes from a corrupted file
+  private static final int MAX_SIZE = 1 << 16;
+
+  private final Path file;
+
+  ThemeCache(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Computes the key of the given sources. A missing source counts as a different
+   * content than an empty one.
+   *
+   * @param sources the content of each resource, or {@code null} if it's missing
+   * @return the checksum of the sources
+   */
+  static long checksum(Map<String, String> sources) {
+    CRC32C crc = new CRC32C();
+    ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+    sources.forEach((name, content) -> {
+      crc.update(name.getBytes(StandardCharsets.UTF_8));
+      byte[] bytes = content == null ? null : content.getBytes(StandardCharsets.UTF_8);
+      crc.update(length.clear().putInt(bytes == null ? -1 : bytes.length).flip());
+      if (bytes != null) {
+        crc.update(bytes);
+      }
+    });
+    return crc.getValue();
+  }
+
+  /**
+   * Reads the maps from the cache file.
+   *
+   * @param checksum the checksum of the current sources
+   * @return the cached maps, or an empty optional if the file is missing, corrupted
+   * or was built from other sources
+   */
+  Optional<Map<String, Map<String, String>>> read(long checksum) {
+    if (!Files.isRegularFile(file)) {
+      return Optional.empty();
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readLong() != checksum) {
+        return Optional.empty();
+      }
+      int count = input.readInt();
+      if (count < 0 || count > MAX_SIZE) {
+        return Optional.empty();
+      }
+      Map<String, Map<String, String>> maps = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+        String name = input.readUTF();
+        int size = input.readInt();
+        if (size < 0 || size > MAX_SIZE) {
+          return Optional.empty();
+        }
+        Map<String, String> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int j = 0; j < size; j++) {
+          String key = input.readUTF();
+          map.put(key, input.readBoolean() ? input.readUTF() : null);
+        }
+        maps.put(name, map);
+      }
+      return Optional.of(maps);
+    } catch (IOException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Writes the maps to the cache file, replacing it atomically so concurrent
+   * launches never read a half written file.
+   *
+   * @param checksum the checksum of the sources the maps were built from
+   * @param maps     the maps to write
+   */
+  void write(long checksum, Map<String, Map<String, String>> maps) {
+    Path temporary = null;
+    try {
+      Path directory = file.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(checksum);
+        output.writeInt(maps.size());
+        for (Map.Entry<String, Map<String, String>> map : maps.entrySet()) {
+          output.writeUTF(map.getKey());
+          output.writeInt(map.getValue().size());
+          for (Map.Entry<String, String> entry : map.getValue().entrySet()) {
+            // YAML may give a null or a non text value even for a map of strings
+            Object value = entry.getValue();
+            output.writeUTF(entry.getKey());
+            output.writeBoolean(value != null);
+            if (value != null) {
+              output.writeUTF(value.toString());
+            }
+          }
+        }
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // the cache only saves time, the theme is already loaded at this point
+      if (temporary != null) {
+        try {
+          Files.deleteIfExists(temporary);
+        } catch (IOException ignored) {
+          // nothing else to do
+        }
+      }
+    }
+  }
+
+}
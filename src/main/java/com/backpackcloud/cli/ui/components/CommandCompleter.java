@@ -24,6 +24,7 @@
 
 package com.backpackcloud.cli.ui.components;
 
+import com.backpackcloud.cli.CLI;
 import com.backpackcloud.cli.Command;
 import com.backpackcloud.cli.CommandInput;
 import com.backpackcloud.cli.Preferences;
@@ -35,40 +36,151 @@ import org.jline.reader.LineReader;
 import org.jline.reader.ParsedLine;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 public class CommandCompleter implements Completer {
 
   private final Map<String, Command> commands;
   private final UserPreferences userPreferences;
+  private final UsageIndex usageIndex;
+  private final FuzzyIndex commandIndex;
+  private final FileSuggester fileSuggester;
 
   public CommandCompleter(Map<String, Command> commands, UserPreferences userPreferences) {
+    this(commands, userPreferences, new UsageIndex());
+  }
+
+  public CommandCompleter(Map<String, Command> commands, UserPreferences userPreferences, UsageIndex usageIndex) {
+    this(commands, userPreferences, usageIndex, new FileSuggester());
+  }
+
+  public CommandCompleter(Map<String, Command> commands,
+                          UserPreferences userPreferences,
+                          UsageIndex usageIndex,
+                          FileSuggester fileSuggester) {
     this.commands = commands;
     this.userPreferences = userPreferences;
+    this.usageIndex = usageIndex;
+    this.commandIndex = new FuzzyIndex();
+    this.fileSuggester = fileSuggester;
+    commands.keySet().forEach(commandIndex::add);
+  }
+
+  public void addCommand(String name) {
+    commandIndex.add(name);
   }
 
   @Override
   public void complete(LineReader reader, ParsedLine line, List<Candidate> candidates) {
     if (userPreferences.isEnabled(Preferences.COMPLETION)) {
-      suggest(line).stream()
-        .map(Suggestion::toCandidate)
-        .forEach(candidates::add);
+      List<Suggestion> suggestions = suggestionsFor(line);
+      for (int i = 0; i < suggestions.size(); i++) {
+        candidates.add(suggestions.get(i).toCandidate(i));
+      }
+    }
+  }
+
+  /**
+   * Suggests the candidates for the word being typed in the given line, best ones first.
+   *
+   * @param line the line being typed
+   * @return the ranked suggestions
+   */
+  public List<Suggestion> suggestionsFor(ParsedLine line) {
+    ParsedLine stage = currentStage(line);
+    return rank(stage, suggest(stage));
+  }
+
+  private List<Suggestion> rank(ParsedLine parsedLine, List<Suggestion> suggestions) {
+    boolean fuzzy = userPreferences.isEnabled(Preferences.FUZZY_COMPLETION);
+    String word = parsedLine.word().substring(0, parsedLine.wordCursor());
+    // the words before the one being completed are the context of each suggestion
+    List<String> key = new ArrayList<>(parsedLine.words().subList(0, parsedLine.wordIndex()));
+    key.add("");
+    int last = key.size() - 1;
+    Map<Suggestion, Integer> matchScores = new HashMap<>();
+    Map<Suggestion, Double> usageScores = new HashMap<>();
+    List<Suggestion> result = new ArrayList<>(suggestions.size());
+    for (Suggestion suggestion : suggestions) {
+      int matchScore = fuzzy ? FuzzyMatcher.score(word, suggestion.value()) : 0;
+      if (matchScore != FuzzyMatcher.NO_MATCH) {
+        key.set(last, suggestion.value());
+        matchScores.put(suggestion, matchScore);
+        usageScores.put(suggestion, usageIndex.score(key));
+        result.add(suggestion);
+      }
     }
+    result.sort(Comparator
+      .comparing((Suggestion suggestion) -> matchScores.get(suggestion)).reversed()
+      .thenComparing(Comparator.comparing((Suggestion suggestion) -> usageScores.get(suggestion)).reversed())
+      .thenComparing(Suggestion::value));
+    return result;
+  }
+
+  // in a pipeline, only the command being typed matters
+  private ParsedLine currentStage(ParsedLine line) {
+    int start = line.words().subList(0, line.wordIndex()).lastIndexOf(CLI.PIPE) + 1;
+    if (start == 0) {
+      return line;
+    }
+    List<String> words = line.words().subList(start, line.words().size());
+    return new ParsedLine() {
+      @Override
+      public String word() {
+        return line.word();
+      }
+
+      @Override
+      public int wordCursor() {
+        return line.wordCursor();
+      }
+
+      @Override
+      public int wordIndex() {
+        return line.wordIndex() - start;
+      }
+
+      @Override
+      public List<String> words() {
+        return words;
+      }
+
+      @Override
+      public String line() {
+        return String.join(" ", words);
+      }
+
+      @Override
+      public int cursor() {
+        return line().length();
+      }
+    };
   }
 
   private List<Suggestion> suggest(ParsedLine parsedLine) {
     List<Suggestion> suggestions = new ArrayList<>();
     List<String> words = parsedLine.words();
     String firstWord = words.getFirst();
+    int wordIndex = parsedLine.wordIndex();
 
-    if (words.size() == 1) {
-      commands.entrySet().stream()
-        .filter(entry -> entry.getKey().startsWith(firstWord))
-        .map(entry -> PromptSuggestion
-          .suggest(entry.getKey())
-          .describedAs(entry.getValue().description())
-          .asPartOf(entry.getValue().type()))
+    if (wordIndex > 0 && isRedirect(words.get(wordIndex - 1))) {
+      suggestions.addAll(fileSuggester.suggest(parsedLine.word()));
+    } else if (words.size() == 1) {
+      Stream<String> names = userPreferences.isEnabled(Preferences.FUZZY_COMPLETION) ?
+        commandIndex.search(firstWord).stream() :
+        commands.keySet().stream().filter(name -> name.startsWith(firstWord));
+      names
+        .map(commands::get)
+        .filter(Objects::nonNull)
+        .map(command -> PromptSuggestion
+          .suggest(command.name())
+          .describedAs(command.description())
+          .asPartOf(command.type()))
         .forEach(suggestions::add);
     } else if (commands.containsKey(firstWord)) {
       suggestions.addAll(commands.get(firstWord).suggest(new CommandInput(parsedLine)));
@@ -77,4 +189,8 @@ public class CommandCompleter implements Completer {
     return suggestions;
   }
 
+  private boolean isRedirect(String word) {
+    return CLI.REDIRECT.equals(word) || CLI.REDIRECT_APPEND.equals(word);
+  }
+
 }
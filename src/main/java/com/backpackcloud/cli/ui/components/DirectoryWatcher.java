@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui.components;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Watches directories for changes in a background thread and notifies a listener
+ * about every created, deleted or modified entry.
+ * <p>
+ * The watch service is only created when the first directory is watched. Directories
+ * in file systems that can't be watched are simply reported as not watched, so the
+ * callers can fall back to something else.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class DirectoryWatcher implements AutoCloseable {
+
+  private final Listener listener;
+  private final Map<Path, WatchKey> keys;
+
+  private WatchService watchService;
+  private boolean closed;
+
+  DirectoryWatcher(Listener listener) {
+    this.listener = listener;
+    this.keys = new HashMap<>();
+  }
+
+  /**
+   * Starts watching the given directory.
+   *
+   * @param directory the directory to watch
+   * @return {@code true} if the directory is being watched
+   */
+  synchronized boolean watch(Path directory) {
+    if (keys.containsKey(directory)) {
+      return true;
+    }
+    if (closed) {
+      return false;
+    }
+    try {
+      if (watchService == null) {
+        watchService = FileSystems.getDefault().newWatchService();
+        Thread.ofVirtual().name("directory-watcher").start(this::run);
+      }
+      WatchKey key = directory.register(watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_DELETE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+      keys.put(directory, key);
+      return true;
+    } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+      return false;
+    }
+  }
+
+  synchronized void unwatch(Path directory) {
+    WatchKey key = keys.remove(directory);
+    if (key != null) {
+      key.cancel();
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    keys.clear();
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        // nothing to do, the service is gone anyway
+      }
+    }
+  }
+
+  private void run() {
+    WatchService service;
+    synchronized (this) {
+      service = watchService;
+    }
+    try {
+      while (true) {
+        WatchKey key = service.take();
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            listener.changed(directory, null, event.kind());
+          } else {
+            listener.changed(directory, directory.resolve((Path) event.context()), event.kind());
+          }
+        }
+        if (!key.reset()) {
+          synchronized (this) {
+            keys.remove(directory);
+          }
+          listener.changed(directory, null, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // watcher closed
+    }
+  }
+
+  /**
+   * Receives the changes in the watched directories.
+   */
+  interface Listener {
+
+    /**
+     * Called for every change in a watched directory.
+     *
+     * @param directory the watched directory
+     * @param entry     the changed entry, or {@code null} if the changes are unknown
+     *                  (events were lost or the directory itself is gone)
+     * @param kind      the kind of the change
+     */
+    void changed(Path directory, Path entry, WatchEvent.Kind<?> kind);
+
+  }
+
+}
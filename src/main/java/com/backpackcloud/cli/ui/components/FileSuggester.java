@@ -27,72 +27,271 @@ package com.backpackcloud.cli.ui.components;
 import com.backpackcloud.UnbelievableException;
 import com.backpackcloud.cli.ui.Suggestion;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
-public class FileSuggester {
+/**
+ * Suggests files and directories based on the path typed by the user.
+ * <p>
+ * Directory listings happen in background threads and are cached until the file system
+ * notifies that an entry was created or deleted in the directory. A modified entry only
+ * gets its size read again, so busy directories are not listed over and over. If a
+ * listing takes longer than the time budget, the entries found so far are suggested
+ * while the listing goes on, so the next suggestion already has more to offer.
+ * <p>
+ * All directories are watched through a single watch service, so a suggester is meant
+ * to be shared and closed once it's no longer needed.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class FileSuggester implements AutoCloseable {
+
+  public static final int DEFAULT_MAX_RESULTS = 1000;
+  public static final Duration DEFAULT_TIME_BUDGET = Duration.ofMillis(100);
+
+  private static final int MAX_CACHED_DIRECTORIES = 64;
+  private static final Duration UNWATCHED_LIFETIME = Duration.ofSeconds(2);
+
+  private final int maxResults;
+  private final Duration timeBudget;
+  private final Map<Path, Listing> cache;
+  private final DirectoryWatcher watcher;
+
+  public FileSuggester() {
+    this(DEFAULT_MAX_RESULTS, DEFAULT_TIME_BUDGET);
+  }
+
+  public FileSuggester(int maxResults, Duration timeBudget) {
+    this.maxResults = maxResults;
+    this.timeBudget = timeBudget;
+    this.watcher = new DirectoryWatcher(this::changed);
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest) {
+        if (size() > MAX_CACHED_DIRECTORIES) {
+          watcher.unwatch(eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
 
   private String normalize(String path) {
     return path.replaceAll("\\\\", "/");
   }
 
-  private Suggestion createSuggestion(File suggestion) {
-    String path = normalize(suggestion.getPath());
-    if (suggestion.isDirectory()) {
-      return PromptSuggestion.suggest(path)
+  private Suggestion createSuggestion(Path path, boolean directory, long size) {
+    String value = normalize(path.toString());
+    if (directory) {
+      return PromptSuggestion.suggest(value)
         .asPartOf("Directories")
         .incomplete();
     }
-    return PromptSuggestion.suggest(path)
-      .describedAs(String.format("%d bytes", suggestion.length()))
+    return PromptSuggestion.suggest(value)
+      .describedAs(String.format("%d bytes", size))
       .asPartOf("Files");
   }
 
   public List<Suggestion> suggest(String input) {
-    try {
-      if (input == null || input.isBlank()) {
-        return collect(Paths.get(""));
-      } else {
-        Path path = Paths.get(input);
-        File file = path.toFile();
-        if (file.exists()) {
-          if (file.isDirectory()) {
-            List<Suggestion> result = new ArrayList<>(collect(path));
-            result.add(createSuggestion(file));
-            return result;
-          } else {
-            Path parent = path.getParent();
-            if (parent != null) {
-              return collect(parent);
-            } else {
-              return suggest(null);
-            }
-          }
+    if (input == null || input.isBlank()) {
+      return collect(Paths.get(""), "");
+    } else {
+      Path path = Paths.get(input);
+      BasicFileAttributes attributes = attributesOf(path);
+      Path parent = path.getParent();
+      if (attributes != null) {
+        if (attributes.isDirectory()) {
+          List<Suggestion> result = new ArrayList<>(collect(path, ""));
+          result.add(createSuggestion(path, true, attributes.size()));
+          return result;
+        } else if (parent != null) {
+          return collect(parent, path.getFileName().toString());
         } else {
-          Path parent = path.getParent();
-          if (parent != null) {
-            return collect(parent);
-          }
+          return suggest(null);
+        }
+      } else if (parent != null) {
+        return collect(parent, path.getFileName().toString());
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  private List<Suggestion> collect(Path path, String prefix) {
+    Listing listing = listing(path.toAbsolutePath().normalize());
+    listing.await(timeBudget);
+    List<Entry> entries = listing.entries();
+    if (entries.isEmpty() && listing.error != null) {
+      throw new UnbelievableException(listing.error);
+    }
+
+    // entries matching what the user typed come first, in case the cap is hit
+    List<Suggestion> result = new ArrayList<>(Math.min(entries.size(), maxResults));
+    for (Entry entry : entries) {
+      if (result.size() == maxResults) {
+        return result;
+      }
+      if (entry.name().startsWith(prefix)) {
+        result.add(createSuggestion(path.resolve(entry.name()), entry.directory(), entry.size()));
+      }
+    }
+    if (!prefix.isEmpty()) {
+      for (Entry entry : entries) {
+        if (result.size() == maxResults) {
+          return result;
         }
+        if (!entry.name().startsWith(prefix)) {
+          result.add(createSuggestion(path.resolve(entry.name()), entry.directory(), entry.size()));
+        }
+      }
+    }
+    return result;
+  }
+
+  private Listing listing(Path directory) {
+    synchronized (cache) {
+      Listing listing = cache.get(directory);
+      if (listing == null || listing.isExpired()) {
+        listing = new Listing(directory, watcher.watch(directory));
+        cache.put(directory, listing);
+        Thread.ofVirtual().name("file-suggester").start(listing);
+      }
+      return listing;
+    }
+  }
+
+  private void changed(Path directory, Path entry, WatchEvent.Kind<?> kind) {
+    if (entry != null && kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+      Listing listing;
+      synchronized (cache) {
+        listing = cache.get(directory);
+      }
+      if (listing != null) {
+        listing.update(entry);
       }
-      return Collections.emptyList();
+      return;
+    }
+    synchronized (cache) {
+      cache.remove(directory);
+    }
+    watcher.unwatch(directory);
+  }
+
+  @Override
+  public void close() {
+    watcher.close();
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  private static BasicFileAttributes attributesOf(Path path) {
+    try {
+      return Files.readAttributes(path, BasicFileAttributes.class);
     } catch (IOException e) {
-      throw new UnbelievableException(e);
+      return null;
     }
   }
 
-  private List<Suggestion> collect(Path path) throws IOException {
-    return Files.list(path)
-      .map(Path::toFile)
-      .map(this::createSuggestion)
-      .collect(Collectors.toList());
+  private record Entry(String name, boolean directory, long size) {
+
+  }
+
+  private static class Listing implements Runnable {
+
+    private final Path directory;
+    private final List<Entry> entries;
+    private final Map<String, Integer> positions;
+    private final CountDownLatch done;
+    private final boolean watched;
+    private final long createdAt;
+
+    private volatile IOException error;
+
+    private Listing(Path directory, boolean watched) {
+      this.directory = directory;
+      this.entries = new ArrayList<>();
+      this.positions = new HashMap<>();
+      this.done = new CountDownLatch(1);
+      this.watched = watched;
+      this.createdAt = System.nanoTime();
+    }
+
+    @Override
+    public void run() {
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+        for (Path path : stream) {
+          // a single call for everything needed, broken links are reported as empty files
+          BasicFileAttributes attributes = attributesOf(path);
+          Entry entry = attributes == null ?
+            new Entry(path.getFileName().toString(), false, 0) :
+            new Entry(path.getFileName().toString(), attributes.isDirectory(), attributes.size());
+          synchronized (entries) {
+            positions.put(entry.name(), entries.size());
+            entries.add(entry);
+          }
+        }
+      } catch (IOException e) {
+        error = e;
+      } catch (DirectoryIteratorException e) {
+        error = e.getCause();
+      } finally {
+        done.countDown();
+      }
+    }
+
+    /**
+     * Reads the attributes of a modified entry again. Entries not listed yet are left
+     * alone, the listing will read them anyway.
+     */
+    private void update(Path path) {
+      String name = path.getFileName().toString();
+      BasicFileAttributes attributes = attributesOf(path);
+      synchronized (entries) {
+        Integer position = positions.get(name);
+        if (position != null) {
+          entries.set(position, attributes == null ?
+            new Entry(name, false, 0) :
+            new Entry(name, attributes.isDirectory(), attributes.size()));
+        }
+      }
+    }
+
+    private void await(Duration timeout) {
+      try {
+        done.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private List<Entry> entries() {
+      synchronized (entries) {
+        return new ArrayList<>(entries);
+      }
+    }
+
+    private boolean isExpired() {
+      // without notifications from the file system, the listing can only be trusted for a while
+      return !watched && System.nanoTime() - createdAt > UNWATCHED_LIFETIME.toNanos();
+    }
+
   }
 
 }
@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui.components;
+
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.preferences.UserPreferences;
+import org.jline.reader.CompletingParsedLine;
+import org.jline.reader.LineReader;
+import org.jline.reader.impl.CompletionMatcherImpl;
+
+import java.util.Map;
+
+/**
+ * Completion matcher that keeps the candidates filtered by the {@link CommandCompleter}
+ * when fuzzy completion is enabled. JLine would otherwise discard every candidate that
+ * doesn't start with the typed word.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class FuzzyCompletionMatcher extends CompletionMatcherImpl {
+
+  private final UserPreferences preferences;
+
+  public FuzzyCompletionMatcher(UserPreferences preferences) {
+    this.preferences = preferences;
+  }
+
+  @Override
+  protected void defaultMatchers(Map<LineReader.Option, Boolean> options,
+                                 boolean prefix,
+                                 CompletingParsedLine line,
+                                 boolean caseInsensitive,
+                                 int errors,
+                                 String originalGroupName) {
+    if (preferences.isEnabled(Preferences.FUZZY_COMPLETION)) {
+      String word = line.word();
+      exact = value -> value.equals(word);
+      matchers.add(simpleMatcher(value -> true));
+    } else {
+      super.defaultMatchers(options, prefix, line, caseInsensitive, errors, originalGroupName);
+    }
+  }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui.components;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * An index of terms for fuzzy searches.
+ * <p>
+ * Each term is indexed by its characters and by every ordered pair of its characters
+ * (not only the adjacent ones). Since a fuzzy pattern is a subsequence of the terms it
+ * matches, every pair of adjacent pattern characters must be one of those pairs, which
+ * narrows the terms down to a few candidates before they are scored by the
+ * {@link FuzzyMatcher}.
+ * <p>
+ * The terms matched by the last search are kept, so a search for a pattern that extends
+ * the previous one (which is what happens while the user types) only looks at them.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class FuzzyIndex {
+
+  private final List<String> terms;
+  private final Map<String, Integer> ids;
+  private final Map<Integer, BitSet> postings;
+
+  private int removed;
+  private String lastPattern;
+  private BitSet lastMatches;
+
+  public FuzzyIndex() {
+    this.terms = new ArrayList<>();
+    this.ids = new HashMap<>();
+    this.postings = new HashMap<>();
+  }
+
+  /**
+   * Adds the term to this index. Adding a term more than once has no effect.
+   *
+   * @param term the term to add
+   */
+  public synchronized void add(String term) {
+    if (ids.containsKey(term)) {
+      return;
+    }
+    int id = terms.size();
+    terms.add(term);
+    ids.put(term, id);
+    index(term, id);
+    lastPattern = null;
+  }
+
+  /**
+   * Removes the term from this index.
+   *
+   * @param term the term to remove
+   */
+  public synchronized void remove(String term) {
+    Integer id = ids.remove(term);
+    if (id == null) {
+      return;
+    }
+    terms.set(id, null);
+    String lower = term.toLowerCase();
+    for (int i = 0; i < lower.length(); i++) {
+      char first = lower.charAt(i);
+      postings.get(key((char) 0, first)).clear(id);
+      for (int j = i + 1; j < lower.length(); j++) {
+        postings.get(key(first, lower.charAt(j))).clear(id);
+      }
+    }
+    lastPattern = null;
+    if (++removed > terms.size() / 2) {
+      compact();
+    }
+  }
+
+  /**
+   * Removes every term that matches the given predicate.
+   *
+   * @param predicate the predicate to test the terms
+   */
+  public synchronized void removeIf(Predicate<String> predicate) {
+    terms.stream()
+      .filter(term -> term != null && predicate.test(term))
+      .toList()
+      .forEach(this::remove);
+  }
+
+  /**
+   * Searches for the terms that match the given pattern.
+   *
+   * @param pattern the pattern typed by the user
+   * @return the matching terms, from the best match to the worst one
+   */
+  public List<String> search(String pattern) {
+    return search(pattern, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Searches for the best terms that match the given pattern.
+   *
+   * @param pattern the pattern typed by the user
+   * @param limit   the maximum number of terms to return
+   * @return the matching terms, from the best match to the worst one
+   */
+  public synchronized List<String> search(String pattern, int limit) {
+    if (pattern.isEmpty()) {
+      return terms.stream()
+        .filter(term -> term != null)
+        .limit(limit)
+        .toList();
+    }
+    String lower = pattern.toLowerCase();
+    BitSet candidates;
+    if (lastPattern != null && lower.startsWith(lastPattern)) {
+      candidates = (BitSet) lastMatches.clone();
+    } else {
+      candidates = copy(key((char) 0, lower.charAt(0)));
+    }
+    for (int i = 1; i < lower.length() && !candidates.isEmpty(); i++) {
+      BitSet posting = postings.get(key(lower.charAt(i - 1), lower.charAt(i)));
+      if (posting == null) {
+        candidates.clear();
+      } else {
+        candidates.and(posting);
+      }
+    }
+
+    BitSet matched = new BitSet();
+    PriorityQueue<Match> best = new PriorityQueue<>(Comparator.comparingInt(Match::score)
+      .thenComparing(Match::term, Comparator.reverseOrder()));
+    for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+      String term = terms.get(id);
+      int score = FuzzyMatcher.score(pattern, term);
+      if (score != FuzzyMatcher.NO_MATCH) {
+        matched.set(id);
+        if (best.size() < limit || score >= best.peek().score()) {
+          best.add(new Match(term, score));
+          if (best.size() > limit) {
+            best.poll();
+          }
+        }
+      }
+    }
+    lastPattern = lower;
+    lastMatches = matched;
+
+    return best.stream()
+      .sorted(Comparator.comparingInt(Match::score).reversed().thenComparing(Match::term))
+      .map(Match::term)
+      .toList();
+  }
+
+  public synchronized int size() {
+    return ids.size();
+  }
+
+  private void index(String term, int id) {
+    String lower = term.toLowerCase();
+    for (int i = 0; i < lower.length(); i++) {
+      char first = lower.charAt(i);
+      posting(key((char) 0, first)).set(id);
+      for (int j = i + 1; j < lower.length(); j++) {
+        posting(key(first, lower.charAt(j))).set(id);
+      }
+    }
+  }
+
+  private void compact() {
+    List<String> live = terms.stream().filter(term -> term != null).toList();
+    terms.clear();
+    ids.clear();
+    postings.clear();
+    removed = 0;
+    for (String term : live) {
+      ids.put(term, terms.size());
+      index(term, terms.size());
+      terms.add(term);
+    }
+  }
+
+  private BitSet copy(int key) {
+    BitSet posting = postings.get(key);
+    return posting == null ? new BitSet() : (BitSet) posting.clone();
+  }
+
+  private BitSet posting(int key) {
+    return postings.computeIfAbsent(key, k -> new BitSet());
+  }
+
+  private static int key(char first, char second) {
+    return first << 16 | second;
+  }
+
+  private record Match(String term, int score) {
+
+  }
+
+}
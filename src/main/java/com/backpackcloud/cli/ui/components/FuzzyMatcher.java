@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui.components;
+
+/**
+ * Scores how well a pattern matches a candidate in a fuzzy way.
+ * <p>
+ * The pattern characters must appear in the candidate in the same order, but not
+ * necessarily next to each other. Matches at the start of the candidate, after a
+ * separator (like {@code -}, {@code _} or {@code .}) or at a camel case hump score
+ * higher, as do consecutive matches. Gaps between matched characters lower the score.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public final class FuzzyMatcher {
+
+  /**
+   * The score of a candidate that doesn't match the pattern.
+   */
+  public static final int NO_MATCH = -1;
+
+  private static final int MATCH = 16;
+  private static final int START_BONUS = 24;
+  private static final int BOUNDARY_BONUS = 20;
+  private static final int HUMP_BONUS = 18;
+  private static final int CONSECUTIVE_BONUS = 16;
+  private static final int CASE_BONUS = 1;
+  private static final int GAP_PENALTY = 2;
+
+  private FuzzyMatcher() {
+
+  }
+
+  /**
+   * Scores the candidate against the pattern. The comparison ignores the case,
+   * but matches with the same case are slightly preferred.
+   *
+   * @param pattern   the pattern typed by the user
+   * @param candidate the candidate to score
+   * @return the score of the best alignment or {@link #NO_MATCH}
+   */
+  public static int score(String pattern, String candidate) {
+    int m = pattern.length();
+    int n = candidate.length();
+    if (m == 0) {
+      return 0;
+    }
+    if (m > n) {
+      return NO_MATCH;
+    }
+
+    // the earliest and the latest positions each pattern char can take, which
+    // also rules out candidates that don't have the pattern as a subsequence
+    int[] first = new int[m];
+    int[] last = new int[m];
+    int position = 0;
+    for (int i = 0; i < m; i++) {
+      char p = lowerCase(pattern.charAt(i));
+      while (position < n && lowerCase(candidate.charAt(position)) != p) {
+        position++;
+      }
+      if (position == n) {
+        return NO_MATCH;
+      }
+      first[i] = position++;
+    }
+    position = n - 1;
+    for (int i = m - 1; i >= 0; i--) {
+      char p = lowerCase(pattern.charAt(i));
+      while (lowerCase(candidate.charAt(position)) != p) {
+        position--;
+      }
+      last[i] = position--;
+    }
+
+    // previous[j]: best score with the previous pattern char matched at j
+    int[] previous = new int[n];
+    int[] current = new int[n];
+
+    for (int i = 0; i < m; i++) {
+      char p = pattern.charAt(i);
+      char lowerP = lowerCase(p);
+      // best of previous[k] + GAP_PENALTY * k for k < j - 1, so the gap penalty
+      // of any earlier match can be applied in constant time
+      int bestBefore = Integer.MIN_VALUE;
+      int k = i == 0 ? 0 : first[i - 1];
+
+      for (int j = first[i]; j <= last[i]; j++) {
+        current[j] = NO_MATCH;
+        char c = candidate.charAt(j);
+
+        if (i > 0) {
+          for (; k <= j - 2 && k <= last[i - 1]; k++) {
+            if (previous[k] != NO_MATCH) {
+              bestBefore = Math.max(bestBefore, previous[k] + GAP_PENALTY * k);
+            }
+          }
+        }
+
+        if (lowerCase(c) != lowerP) {
+          continue;
+        }
+
+        int charScore = MATCH + bonus(candidate, j) + (c == p ? CASE_BONUS : 0);
+
+        if (i == 0) {
+          // leading characters left behind count as a small gap
+          current[j] = charScore + Math.max(0, 8 - j);
+        } else {
+          int best = NO_MATCH;
+          if (j - 1 >= first[i - 1] && j - 1 <= last[i - 1] && previous[j - 1] != NO_MATCH) {
+            best = previous[j - 1] + CONSECUTIVE_BONUS;
+          }
+          if (bestBefore != Integer.MIN_VALUE) {
+            best = Math.max(best, Math.max(0, bestBefore - GAP_PENALTY * (j - 1)));
+          }
+          if (best != NO_MATCH) {
+            current[j] = best + charScore;
+          }
+        }
+      }
+
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+
+    int result = NO_MATCH;
+    for (int j = first[m - 1]; j <= last[m - 1]; j++) {
+      result = Math.max(result, previous[j]);
+    }
+    // prefers shorter candidates when everything else is equal
+    return result == NO_MATCH ? NO_MATCH : Math.max(0, result * 4 - (n - m));
+  }
+
+  private static char lowerCase(char c) {
+    if (c < 128) {
+      return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+    return Character.toLowerCase(c);
+  }
+
+  private static int bonus(String candidate, int index) {
+    if (index == 0) {
+      return START_BONUS;
+    }
+    char previous = candidate.charAt(index - 1);
+    char current = candidate.charAt(index);
+    if (!Character.isLetterOrDigit(previous)) {
+      return BOUNDARY_BONUS;
+    }
+    if (Character.isLowerCase(previous) && Character.isUpperCase(current)) {
+      return HUMP_BONUS;
+    }
+    if (Character.isLetter(previous) && Character.isDigit(current)) {
+      return HUMP_BONUS / 2;
+    }
+    return 0;
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui.components;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A trigram index over history lines, used to find the most recent line that
+ * contains (or starts with) a given term without scanning the whole history.
+ * <p>
+ * Lines are identified by the sequential id assigned when they are added, so a
+ * higher id always means a more recent line. Removed lines leave a hole that is
+ * skipped during searches until the index is rebuilt.
+ * <p>
+ * Trigrams are hashed into a fixed number of buckets instead of being kept as
+ * keys, which keeps the index free of boxing. Two trigrams sharing a bucket only
+ * make the candidate list a bit longer, since every candidate is checked against
+ * the actual term.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+class HistoryIndex {
+
+  private static final int GRAM_SIZE = 3;
+  private static final int BUCKETS = 1 << 16;
+
+  private final Postings[] postings;
+
+  private String[] lines;
+  private int size;
+  private int removed;
+
+  HistoryIndex() {
+    this.postings = new Postings[BUCKETS];
+    this.lines = new String[1024];
+  }
+
+  int add(String line) {
+    if (size == lines.length) {
+      lines = Arrays.copyOf(lines, size * 2);
+    }
+    int id = size++;
+    lines[id] = line;
+    for (int i = 0; i + GRAM_SIZE <= line.length(); i++) {
+      int bucket = bucket(line, i);
+      if (postings[bucket] == null) {
+        postings[bucket] = new Postings();
+      }
+      postings[bucket].add(id);
+    }
+    return id;
+  }
+
+  void remove(int id) {
+    if (id >= 0 && id < size && lines[id] != null) {
+      lines[id] = null;
+      removed++;
+    }
+  }
+
+  /**
+   * @return {@code true} if most of the indexed lines were removed and the index
+   * should be rebuilt to release them.
+   */
+  boolean isSparse() {
+    return size > 1024 && removed > size / 2;
+  }
+
+  /**
+   * Finds the most recent line older than the given id that matches the term.
+   *
+   * @param term     the term to look for
+   * @param beforeId only lines with an id lower than this one are considered
+   * @return the matched line
+   */
+  Optional<Match> search(String term, int beforeId) {
+    int start = Math.min(beforeId, size) - 1;
+    if (term.length() < GRAM_SIZE) {
+      for (int id = start; id >= 0; id--) {
+        if (matches(lines[id], term)) {
+          return Optional.of(new Match(id, lines[id]));
+        }
+      }
+      return Optional.empty();
+    }
+
+    Postings candidates = null;
+    for (int i = 0; i + GRAM_SIZE <= term.length(); i++) {
+      Postings gramPostings = postings[bucket(term, i)];
+      if (gramPostings == null) {
+        // a trigram that was never seen means nothing can match
+        return Optional.empty();
+      }
+      if (candidates == null || gramPostings.size < candidates.size) {
+        candidates = gramPostings;
+      }
+    }
+
+    for (int i = candidates.lastIndexBefore(start + 1); i >= 0; i--) {
+      int id = candidates.ids[i];
+      if (matches(lines[id], term)) {
+        return Optional.of(new Match(id, lines[id]));
+      }
+    }
+    return Optional.empty();
+  }
+
+  private boolean matches(String line, String term) {
+    return line != null && line.contains(term);
+  }
+
+  private int bucket(String text, int start) {
+    int gram = (text.charAt(start) * 31 + text.charAt(start + 1)) * 31 + text.charAt(start + 2);
+    return (gram * 0x9E3779B1) >>> 16;
+  }
+
+  /**
+   * A line found in the index.
+   *
+   * @param id   the id of the line, which can be used to continue searching older lines
+   * @param line the line
+   */
+  record Match(int id, String line) {
+
+  }
+
+  private static class Postings {
+
+    private int[] ids = new int[4];
+    private int size;
+
+    void add(int id) {
+      // a line repeating a trigram shouldn't be listed twice
+      if (size > 0 && ids[size - 1] == id) {
+        return;
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+
+    int lastIndexBefore(int id) {
+      int index = Arrays.binarySearch(ids, 0, size, id);
+      return (index >= 0 ? index : -index - 1) - 1;
+    }
+
+  }
+
+}
@@ -0,0 +1,688 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui.components;
+
+import com.backpackcloud.UnbelievableException;
+import org.jline.keymap.KeyMap;
+import org.jline.reader.Buffer;
+import org.jline.reader.History;
+import org.jline.reader.LineReader;
+import org.jline.reader.Reference;
+import org.jline.reader.Widget;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A command history backed by an append-only file.
+ * <p>
+ * Lines are kept unique (running a command again moves it to the end of the history)
+ * and the history is capped to a maximum size. Appends are queued and written in
+ * batches by a background thread, which also compacts the file once it holds too
+ * many stale records. The file is read in the background too, so the first prompt
+ * doesn't wait for a large history to load.
+ * <p>
+ * Searches are answered by a trigram index, built in the background once the file is
+ * read. The {@link #SEARCH_WIDGET search widget} replaces the default reverse
+ * search: it looks for the text typed so far and each new call brings an older match.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class PersistentHistory implements History {
+
+  public static final int DEFAULT_MAX_SIZE = 100_000;
+
+  public static final String SEARCH_WIDGET = "zipper-history-search-backward";
+
+  private static final int BATCH_SIZE = 512;
+
+  private final Path file;
+  private final int maxSize;
+  private final List<Item> items;
+  private final Map<String, Item> lines;
+  private final BlockingQueue<Object> pending;
+
+  private LineReader reader;
+  private HistoryIndex index;
+  private Thread writer;
+  private int offset;
+  private int cursor;
+  private int fileRecords;
+  private long sequence;
+
+  public PersistentHistory(Path file) {
+    this(file, DEFAULT_MAX_SIZE);
+  }
+
+  public PersistentHistory(Path file, int maxSize) {
+    this.file = file;
+    this.maxSize = Math.max(1, maxSize);
+    this.items = new ArrayList<>();
+    this.lines = new HashMap<>();
+    this.pending = new LinkedBlockingQueue<>();
+  }
+
+  @Override
+  public synchronized void attach(LineReader reader) {
+    if (this.reader != reader) {
+      this.reader = reader;
+      reader.getWidgets().put(SEARCH_WIDGET, searchWidget(reader));
+      reader.getKeyMaps().get(LineReader.MAIN).bind(new Reference(SEARCH_WIDGET), KeyMap.ctrl('R'));
+      load();
+    }
+  }
+
+  @Override
+  public synchronized void load() {
+    if (writer == null) {
+      writer = Thread.ofVirtual()
+        .name("history-writer")
+        .start(this::run);
+    }
+  }
+
+  @Override
+  public void save() throws IOException {
+    Flush flush = new Flush(new CompletableFuture<>());
+    synchronized (this) {
+      if (writer == null) {
+        return;
+      }
+      pending.add(flush);
+    }
+    try {
+      flush.done().join();
+    } catch (Exception e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new UnbelievableException(e.getCause());
+    }
+  }
+
+  @Override
+  public void write(Path file, boolean incremental) throws IOException {
+    List<Item> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(items);
+    }
+    writeAll(file, snapshot);
+  }
+
+  @Override
+  public void append(Path file, boolean incremental) throws IOException {
+    List<Item> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(items);
+    }
+    StringBuilder records = new StringBuilder();
+    snapshot.forEach(item -> records.append(encode(item)));
+    Files.writeString(file, records, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  @Override
+  public void read(Path file, boolean checkDuplicates) throws IOException {
+    for (Item item : readAll(file)) {
+      add(item.time, item.line);
+    }
+  }
+
+  @Override
+  public synchronized void purge() throws IOException {
+    items.forEach(item -> item.removed = true);
+    items.clear();
+    lines.clear();
+    index = null;
+    offset = 0;
+    cursor = 0;
+    fileRecords = 0;
+    Files.deleteIfExists(file);
+  }
+
+  @Override
+  public synchronized int size() {
+    return items.size();
+  }
+
+  @Override
+  public synchronized int index() {
+    return offset + cursor;
+  }
+
+  @Override
+  public synchronized int first() {
+    return offset;
+  }
+
+  @Override
+  public synchronized int last() {
+    return offset + items.size() - 1;
+  }
+
+  @Override
+  public synchronized String get(int index) {
+    return items.get(index - offset).line;
+  }
+
+  @Override
+  public synchronized void add(Instant time, String line) {
+    if (line == null || line.isBlank()) {
+      return;
+    }
+    Item previous = lines.get(line);
+    if (previous != null) {
+      remove(previous);
+    }
+    Item item = new Item(time, line);
+    item.sequence = sequence++;
+    items.add(item);
+    lines.put(line, item);
+    if (index != null) {
+      item.id = index.add(line);
+    }
+    trim();
+    cursor = items.size();
+    pending.add(encode(item));
+  }
+
+  @Override
+  public synchronized ListIterator<Entry> iterator(int index) {
+    return new EntryIterator(Math.max(0, Math.min(index - offset, items.size())));
+  }
+
+  @Override
+  public synchronized String current() {
+    if (cursor >= items.size()) {
+      return "";
+    }
+    return items.get(cursor).line;
+  }
+
+  @Override
+  public synchronized boolean previous() {
+    if (cursor <= 0) {
+      return false;
+    }
+    cursor--;
+    return true;
+  }
+
+  @Override
+  public synchronized boolean next() {
+    if (cursor >= items.size()) {
+      return false;
+    }
+    cursor++;
+    return true;
+  }
+
+  @Override
+  public synchronized boolean moveToFirst() {
+    if (!items.isEmpty() && cursor != 0) {
+      cursor = 0;
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized boolean moveToLast() {
+    int last = items.size() - 1;
+    if (last >= 0 && last != cursor) {
+      cursor = last;
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized boolean moveTo(int index) {
+    int position = index - offset;
+    if (position >= 0 && position < items.size()) {
+      cursor = position;
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized void moveToEnd() {
+    cursor = items.size();
+  }
+
+  @Override
+  public synchronized void resetIndex() {
+    cursor = Math.min(cursor, items.size());
+  }
+
+  /**
+   * Finds the most recent line that contains the given term.
+   *
+   * @param term the term to look for
+   * @return the most recent matching line
+   */
+  public Optional<String> search(String term) {
+    return searchBackward(term, Integer.MAX_VALUE).map(HistoryIndex.Match::line);
+  }
+
+  private synchronized Optional<HistoryIndex.Match> searchBackward(String term, int beforeId) {
+    return searchIndex().search(term, beforeId);
+  }
+
+  private HistoryIndex searchIndex() {
+    if (index == null || index.isSparse()) {
+      index = new HistoryIndex();
+      items.forEach(item -> item.id = index.add(item.line));
+    }
+    return index;
+  }
+
+  private Widget searchWidget(LineReader reader) {
+    return new Widget() {
+
+      private String term = "";
+      private String lastMatch;
+      private int beforeId = Integer.MAX_VALUE;
+
+      @Override
+      public boolean apply() {
+        Buffer buffer = reader.getBuffer();
+        String current = buffer.toString();
+        if (!current.equals(lastMatch)) {
+          term = current;
+          beforeId = Integer.MAX_VALUE;
+        }
+        Optional<HistoryIndex.Match> match = searchBackward(term, beforeId);
+        if (match.isEmpty()) {
+          reader.callWidget(LineReader.BEEP);
+          return true;
+        }
+        beforeId = match.get().id();
+        lastMatch = match.get().line();
+        buffer.clear();
+        buffer.write(lastMatch);
+        return true;
+      }
+    };
+  }
+
+  private void prepareIndex() {
+    List<Item> snapshot;
+    synchronized (this) {
+      if (index != null) {
+        return;
+      }
+      snapshot = new ArrayList<>(items);
+    }
+    // indexing a large history takes a while, so it's done without holding the lock
+    HistoryIndex prepared = new HistoryIndex();
+    int[] ids = new int[snapshot.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = prepared.add(snapshot.get(i).line);
+    }
+    synchronized (this) {
+      if (index != null) {
+        return;
+      }
+      for (int i = 0; i < ids.length; i++) {
+        Item item = snapshot.get(i);
+        if (item.removed) {
+          prepared.remove(ids[i]);
+        } else {
+          item.id = ids[i];
+        }
+      }
+      // anything added in the meantime is at the end of the list
+      int added = items.size();
+      while (added > 0 && items.get(added - 1).id < 0) {
+        added--;
+      }
+      for (Item item : items.subList(added, items.size())) {
+        item.id = prepared.add(item.line);
+      }
+      index = prepared;
+    }
+  }
+
+  private void remove(Item item) {
+    items.remove(positionOf(item));
+    item.removed = true;
+    if (index != null) {
+      index.remove(item.id);
+    }
+    lines.remove(item.line);
+  }
+
+  // the items are sorted by their sequence, so there's no need to scan the list
+  private int positionOf(Item item) {
+    int low = 0;
+    int high = items.size() - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long sequence = items.get(middle).sequence;
+      if (sequence < item.sequence) {
+        low = middle + 1;
+      } else if (sequence > item.sequence) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    throw new NoSuchElementException(item.line);
+  }
+
+  private void trim() {
+    if (items.size() <= maxSize) {
+      return;
+    }
+    // drops a bit more than needed so the next adds don't shift the whole list again
+    int excess = Math.min(items.size(), items.size() - maxSize + maxSize / 100);
+    List<Item> dropped = items.subList(0, excess);
+    for (Item item : dropped) {
+      item.removed = true;
+      lines.remove(item.line);
+      if (index != null) {
+        index.remove(item.id);
+      }
+    }
+    dropped.clear();
+    offset += excess;
+    cursor = Math.max(0, cursor - excess);
+  }
+
+  private void run() {
+    try {
+      merge(readAll(file));
+    } catch (IOException e) {
+      // an unreadable history shouldn't break the prompt, new entries are still recorded
+    }
+    prepareIndex();
+    List<Object> batch = new ArrayList<>(BATCH_SIZE);
+    while (true) {
+      try {
+        batch.add(pending.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      pending.drainTo(batch, BATCH_SIZE - 1);
+      IOException error = flush(batch);
+      for (Object record : batch) {
+        if (record instanceof Flush flush) {
+          if (error != null) {
+            flush.done().completeExceptionally(error);
+          } else {
+            flush.done().complete(null);
+          }
+        }
+      }
+      batch.clear();
+    }
+  }
+
+  private IOException flush(List<Object> batch) {
+    StringBuilder records = new StringBuilder();
+    int count = 0;
+    for (Object record : batch) {
+      if (record instanceof String line) {
+        records.append(line);
+        count++;
+      }
+    }
+    try {
+      if (count > 0) {
+        Files.writeString(file, records, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileRecords += count;
+      }
+      if (fileRecords > maxSize * 2) {
+        compact();
+      }
+      return null;
+    } catch (IOException e) {
+      return e;
+    }
+  }
+
+  private void compact() throws IOException {
+    List<Item> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(items);
+    }
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    writeAll(temporary, snapshot);
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    fileRecords = snapshot.size();
+  }
+
+  private synchronized void merge(List<Item> stored) {
+    List<Item> merged = new ArrayList<>(stored.size() + items.size());
+    for (Item item : stored) {
+      // lines added while the file was being read are more recent
+      if (!lines.containsKey(item.line)) {
+        merged.add(item);
+      }
+    }
+    int loaded = merged.size();
+    boolean atEnd = cursor >= items.size();
+    merged.forEach(item -> lines.put(item.line, item));
+    merged.addAll(items);
+    items.clear();
+    items.addAll(merged);
+    items.forEach(item -> item.sequence = sequence++);
+    index = null;
+    cursor = atEnd ? items.size() : cursor + loaded;
+    trim();
+  }
+
+  private List<Item> readAll(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return new ArrayList<>();
+    }
+    Map<String, Instant> unique = new LinkedHashMap<>();
+    int records = 0;
+    try (BufferedReader bufferedReader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String record;
+      while ((record = bufferedReader.readLine()) != null) {
+        int separator = record.indexOf(':');
+        if (separator <= 0) {
+          continue;
+        }
+        try {
+          Instant time = Instant.ofEpochMilli(Long.parseLong(record.substring(0, separator)));
+          String line = decode(record.substring(separator + 1));
+          // removing first moves a repeated line to its latest position
+          unique.remove(line);
+          unique.put(line, time);
+          records++;
+        } catch (NumberFormatException e) {
+          // skips corrupted records
+        }
+      }
+    }
+    if (file.equals(this.file)) {
+      fileRecords = records;
+    }
+    List<Item> result = new ArrayList<>(Math.min(unique.size(), maxSize));
+    int skip = unique.size() - maxSize;
+    Iterator<Map.Entry<String, Instant>> iterator = unique.entrySet().iterator();
+    for (int i = 0; iterator.hasNext(); i++) {
+      Map.Entry<String, Instant> entry = iterator.next();
+      if (i >= skip) {
+        result.add(new Item(entry.getValue(), entry.getKey()));
+      }
+    }
+    return result;
+  }
+
+  private void writeAll(Path file, List<Item> snapshot) throws IOException {
+    try (var bufferedWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (Item item : snapshot) {
+        bufferedWriter.write(encode(item));
+      }
+    }
+  }
+
+  private static String encode(Item item) {
+    StringBuilder record = new StringBuilder(item.line.length() + 16)
+      .append(item.time.toEpochMilli())
+      .append(':');
+    for (int i = 0; i < item.line.length(); i++) {
+      char c = item.line.charAt(i);
+      switch (c) {
+        case '\\' -> record.append("\\\\");
+        case '\n' -> record.append("\\n");
+        case '\r' -> record.append("\\r");
+        default -> record.append(c);
+      }
+    }
+    return record.append('\n').toString();
+  }
+
+  private static String decode(String text) {
+    if (text.indexOf('\\') < 0) {
+      return text;
+    }
+    StringBuilder line = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\\' && i + 1 < text.length()) {
+        char next = text.charAt(++i);
+        switch (next) {
+          case 'n' -> line.append('\n');
+          case 'r' -> line.append('\r');
+          default -> line.append(next);
+        }
+      } else {
+        line.append(c);
+      }
+    }
+    return line.toString();
+  }
+
+  private static class Item {
+
+    private final Instant time;
+    private final String line;
+    private int id = -1;
+    private long sequence;
+    private boolean removed;
+
+    private Item(Instant time, String line) {
+      this.time = time;
+      this.line = line;
+    }
+
+  }
+
+  private synchronized Entry entryAt(int position) {
+    if (position < 0 || position >= items.size()) {
+      throw new NoSuchElementException();
+    }
+    Item item = items.get(position);
+    return new HistoryEntry(offset + position, item.time, item.line);
+  }
+
+  private class EntryIterator implements ListIterator<Entry> {
+
+    private int position;
+
+    private EntryIterator(int position) {
+      this.position = position;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < size();
+    }
+
+    @Override
+    public Entry next() {
+      return entryAt(position++);
+    }
+
+    @Override
+    public boolean hasPrevious() {
+      return position > 0;
+    }
+
+    @Override
+    public Entry previous() {
+      return entryAt(--position);
+    }
+
+    @Override
+    public int nextIndex() {
+      return position;
+    }
+
+    @Override
+    public int previousIndex() {
+      return position - 1;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(Entry entry) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(Entry entry) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  // a request to be told once everything queued before it is written
+  private record Flush(CompletableFuture<Void> done) {
+
+  }
+
+  private record HistoryEntry(int index, Instant time, String line) implements Entry {
+
+  }
+
+}
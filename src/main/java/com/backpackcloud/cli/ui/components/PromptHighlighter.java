@@ -63,8 +63,42 @@ public class PromptHighlighter implements Highlighter {
       return new AttributedString(buffer);
     }
     Parser parser = reader.getParser();
+    AttributedStringBuilder builder = new AttributedStringBuilder();
+    boolean commandError = false;
+
+    // each command of a pipeline is highlighted on its own
+    int start = 0;
+    char quote = 0;
+    for (int i = 0; i < buffer.length(); i++) {
+      char c = buffer.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '|') {
+        commandError |= highlight(parser, buffer.substring(start, i), builder);
+        builder.style(AttributedStyle.DEFAULT).append(c);
+        start = i + 1;
+      }
+    }
+    commandError |= highlight(parser, buffer.substring(start), builder);
+
+    if (commandError) {
+      builder.append("  ")
+        .style(AttributedStyle::blink)
+        .append(theme.iconMap().symbolOf("warning"));
+    }
+
+    return builder.toAttributedString();
+  }
+
+  private boolean highlight(Parser parser, String buffer, AttributedStringBuilder builder) {
     String command = parser.getCommand(buffer);
-    String remaining = buffer.substring(buffer.indexOf(command) + command.length());
+    int commandStart = buffer.indexOf(command);
+    String leading = buffer.substring(0, commandStart);
+    String remaining = buffer.substring(commandStart + command.length());
 
     String commandColor;
     String commandArgsColor;
@@ -80,19 +114,15 @@ public class PromptHighlighter implements Highlighter {
       commandError = true;
     }
 
-    AttributedStringBuilder builder = new AttributedStringBuilder()
+    builder
+      .style(AttributedStyle.DEFAULT)
+      .append(leading)
       .style(StyleBuilder.newSimpleBuilder(theme.colorMap()).parse(commandColor).set())
       .append(command)
       .style(StyleBuilder.newSimpleBuilder(theme.colorMap()).parse(commandArgsColor).set())
       .append(remaining);
 
-    if (commandError) {
-      builder.append("  ")
-        .style(AttributedStyle::blink)
-        .append(theme.iconMap().symbolOf("warning"));
-    }
-
-    return builder.toAttributedString();
+    return commandError;
   }
 
   @Override
@@ -0,0 +1,280 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui.components;
+
+import com.backpackcloud.cli.ui.Suggestion;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Suggests files anywhere under a root directory by fuzzy matching their paths.
+ * <p>
+ * The paths are indexed in background virtual threads as soon as the suggester is
+ * created, walking directories in parallel, and kept up to date by watching the indexed
+ * directories. Suggestions come straight from a {@link FuzzyIndex} in memory, so they
+ * are available (although maybe partial) even while the first walk is still running.
+ * <p>
+ * Since the suggestions don't share a prefix with what the user typed, they are better
+ * presented with the fuzzy completion preference enabled.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class RecursiveFileSuggester implements AutoCloseable {
+
+  public static final int DEFAULT_MAX_DEPTH = 16;
+  public static final int DEFAULT_MAX_RESULTS = 50;
+  public static final List<String> DEFAULT_IGNORE_PATTERNS = List.of(".git", ".idea", "node_modules", "target", "build");
+
+  // keeps the number of open directories in check while walking
+  private static final int MAX_PARALLEL_LISTINGS = 32;
+
+  private final Path root;
+  private final int maxDepth;
+  private final int maxResults;
+  private final List<PathMatcher> ignored;
+  private final FuzzyIndex index;
+  private final Set<String> directories;
+  private final DirectoryWatcher watcher;
+  private final ExecutorService executor;
+  private final Semaphore listings;
+  private final AtomicInteger pending;
+  private final CompletableFuture<Void> ready;
+
+  public RecursiveFileSuggester(Path root) {
+    this(root, DEFAULT_MAX_DEPTH, DEFAULT_MAX_RESULTS, DEFAULT_IGNORE_PATTERNS);
+  }
+
+  /**
+   * Creates a new suggester and starts indexing the root directory.
+   *
+   * @param root           the directory to index
+   * @param maxDepth       how deep to go from the root directory
+   * @param maxResults     the maximum number of suggestions
+   * @param ignorePatterns glob patterns for paths that should not be indexed, matched
+   *                       against both the name and the path relative to the root
+   */
+  public RecursiveFileSuggester(Path root, int maxDepth, int maxResults, List<String> ignorePatterns) {
+    this.root = root;
+    this.maxDepth = maxDepth;
+    this.maxResults = maxResults;
+    FileSystem fileSystem = root.getFileSystem();
+    this.ignored = ignorePatterns.stream()
+      .map(pattern -> fileSystem.getPathMatcher("glob:" + pattern))
+      .toList();
+    this.index = new FuzzyIndex();
+    this.directories = ConcurrentHashMap.newKeySet();
+    this.watcher = new DirectoryWatcher(this::update);
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    this.listings = new Semaphore(MAX_PARALLEL_LISTINGS);
+    this.pending = new AtomicInteger();
+    this.ready = new CompletableFuture<>();
+    walk(root.toAbsolutePath().normalize(), 0);
+  }
+
+  public List<Suggestion> suggest(String input) {
+    String pattern = input == null ? "" : normalize(input);
+    return index.search(pattern, maxResults).stream()
+      .map(this::createSuggestion)
+      .toList();
+  }
+
+  /**
+   * Waits for the first walk through the root directory to finish.
+   *
+   * @param timeout how long to wait
+   * @return {@code true} if the index is complete
+   */
+  public boolean awaitIndex(Duration timeout) {
+    try {
+      ready.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+      return true;
+    } catch (TimeoutException | ExecutionException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * @return how many paths are indexed
+   */
+  public int size() {
+    return index.size();
+  }
+
+  @Override
+  public void close() {
+    watcher.close();
+    executor.shutdownNow();
+  }
+
+  private Suggestion createSuggestion(String path) {
+    String value = normalize(root.resolve(path).toString());
+    if (directories.contains(path)) {
+      return PromptSuggestion.suggest(value)
+        .asPartOf("Directories")
+        .incomplete();
+    }
+    return PromptSuggestion.suggest(value)
+      .asPartOf("Files");
+  }
+
+  private String normalize(String path) {
+    return path.replaceAll("\\\\", "/");
+  }
+
+  private String relative(Path path) {
+    return normalize(root.toAbsolutePath().normalize().relativize(path).toString());
+  }
+
+  private boolean isIgnored(Path path) {
+    Path relative = root.toAbsolutePath().normalize().relativize(path);
+    Path name = path.getFileName();
+    for (PathMatcher matcher : ignored) {
+      if ((name != null && matcher.matches(name)) || matcher.matches(relative)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void walk(Path directory, int depth) {
+    pending.incrementAndGet();
+    try {
+      executor.execute(() -> {
+        try {
+          list(directory, depth);
+        } finally {
+          if (pending.decrementAndGet() == 0) {
+            ready.complete(null);
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      // the suggester was closed
+      pending.decrementAndGet();
+    }
+  }
+
+  private void list(Path directory, int depth) {
+    // watching before listing, so nothing created in between is missed
+    watcher.watch(directory);
+    try {
+      listings.acquire();
+    } catch (InterruptedException e) {
+      return;
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path path : stream) {
+        add(path, depth + 1);
+      }
+    } catch (IOException | DirectoryIteratorException e) {
+      // directories that can't be read are left out
+    } finally {
+      listings.release();
+    }
+  }
+
+  private void add(Path path, int depth) {
+    if (isIgnored(path)) {
+      return;
+    }
+    BasicFileAttributes attributes;
+    try {
+      // links are not followed to stay away from cycles
+      attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (IOException e) {
+      return;
+    }
+    String relative = relative(path);
+    if (attributes.isDirectory()) {
+      directories.add(relative);
+    }
+    index.add(relative);
+    if (attributes.isDirectory() && depth < maxDepth) {
+      walk(path, depth);
+    }
+  }
+
+  private void update(Path directory, Path entry, WatchEvent.Kind<?> kind) {
+    if (entry == null) {
+      // either events were lost or the directory is gone, so its content is indexed again
+      String relative = relative(directory);
+      if (!relative.isEmpty()) {
+        remove(relative);
+      }
+      watcher.unwatch(directory);
+      if (Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+        if (!relative.isEmpty()) {
+          directories.add(relative);
+          index.add(relative);
+        }
+        walk(directory, depthOf(directory));
+      }
+    } else if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+      add(entry, depthOf(entry));
+    } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+      remove(relative(entry));
+      watcher.unwatch(entry);
+    }
+  }
+
+  private void remove(String path) {
+    String children = path + "/";
+    Predicate<String> removed = term -> term.equals(path) || term.startsWith(children);
+    index.removeIf(removed);
+    directories.removeIf(removed);
+  }
+
+  private int depthOf(Path path) {
+    String relative = relative(path);
+    return relative.isEmpty() ? 0 : relative.split("/").length;
+  }
+
+}
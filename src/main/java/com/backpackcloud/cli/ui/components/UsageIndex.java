@@ -0,0 +1,236 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2025 Marcelo "Ataxexe" Guimarães
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.backpackcloud.cli.ui.components;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.annotations.Observe;
+import org.jline.reader.ParsedLine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of how often and how recently commands, actions and argument values
+ * are used, so suggestions can be ranked by what the user actually types.
+ * <p>
+ * Each executed line is recorded under every prefix of its words (up to the command,
+ * its action and two arguments). The score of a prefix decays by half every week
+ * without use, so old habits fade away. The index is capped and the least relevant
+ * entries are evicted once it grows past the cap.
+ *
+ * @author Marcelo "Ataxexe" Guimarães
+ */
+public class UsageIndex {
+
+  public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+  private static final int MAX_DEPTH = 4;
+  private static final double HALF_LIFE = Duration.ofDays(7).toMillis();
+  private static final String SEPARATOR = "\t";
+
+  private final Path file;
+  private final int maxEntries;
+  private final Map<String, Usage> usages;
+
+  private boolean loaded;
+  private boolean changed;
+
+  public UsageIndex() {
+    this(null, DEFAULT_MAX_ENTRIES);
+  }
+
+  public UsageIndex(Path file) {
+    this(file, DEFAULT_MAX_ENTRIES);
+  }
+
+  public UsageIndex(Path file, int maxEntries) {
+    this.file = file;
+    this.maxEntries = Math.max(1, maxEntries);
+    this.usages = new HashMap<>();
+  }
+
+  @Observe(CLI.EVENT_COMMAND_END)
+  public void onCommandEnd(List<ParsedLine> lines) {
+    if (lines != null) {
+      lines.forEach(line -> record(line.words()));
+    }
+  }
+
+  /**
+   * Records the usage of the given words, which should start with the command name.
+   *
+   * @param words the words typed by the user
+   */
+  public synchronized void record(List<String> words) {
+    load();
+    long now = System.currentTimeMillis();
+    StringBuilder key = new StringBuilder();
+    int depth = 0;
+    for (String word : words) {
+      if (word.isBlank()) {
+        continue;
+      }
+      if (depth++ > 0) {
+        key.append(SEPARATOR);
+      }
+      key.append(word.replace(SEPARATOR, " "));
+      usages.computeIfAbsent(key.toString(), k -> new Usage()).use(now);
+      if (depth == MAX_DEPTH) {
+        break;
+      }
+    }
+    changed = true;
+    evict(now);
+  }
+
+  /**
+   * Returns the current score of the given words. Words that were never used
+   * have a score of zero.
+   *
+   * @param words the words, starting with the command name
+   * @return the frecency score of the words
+   */
+  public synchronized double score(List<String> words) {
+    load();
+    Usage usage = usages.get(key(words));
+    return usage == null ? 0 : usage.score(System.currentTimeMillis());
+  }
+
+  /**
+   * Writes the index to its file, if there's one and something changed.
+   */
+  public synchronized void save() {
+    if (file == null || !changed) {
+      return;
+    }
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, Usage> entry : usages.entrySet()) {
+        writer.write(String.format("%s%s%d%s%s%n",
+          entry.getValue().score, SEPARATOR,
+          entry.getValue().lastUse, SEPARATOR,
+          entry.getKey()));
+      }
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+    try {
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+    changed = false;
+  }
+
+  private String key(List<String> words) {
+    StringBuilder key = new StringBuilder();
+    int depth = 0;
+    for (String word : words) {
+      if (word.isBlank()) {
+        continue;
+      }
+      if (depth++ > 0) {
+        key.append(SEPARATOR);
+      }
+      key.append(word.replace(SEPARATOR, " "));
+    }
+    return key.toString();
+  }
+
+  private void evict(long now) {
+    if (usages.size() <= maxEntries) {
+      return;
+    }
+    // evicts a tenth of the entries at once instead of sorting on every new entry
+    int toRemove = usages.size() - maxEntries + maxEntries / 10;
+    // scores are computed once, the comparator would compute them on every comparison
+    List<Map.Entry<String, Double>> scores = new ArrayList<>(usages.size());
+    usages.forEach((key, usage) -> scores.add(Map.entry(key, usage.score(now))));
+    scores.sort(Map.Entry.comparingByValue());
+    scores.subList(0, toRemove).forEach(entry -> usages.remove(entry.getKey()));
+  }
+
+  private void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    if (file == null || !Files.exists(file)) {
+      return;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String record;
+      while ((record = reader.readLine()) != null) {
+        String[] parts = record.split(SEPARATOR, 3);
+        if (parts.length == 3) {
+          try {
+            usages.put(parts[2], new Usage(Double.parseDouble(parts[0]), Long.parseLong(parts[1])));
+          } catch (NumberFormatException e) {
+            // skips corrupted records
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private static class Usage {
+
+    private double score;
+    private long lastUse;
+
+    private Usage() {
+      this(0, 0);
+    }
+
+    private Usage(double score, long lastUse) {
+      this.score = score;
+      this.lastUse = lastUse;
+    }
+
+    private double score(long now) {
+      return score * Math.pow(0.5, (now - lastUse) / HALF_LIFE);
+    }
+
+    private void use(long now) {
+      score = score(now) + 1;
+      lastUse = now;
+    }
+
+  }
+
+}
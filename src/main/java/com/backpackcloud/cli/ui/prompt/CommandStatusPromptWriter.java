@@ -24,28 +24,14 @@
 
 package com.backpackcloud.cli.ui.prompt;
 
-import com.backpackcloud.cli.CLI;
-import com.backpackcloud.cli.annotations.Observe;
 import com.backpackcloud.cli.ui.Prompt;
 import com.backpackcloud.cli.ui.PromptWriter;
 
 public class CommandStatusPromptWriter implements PromptWriter {
 
-  private boolean commandError;
-
-  @Observe(CLI.EVENT_COMMAND_BEGIN)
-  public void resetError() {
-    commandError = false;
-  }
-
-  @Observe(CLI.EVENT_COMMAND_ERROR)
-  public void onCommandError() {
-    commandError = true;
-  }
-
   @Override
   public void addTo(Prompt prompt, PromptSide side) {
-    if (commandError) {
+    if (prompt.session().lastCommandFailed()) {
       prompt.newSegment()
         .addIcon("error", "icon-error");
     } else {
@@ -32,12 +32,22 @@ public class ErrorCountPromptWriter implements PromptWriter {
 
   private final ErrorRegistry registry;
 
+  public ErrorCountPromptWriter() {
+    this.registry = null;
+  }
+
+  /**
+   * @deprecated the errors are read from the session the prompt is shown to, use
+   * {@link #ErrorCountPromptWriter()}. The given registry is shown to every session.
+   */
+  @Deprecated
   public ErrorCountPromptWriter(ErrorRegistry registry) {
     this.registry = registry;
   }
 
   @Override
   public void addTo(Prompt prompt, PromptSide side) {
+    ErrorRegistry registry = this.registry != null ? this.registry : prompt.session().errors();
     prompt.newSegment()
       .addIcon("error-badge", "icon-error")
       .add(registry.size() + (!registry.viewed() ? "*" : ""));
@@ -24,28 +24,14 @@
 
 package com.backpackcloud.cli.ui.prompt;
 
-import com.backpackcloud.cli.CLI;
-import com.backpackcloud.cli.annotations.Observe;
 import com.backpackcloud.cli.ui.Prompt;
 import com.backpackcloud.cli.ui.PromptWriter;
 
 public class PromptCharWriter implements PromptWriter {
 
-  private boolean commandError;
-
-  @Observe(CLI.EVENT_COMMAND_BEGIN)
-  public void resetError() {
-    commandError = false;
-  }
-
-  @Observe(CLI.EVENT_COMMAND_ERROR)
-  public void onCommandError() {
-    commandError = true;
-  }
-
   @Override
   public void addTo(Prompt prompt, PromptSide side) {
-    prompt.writeIndicator(commandError ? "prompt_error" : "prompt_ok");
+    prompt.writeIndicator(prompt.session().lastCommandFailed() ? "prompt_error" : "prompt_ok");
   }
 
 }
@@ -24,38 +24,20 @@
 
 package com.backpackcloud.cli.ui.prompt;
 
-import com.backpackcloud.cli.CLI;
-import com.backpackcloud.cli.annotations.Observe;
 import com.backpackcloud.cli.ui.Prompt;
 import com.backpackcloud.cli.ui.PromptWriter;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
 
 public class TimerPromptWriter implements PromptWriter {
 
-  private Duration lastCommandDuration = Duration.ZERO;
-  private LocalDateTime start = LocalDateTime.now();
-
-  @Observe(CLI.EVENT_COMMAND_BEGIN)
-  public void resetError() {
-    start = LocalDateTime.now();
-    lastCommandDuration = null;
-  }
-
-  @Observe(CLI.EVENT_COMMAND_END)
-  public void onCommandError() {
-    lastCommandDuration = Duration.between(start, LocalDateTime.now());
-  }
-
   @Override
   public void addTo(Prompt prompt, PromptSide side) {
     Prompt.PromptSegmentBuilder segment = prompt.newSegment();
 
     segment.addIcon("timer", "icon-timer");
 
-    Duration duration = lastCommandDuration != null ? lastCommandDuration :
-      Duration.between(start, LocalDateTime.now());
+    Duration duration = prompt.session().lastCommandDuration();
 
     long minutes = duration.toMinutes();
     if (minutes > 0) {
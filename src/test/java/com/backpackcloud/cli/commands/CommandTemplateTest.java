@@ -0,0 +1,83 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CommandLine;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.impl.DefaultParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommandTemplateTest {
+
+  private final DefaultParser defaultParser = new DefaultParser();
+  private final Function<String, ParsedLine> parser = line -> defaultParser.parse(line, 0);
+
+  @Test
+  public void testExpansionWithoutParsing() {
+    CommandTemplate template = CommandTemplate.compile("theme style {0} {1:red} --name={0}");
+
+    ParsedLine line = template.expand(List.of("prompt"), parser);
+    assertInstanceOf(CommandLine.class, line);
+    assertEquals(List.of("theme", "style", "prompt", "red", "--name=prompt"), line.words());
+  }
+
+  @Test
+  public void testMissingParametersAreDiscarded() {
+    CommandTemplate template = CommandTemplate.compile("preferences list {0}");
+
+    assertEquals(List.of("preferences", "list"), template.expand(List.of(), parser).words());
+  }
+
+  @Test
+  public void testArgumentsThatChangeTheStructureAreParsed() {
+    CommandTemplate template = CommandTemplate.compile("theme style {0}");
+
+    ParsedLine line = template.expand(List.of("prompt red"), parser);
+    assertFalse(line instanceof CommandLine);
+    assertEquals(List.of("theme", "style", "prompt", "red"), line.words());
+    assertEquals("theme style prompt red", template.expandText(List.of("prompt red")));
+  }
+
+  @Test
+  public void testQuotedParameters() {
+    CommandTemplate template = CommandTemplate.compile("theme style '{0} {1}'");
+
+    assertEquals(List.of("theme", "style", "prompt red"), template.expand(List.of("prompt", "red"), parser).words());
+  }
+
+  @Test
+  public void testDefaultsThatChangeTheStructure() {
+    CommandTemplate template = CommandTemplate.compile("echo {1:foo bar} end");
+
+    assertEquals(List.of("echo", "foo", "bar", "end"), template.expand(List.of("x"), parser).words());
+    assertEquals(List.of("echo", "y", "end"), template.expand(List.of("x", "y"), parser).words());
+
+    CommandTemplate quoted = CommandTemplate.compile("echo {1:'foo bar'} end");
+    assertEquals(List.of("echo", "foo bar", "end"), quoted.expand(List.of("x"), parser).words());
+  }
+
+  @Test
+  public void testQuotedOperatorsStayLiteral() {
+    CommandLine line = (CommandLine) CommandTemplate.compile("grep \"|\" {0} '>' x | sort").expand(List.of("a"), parser);
+
+    assertEquals(List.of("grep", "|", "a", ">", "x", "|", "sort"), line.words());
+    assertTrue(line.isLiteral(1));
+    assertFalse(line.isLiteral(2));
+    assertTrue(line.isLiteral(3));
+    assertFalse(line.isLiteral(5));
+  }
+
+  @Test
+  public void testInvalidParameter() {
+    assertThrows(UnbelievableException.class, () -> CommandTemplate.compile("theme style {name}"));
+  }
+
+}
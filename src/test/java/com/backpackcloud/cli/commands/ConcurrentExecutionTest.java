@@ -0,0 +1,237 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.Command;
+import com.backpackcloud.cli.CommandContext;
+import com.backpackcloud.cli.EventBus;
+import com.backpackcloud.cli.Execution;
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.cli.annotations.Observe;
+import com.backpackcloud.cli.ui.Theme;
+import com.backpackcloud.io.SerialBitter;
+import com.backpackcloud.preferences.UserPreferences;
+import com.backpackcloud.text.InputValue;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentExecutionTest {
+
+  private static final int THREADS = 16;
+  private static final int COMMANDS = 200;
+
+  private final EventBus eventBus = new EventBus();
+  private final CLI cli = createCLI();
+
+  private CLI createCLI() {
+    UserPreferences preferences = new UserPreferences();
+    preferences.register(Preferences.class);
+    CLI cli = new CLI(createTerminal(), preferences, Theme.create(SerialBitter.YAML()), eventBus);
+    cli.register(new Echo(), new Fail());
+    return cli;
+  }
+
+  private Terminal createTerminal() {
+    try {
+      return new DumbTerminal("test", Terminal.TYPE_DUMB, InputStream.nullInputStream(), new ByteArrayOutputStream(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private void concurrently(IntConsumer task) throws InterruptedException {
+    CountDownLatch ready = new CountDownLatch(1);
+    Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      int index = i;
+      threads.add(Thread.ofPlatform().start(() -> {
+        try {
+          ready.await();
+          task.accept(index);
+        } catch (Throwable e) {
+          failures.add(e);
+        }
+      }));
+    }
+    ready.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+  }
+
+  @Test
+  public void testOutputIsNotShared() throws InterruptedException {
+    List<StringWriter> outputs = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      outputs.add(new StringWriter());
+    }
+
+    concurrently(index -> {
+      var writer = cli.writerFor(outputs.get(index), false);
+      for (int j = 0; j < COMMANDS; j++) {
+        cli.execute(writer, "echo thread-" + index);
+      }
+    });
+
+    for (int i = 0; i < THREADS; i++) {
+      assertEquals(("thread-" + i + "\n").repeat(COMMANDS), outputs.get(i).toString());
+    }
+  }
+
+  @Test
+  public void testExecutionStatusIsNotShared() throws InterruptedException {
+    ExecutionListener listener = new ExecutionListener();
+    eventBus.scan(listener);
+
+    concurrently(index -> {
+      var writer = cli.writerFor(new StringWriter(), false);
+      String command = index % 2 == 0 ? "echo" : "fail";
+      for (int j = 0; j < COMMANDS; j++) {
+        assertEquals(index % 2, cli.run(writer, command, "thread-" + index));
+      }
+    });
+
+    assertEquals(THREADS * COMMANDS, listener.executions.size());
+    int failed = 0;
+    for (Execution execution : listener.executions) {
+      assertTrue(execution.finished());
+      assertEquals(execution.failed(), execution.error().isPresent());
+      // only the lines that succeed are recorded
+      if (execution.failed()) {
+        failed++;
+        assertTrue(execution.lines().isEmpty());
+      } else {
+        assertEquals("echo", execution.lines().getFirst().words().getFirst());
+      }
+    }
+    assertEquals(THREADS / 2 * COMMANDS, failed);
+  }
+
+  @Test
+  public void testErrorsAreAllRegistered() throws InterruptedException {
+    concurrently(index -> {
+      var writer = cli.writerFor(new StringWriter(), false);
+      for (int j = 0; j < COMMANDS; j++) {
+        cli.execute(writer, "fail");
+        assertTrue(cli.session().errors().stream().count() > j);
+      }
+    });
+
+    assertEquals(THREADS * COMMANDS, cli.session().errors().size());
+  }
+
+  @Test
+  public void testRegisteringWhileExecuting() throws InterruptedException {
+    AtomicInteger registered = new AtomicInteger();
+
+    concurrently(index -> {
+      var writer = cli.writerFor(new StringWriter(), false);
+      for (int j = 0; j < COMMANDS; j++) {
+        if (index == 0) {
+          cli.register(new Echo("echo-" + j));
+          eventBus.scan(new ExecutionListener());
+          registered.incrementAndGet();
+        } else {
+          assertEquals(0, cli.run(writer, "echo", String.valueOf(j)));
+        }
+      }
+    });
+
+    assertEquals(COMMANDS, registered.get());
+    StringWriter output = new StringWriter();
+    cli.execute(cli.writerFor(output, false), "echo-" + (COMMANDS - 1) + " done");
+    assertEquals("done\n", output.toString());
+  }
+
+  public static class ExecutionListener {
+
+    private final Queue<Execution> executions = new ConcurrentLinkedQueue<>();
+
+    @Observe(CLI.EVENT_COMMAND_END)
+    public void onEnd(Execution execution) {
+      executions.add(execution);
+    }
+
+  }
+
+  private static class Echo implements Command {
+
+    private final String name;
+
+    Echo() {
+      this("echo");
+    }
+
+    Echo(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String type() {
+      return "Test";
+    }
+
+    @Override
+    public String name() {
+      return name;
+    }
+
+    @Override
+    public String description() {
+      return "Prints the given words";
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+      context.writer().writeln(context.input().words().stream()
+        .map(InputValue::get)
+        .collect(Collectors.joining(" ")));
+    }
+
+  }
+
+  private static class Fail implements Command {
+
+    @Override
+    public String type() {
+      return "Test";
+    }
+
+    @Override
+    public String name() {
+      return "fail";
+    }
+
+    @Override
+    public String description() {
+      return "Always fails";
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+      throw new UnbelievableException("failed");
+    }
+
+  }
+
+}
@@ -0,0 +1,96 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.builder.CLIBuilder;
+import com.backpackcloud.cli.daemon.DaemonClient;
+import com.backpackcloud.cli.daemon.DaemonServer;
+import com.backpackcloud.io.SerialBitter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DaemonServerTest {
+
+  private final CLI cli = CLIBuilder.oneShot(SerialBitter.YAML()).build();
+  private Path directory;
+  private Path socket;
+
+  @BeforeEach
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("zipper-daemon");
+    socket = directory.resolve("zipper.sock");
+  }
+
+  @AfterEach
+  public void cleanUp() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        Files.deleteIfExists(file);
+      }
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  private List<Path> files() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.toList();
+    }
+  }
+
+  @Test
+  public void testSocketIsOnlyAccessibleByItsOwner() throws IOException {
+    try (DaemonServer daemon = new DaemonServer(cli, socket)) {
+      assertEquals(socket, daemon.socket());
+      assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+      // the private directory the socket was bound in is gone
+      assertEquals(List.of(socket), files());
+    }
+    assertFalse(Files.exists(socket));
+  }
+
+  @Test
+  public void testOnlyOneDaemonPerSocket() throws IOException {
+    try (DaemonServer daemon = new DaemonServer(cli, socket)) {
+      assertThrows(UnbelievableException.class, () -> new DaemonServer(cli, socket));
+      assertEquals(List.of(daemon.socket()), files());
+    }
+  }
+
+  @Test
+  public void testPathsAreRelativeToTheClient() throws IOException, InterruptedException {
+    try (DaemonServer daemon = new DaemonServer(cli, socket)) {
+      Thread server = Thread.ofVirtual().start(daemon::serve);
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+      int status = new DaemonClient(socket).run(InputStream.nullInputStream(), output, 80, 24, false, directory,
+        "preferences", "list", ">", "preferences.txt");
+
+      assertEquals(0, status, output.toString(StandardCharsets.UTF_8));
+      assertTrue(Files.readString(directory.resolve("preferences.txt")).contains("stop-on-error"));
+      daemon.close();
+      server.join();
+    }
+  }
+
+  @Test
+  public void testMissingDirectory() {
+    assertThrows(UnbelievableException.class, () -> new DaemonServer(cli, directory.resolve("missing/zipper.sock")));
+  }
+
+}
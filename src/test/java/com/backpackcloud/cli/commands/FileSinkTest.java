@@ -0,0 +1,120 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.FileSink;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStyle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FileSinkTest {
+
+  private Path file;
+
+  @BeforeEach
+  public void createFile() throws IOException {
+    file = Files.createTempFile("zipper-output", ".txt");
+  }
+
+  @AfterEach
+  public void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testStylesAreDiscarded() throws IOException {
+    try (FileSink sink = new FileSink(file, false)) {
+      sink.accept(new AttributedString("styled", AttributedStyle.BOLD.foreground(AttributedStyle.RED)));
+      sink.accept(new AttributedString(" \u001b[31mraw\u001b[0m çà\n"));
+    }
+    assertEquals("styled raw çà\n", Files.readString(file));
+  }
+
+  @Test
+  public void testAppend() throws IOException {
+    try (FileSink sink = new FileSink(file, false)) {
+      sink.write("first\n");
+    }
+    try (FileSink sink = new FileSink(file, true)) {
+      sink.write("second\n");
+    }
+    try (FileSink sink = new FileSink(file, true)) {
+      sink.write("third\n");
+    }
+    assertEquals("first\nsecond\nthird\n", Files.readString(file));
+
+    try (FileSink sink = new FileSink(file, false)) {
+      sink.write("replaced\n");
+    }
+    assertEquals("replaced\n", Files.readString(file));
+  }
+
+  @Test
+  public void testTextLargerThanTheBuffer() throws IOException {
+    String text = "ação ".repeat(1000);
+    try (FileSink sink = new FileSink(file, false, 64)) {
+      for (int i = 0; i < 10; i++) {
+        sink.write(text);
+      }
+    }
+    assertEquals(text.repeat(10), Files.readString(file));
+  }
+
+  @Test
+  public void testConcurrentWrites() throws IOException, InterruptedException {
+    int threads = 8;
+    int lines = 1000;
+    try (FileSink sink = new FileSink(file, false, 64)) {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Thread> writers = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        String line = "writer-" + i + "\n";
+        writers.add(Thread.ofPlatform().start(() -> {
+          awaitQuietly(start);
+          for (int j = 0; j < lines; j++) {
+            sink.write(line);
+          }
+        }));
+      }
+      start.countDown();
+      for (Thread writer : writers) {
+        writer.join();
+      }
+    }
+    Map<String, Long> counts = Files.readAllLines(file).stream()
+      .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    assertEquals(threads, counts.size());
+    counts.values().forEach(count -> assertEquals(lines, count));
+  }
+
+  @Test
+  public void testOpenFailureKeepsTheCause() {
+    UnbelievableException e = assertThrows(UnbelievableException.class,
+      () -> new FileSink(file.resolve("child.txt"), false));
+    assertInstanceOf(IOException.class, e.getCause());
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
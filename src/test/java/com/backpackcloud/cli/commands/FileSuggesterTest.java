@@ -4,9 +4,13 @@ import com.backpackcloud.cli.ui.Suggestion;
 import com.backpackcloud.cli.ui.components.FileSuggester;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -74,6 +78,73 @@ public class FileSuggesterTest {
     );
   }
 
+  @Test
+  public void testChangesAreNoticed() throws Exception {
+    Path directory = Files.createTempDirectory("zipper-files");
+    try {
+      Files.writeString(directory.resolve("first.txt"), "first");
+      assertContains(suggester.suggest(directory + "/"), directory + "/first.txt");
+
+      Files.writeString(directory.resolve("second.txt"), "second");
+      long deadline = System.currentTimeMillis() + 5000;
+      while (suggester.suggest(directory + "/").size() < 3 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertContains(suggester.suggest(directory + "/"), directory + "/first.txt", directory + "/second.txt");
+    } finally {
+      Files.deleteIfExists(directory.resolve("first.txt"));
+      Files.deleteIfExists(directory.resolve("second.txt"));
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  @Test
+  public void testModifiedSizesAreNoticed() throws Exception {
+    Path directory = Files.createTempDirectory("zipper-files");
+    Path file = directory.resolve("file.txt");
+    try {
+      Files.writeString(file, "1234");
+      assertEquals("4 bytes", descriptionOf(suggester.suggest(directory + "/"), file.toString()));
+
+      Files.writeString(file, "12345678");
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!"8 bytes".equals(descriptionOf(suggester.suggest(directory + "/"), file.toString()))
+        && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertEquals("8 bytes", descriptionOf(suggester.suggest(directory + "/"), file.toString()));
+    } finally {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  @Test
+  public void testResultCap() {
+    FileSuggester limited = new FileSuggester(2, Duration.ofSeconds(1));
+    List<Suggestion> suggestions = limited.suggest("src/main/java/com/backpackcloud/cli/W");
+    assertEquals(2, suggestions.size());
+    assertContains(suggestions, "src/main/java/com/backpackcloud/cli/Writer.java");
+  }
+
+  @Test
+  public void testSuggestionsAfterClose() {
+    FileSuggester closed = new FileSuggester();
+    assertContains(closed.suggest("src"), "src/main", "src/test");
+    closed.close();
+
+    // without a watcher, directories are just listed again
+    assertContains(closed.suggest("src"), "src/main", "src/test");
+  }
+
+  private String descriptionOf(List<Suggestion> suggestions, String value) {
+    return suggestions.stream()
+      .filter(suggestion -> value.equals(suggestion.value()))
+      .findAny()
+      .flatMap(Suggestion::description)
+      .orElse(null);
+  }
+
   private void assertContains(List<Suggestion> suggestions, String... values) {
     for (String value : values) {
       Optional<Suggestion> result = suggestions.stream()
@@ -0,0 +1,130 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.Session;
+import com.backpackcloud.cli.Writer;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.InputParameter;
+import com.backpackcloud.cli.builder.CLIBuilder;
+import com.backpackcloud.io.SerialBitter;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ForeachCommandTest {
+
+  private static final List<List<String>> received = new CopyOnWriteArrayList<>();
+
+  private final CLI cli = CLIBuilder.oneShot(SerialBitter.YAML())
+    .addCommand(Collector.class)
+    .build();
+
+  private ByteArrayOutputStream console;
+  private Terminal terminal;
+
+  @BeforeEach
+  public void reset() throws IOException {
+    received.clear();
+    console = new ByteArrayOutputStream();
+    terminal = createTerminal(InputStream.nullInputStream());
+  }
+
+  @AfterEach
+  public void closeTerminal() throws IOException {
+    terminal.close();
+  }
+
+  private Terminal createTerminal(InputStream input) throws IOException {
+    return new DumbTerminal("test", Terminal.TYPE_DUMB, input, console, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testStdinIsTheSessionInput() throws IOException {
+    byte[] input = "first\nsecond\n\nthird\n".getBytes(StandardCharsets.UTF_8);
+    try (Terminal terminal = createTerminal(new ByteArrayInputStream(input))) {
+      Session session = cli.openSession(terminal);
+
+      session.execute("foreach stdin collector");
+
+      assertEquals(Set.of(List.of("first"), List.of("second"), List.of("third")), Set.copyOf(received));
+      assertEquals(3, received.size());
+    }
+  }
+
+  @Test
+  public void testRange() {
+    cli.run(cli.writerFor(new StringWriter(), false), "foreach", "range", "1..3", "collector");
+
+    assertEquals(Set.of(List.of("1"), List.of("2"), List.of("3")), Set.copyOf(received));
+  }
+
+  @Test
+  public void testWordsAreKept() {
+    Session session = cli.openSession(terminal);
+
+    session.execute("foreach range 1..1 collector 'hi\"' a\\\\b \"x y\" {0}-z");
+
+    assertEquals(List.of(List.of("hi\"", "a\\b", "x y", "1-z")), received);
+  }
+
+  @Test
+  public void testQuotedOperatorsAreArguments() {
+    Session session = cli.openSession(terminal);
+
+    session.execute("foreach range 1..3 collector \">\"", "foreach range 1..1 collector '|' '>>'");
+
+    assertEquals(Set.of(List.of(">", "1"), List.of(">", "2"), List.of(">", "3"), List.of("|", ">>", "1")),
+      Set.copyOf(received));
+    for (String file : List.of("1", "2", "3")) {
+      assertFalse(Files.exists(Path.of(file)));
+    }
+  }
+
+  @Test
+  public void testOnlyTheCommandOutputGoesToTheWriter() {
+    Session session = cli.openSession(terminal);
+    StringWriter output = new StringWriter();
+
+    session.run(session.writerFor(output, false), "foreach", "range", "1,fail,3", "collector");
+
+    assertEquals(Set.of("1", "3"), Set.copyOf(output.toString().lines().toList()));
+    String printed = console.toString(StandardCharsets.UTF_8);
+    assertTrue(printed.contains("fail: failed"), printed);
+    assertTrue(printed.contains("foreach: 3 inputs"), printed);
+  }
+
+  @CommandDefinition(name = "collector", type = "Test", description = "Collects its inputs")
+  public static class Collector {
+
+    @Action
+    public void add(Writer writer, @InputParameter("values") String... values) {
+      if (List.of(values).contains("fail")) {
+        throw new UnbelievableException("failed");
+      }
+      received.add(List.of(values));
+      writer.writeln(String.join(" ", values));
+    }
+
+  }
+
+}
@@ -0,0 +1,65 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.ui.components.FuzzyIndex;
+import com.backpackcloud.cli.ui.components.FuzzyMatcher;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FuzzyIndexTest {
+
+  @Test
+  public void testSubsequence() {
+    assertTrue(FuzzyMatcher.score("shrg", "show-error-registry") != FuzzyMatcher.NO_MATCH);
+    assertEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.score("rgs", "show-error"));
+    assertEquals(0, FuzzyMatcher.score("", "theme"));
+  }
+
+  @Test
+  public void testBoundariesScoreHigher() {
+    assertTrue(FuzzyMatcher.score("ser", "show-error-registry") > FuzzyMatcher.score("ser", "preserve"));
+    assertTrue(FuzzyMatcher.score("sr", "showRegistry") > FuzzyMatcher.score("sr", "scorer"));
+    assertTrue(FuzzyMatcher.score("the", "theme") > FuzzyMatcher.score("the", "other"));
+  }
+
+  @Test
+  public void testSearch() {
+    FuzzyIndex index = new FuzzyIndex();
+    List.of("theme", "preferences", "profile", "show-error-registry", "clear", "exit").forEach(index::add);
+
+    assertEquals("show-error-registry", index.search("ser").getFirst());
+    assertEquals(List.of("profile", "preferences"), index.search("prf"));
+    assertEquals(List.of(), index.search("xyz"));
+    assertEquals(6, index.search("").size());
+  }
+
+  @Test
+  public void testRemovalAndNarrowing() {
+    FuzzyIndex index = new FuzzyIndex();
+    List.of("src/main/Writer.java", "src/main/CLI.java", "src/test/WriterTest.java").forEach(index::add);
+
+    assertEquals(2, index.search("wr").size());
+    assertEquals(List.of("src/test/WriterTest.java"), index.search("wrtest"));
+
+    index.removeIf(term -> term.startsWith("src/test/"));
+    assertEquals(List.of("src/main/Writer.java"), index.search("wr"));
+    assertEquals(List.of(), index.search("wrtest"));
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  public void testManyTerms() {
+    FuzzyIndex index = new FuzzyIndex();
+    for (int i = 0; i < 5000; i++) {
+      index.add("command-" + i);
+      index.add("action" + i + "Name");
+    }
+    index.add("deploy-service");
+
+    assertEquals("deploy-service", index.search("dplsrv").getFirst());
+  }
+
+}
@@ -0,0 +1,124 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.InputParameter;
+import com.backpackcloud.cli.annotations.Observe;
+import com.backpackcloud.cli.builder.CLIBuilder;
+import com.backpackcloud.io.SerialBitter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class LazyCommandTest {
+
+  private static final AtomicInteger created = new AtomicInteger();
+  private static final AtomicInteger observersCreated = new AtomicInteger();
+
+  @BeforeEach
+  public void reset() {
+    created.set(0);
+    observersCreated.set(0);
+  }
+
+  private CLI createCLI() {
+    return CLIBuilder.oneShot(SerialBitter.YAML())
+      .addCommand(Lazy.class)
+      .addCommand(Observer.class)
+      .build();
+  }
+
+  @Test
+  public void testCommandIsCreatedOnFirstExecution() {
+    CLI cli = createCLI();
+
+    assertEquals(0, created.get());
+    assertEquals(1, observersCreated.get());
+
+    StringWriter output = new StringWriter();
+    cli.run(cli.writerFor(output, false), "lazy", "echo", "a");
+    cli.run(cli.writerFor(output, false), "lazy", "echo", "b");
+
+    assertEquals("a\nb\n", output.toString());
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  public void testCommandIsCreatedOnFirstSuggestion() {
+    CLI cli = createCLI();
+
+    assertFalse(cli.session().suggest("lazy e").isEmpty());
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  public void testCommandIsCreatedOnlyOnce() throws InterruptedException {
+    CLI cli = createCLI();
+    CountDownLatch ready = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      threads.add(Thread.ofPlatform().start(() -> {
+        try {
+          ready.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        cli.run(cli.writerFor(new StringWriter(), false), "lazy", "echo", "x");
+      }));
+    }
+    ready.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(1, created.get());
+  }
+
+  @CommandDefinition(name = "lazy", type = "Test", description = "Created when needed")
+  public static class Lazy {
+
+    public Lazy() {
+      created.incrementAndGet();
+    }
+
+    @Action
+    public String echo(@InputParameter String text) {
+      return text;
+    }
+
+    @Action
+    public String empty() {
+      return "";
+    }
+
+  }
+
+  @CommandDefinition(name = "observer", type = "Test", description = "Created right away")
+  public static class Observer {
+
+    public Observer() {
+      observersCreated.incrementAndGet();
+    }
+
+    @Action
+    public void run() {
+
+    }
+
+    @Observe(CLI.EVENT_COMMAND_END)
+    public void onEnd() {
+
+    }
+
+  }
+
+}
@@ -0,0 +1,110 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.processing.NativeImageProcessor;
+import com.backpackcloud.io.SerialBitter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jline.terminal.Terminal;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NativeImageProcessorTest {
+
+  private final SerialBitter json = SerialBitter.JSON();
+
+  private List<Map<String, Object>> process(String name, List<Path> sources) throws IOException {
+    Path output = Files.createTempDirectory("zipper-native");
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      JavaCompiler.CompilationTask task = compiler.getTask(null, files, null, List.of(
+        "-proc:only",
+        "-A" + NativeImageProcessor.NAME_OPTION + "=" + name,
+        "-d", output.toString(),
+        "-cp", classpath()
+      ), null, files.getJavaFileObjectsFromPaths(sources));
+      task.setProcessors(List.of(new NativeImageProcessor()));
+      assertTrue(task.call());
+    }
+    Path config = output.resolve("META-INF/native-image/zipper/" + name + "/reflect-config.json");
+    return json.deserialize(Files.readString(config), List.class);
+  }
+
+  // the test runner may hide the actual class path behind a manifest
+  private String classpath() {
+    return Stream.of(CLI.class, SerialBitter.class, Terminal.class, JsonProperty.class, JsonFactory.class, ObjectMapper.class)
+      .map(type -> {
+        try {
+          return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+          throw new UnbelievableException(e);
+        }
+      })
+      .collect(Collectors.joining(File.pathSeparator));
+  }
+
+  private Set<String> namesOf(List<Map<String, Object>> config) {
+    return config.stream()
+      .map(entry -> (String) entry.get("name"))
+      .collect(Collectors.toSet());
+  }
+
+  @Test
+  public void testApplicationConfig() throws IOException {
+    List<Map<String, Object>> config = process("sample", List.of(Path.of("src/test/java/com/backpackcloud/cli/sample/SampleApp.java")));
+
+    assertEquals(Set.of(
+      "com.backpackcloud.cli.sample.SampleApp$Counter",
+      "com.backpackcloud.cli.sample.SampleApp$Greeter",
+      "com.backpackcloud.cli.sample.SampleApp$Person"
+    ), namesOf(config));
+
+    Map<String, Object> person = config.stream()
+      .filter(entry -> entry.get("name").toString().endsWith("$Person"))
+      .findFirst()
+      .orElseThrow();
+    assertEquals(true, person.get("allDeclaredFields"));
+  }
+
+  @Test
+  public void testZipperConfigIsComplete() throws IOException {
+    List<Path> sources;
+    try (Stream<Path> files = Files.walk(Path.of("src/main/java"))) {
+      sources = files.filter(file -> file.toString().endsWith(".java")).toList();
+    }
+    Set<String> generated = namesOf(process("zipper", sources));
+
+    Set<String> shipped;
+    try (InputStream input = getClass().getResourceAsStream("/META-INF/native-image/com.backpackcloud/zipper/reflect-config.json")) {
+      if (input == null) {
+        throw new UnbelievableException("Missing native image configuration");
+      }
+      shipped = namesOf(json.deserialize(new String(input.readAllBytes(), StandardCharsets.UTF_8), List.class));
+    }
+
+    for (String name : generated) {
+      assertTrue(shipped.contains(name), () -> name + " is missing from the native image configuration");
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.ui.components.PersistentHistory;
+import org.jline.reader.History;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PersistentHistoryTest {
+
+  private Path file;
+
+  @BeforeEach
+  public void createFile() throws IOException {
+    file = Files.createTempFile("zipper-history", ".txt");
+  }
+
+  @AfterEach
+  public void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+  }
+
+  @Test
+  public void testDuplicatesMoveToTheEnd() {
+    PersistentHistory history = new PersistentHistory(file);
+    history.add(Instant.now(), "theme styles");
+    history.add(Instant.now(), "preferences list");
+    history.add(Instant.now(), "theme styles");
+
+    assertEquals(List.of("preferences list", "theme styles"), lines(history));
+  }
+
+  @Test
+  public void testDuplicatesOfLoadedAndTrimmedLines() throws IOException {
+    PersistentHistory history = new PersistentHistory(file, 10);
+    history.load();
+    for (int i = 0; i < 15; i++) {
+      history.add(Instant.now(), "command " + i);
+    }
+    history.save();
+
+    PersistentHistory reloaded = new PersistentHistory(file, 10);
+    reloaded.load();
+    reloaded.save();
+    reloaded.add(Instant.now(), "command 7");
+    reloaded.add(Instant.now(), "new");
+    reloaded.add(Instant.now(), "command 14");
+
+    List<String> lines = lines(reloaded);
+    assertEquals(List.of("command 7", "new", "command 14"), lines.subList(lines.size() - 3, lines.size()));
+    assertEquals(lines.size(), lines.stream().distinct().count());
+  }
+
+  @Test
+  public void testSizeCap() {
+    PersistentHistory history = new PersistentHistory(file, 100);
+    for (int i = 0; i < 1000; i++) {
+      history.add(Instant.now(), "command " + i);
+    }
+
+    assertTrue(history.size() <= 100);
+    assertEquals("command 999", history.get(history.last()));
+  }
+
+  @Test
+  public void testSearch() {
+    PersistentHistory history = new PersistentHistory(file);
+    history.add(Instant.now(), "theme styles");
+    history.add(Instant.now(), "profile 10 theme");
+    history.add(Instant.now(), "preferences list");
+
+    assertEquals(Optional.of("profile 10 theme"), history.search("theme"));
+    assertEquals(Optional.of("theme styles"), history.search("styles"));
+    assertEquals(Optional.of("preferences list"), history.search("li"));
+    assertEquals(Optional.empty(), history.search("colors"));
+
+    history.add(Instant.now(), "theme colors");
+
+    assertEquals(Optional.of("theme colors"), history.search("theme"));
+    assertEquals(Optional.of("theme colors"), history.search("colors"));
+  }
+
+  @Test
+  public void testPersistence() throws IOException {
+    PersistentHistory history = new PersistentHistory(file);
+    history.load();
+    history.add(Instant.now(), "theme styles");
+    history.add(Instant.now(), "preferences list");
+    history.add(Instant.now(), "theme styles");
+    history.add(Instant.now(), "multi\nline");
+    history.save();
+
+    PersistentHistory reloaded = new PersistentHistory(file);
+    reloaded.load();
+    reloaded.save();
+
+    assertEquals(List.of("preferences list", "theme styles", "multi\nline"), lines(reloaded));
+  }
+
+  private List<String> lines(PersistentHistory history) {
+    List<String> result = new ArrayList<>();
+    for (History.Entry entry : history) {
+      result.add(entry.line());
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,85 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.Pipe;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PipeTest {
+
+  @Test
+  public void testObjectsFlowToTheConsumer() throws InterruptedException {
+    Pipe pipe = new Pipe(4);
+    Thread producer = Thread.ofVirtual().start(() -> {
+      IntStream.range(0, 100).boxed().forEach(pipe::send);
+      pipe.close();
+    });
+
+    assertEquals(4950, pipe.stream().mapToInt(Integer.class::cast).sum());
+    producer.join();
+  }
+
+  @Test
+  public void testProducerIsThrottled() throws InterruptedException {
+    Pipe pipe = new Pipe(4);
+    AtomicInteger sent = new AtomicInteger();
+    Thread producer = Thread.ofVirtual().start(() -> {
+      for (int i = 0; i < 100; i++) {
+        pipe.send(i);
+        sent.incrementAndGet();
+      }
+      pipe.close();
+    });
+
+    Iterator<Object> iterator = pipe.stream().iterator();
+    assertEquals(0, iterator.next());
+    Thread.sleep(100);
+    assertTrue(sent.get() <= 6, "producer should wait for the consumer, sent " + sent.get());
+
+    iterator.forEachRemaining(o -> {});
+    producer.join();
+    assertEquals(100, sent.get());
+  }
+
+  @Test
+  public void testCancellationStopsTheProducer() throws InterruptedException {
+    Pipe pipe = new Pipe(4);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread producer = Thread.ofVirtual().start(() -> {
+      try {
+        IntStream.iterate(0, i -> i + 1).boxed().forEach(pipe::send);
+      } catch (Throwable e) {
+        error.set(e);
+      }
+    });
+
+    assertEquals(List.of(0, 1, 2), pipe.stream().limit(3).toList());
+    pipe.cancel();
+    producer.join();
+    assertInstanceOf(CancellationException.class, error.get());
+  }
+
+  @Test
+  public void testFailureReachesTheConsumer() {
+    Pipe pipe = new Pipe();
+    pipe.send("a");
+    pipe.fail(new IllegalStateException("broken"));
+
+    Iterator<Object> iterator = pipe.stream().iterator();
+    assertEquals("a", iterator.next());
+    UnbelievableException e = assertThrows(UnbelievableException.class, iterator::hasNext);
+    assertInstanceOf(IllegalStateException.class, e.getCause());
+  }
+
+}
@@ -0,0 +1,116 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.InputParameter;
+import com.backpackcloud.cli.builder.CLIBuilder;
+import com.backpackcloud.io.SerialBitter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProfileCommandTest {
+
+  private static final AtomicInteger runs = new AtomicInteger();
+  private static final List<String> received = new CopyOnWriteArrayList<>();
+
+  private final CLI cli = CLIBuilder.oneShot(SerialBitter.YAML())
+    .addCommand(Counter.class)
+    .build();
+
+  @BeforeEach
+  public void reset() {
+    runs.set(0);
+    received.clear();
+  }
+
+  private String profile(String... words) {
+    StringWriter output = new StringWriter();
+    String[] line = new String[words.length + 1];
+    line[0] = "profile";
+    System.arraycopy(words, 0, line, 1, words.length);
+    cli.run(cli.writerFor(output, false), line);
+    return output.toString();
+  }
+
+  @Test
+  public void testRunsAndWarmup() {
+    String output = profile("3", "2", "counter", "count");
+
+    assertEquals(5, runs.get());
+    assertTrue(output.contains("runs: 3 (2 warmup)"), output);
+    assertTrue(output.contains("/run"), output);
+  }
+
+  @Test
+  public void testWordsAreKept() {
+    String word = "with \"quotes\" and a \\ backslash";
+
+    profile("1", "0", "counter", "echo", word);
+
+    assertEquals(List.of(word), received);
+  }
+
+  @Test
+  public void testQuotedOperatorsAreArguments() {
+    cli.session().execute("profile 1 0 counter echo \"|\"", "profile 1 0 counter echo '>'");
+
+    assertEquals(List.of("|", ">"), received);
+  }
+
+  @Test
+  public void testFirstFailureStopsTheProfiling() {
+    String output = profile("5", "1", "counter", "fail");
+
+    assertEquals(1, runs.get());
+    assertTrue(output.contains("Failed at warmup run 1: boom"), output);
+    assertTrue(cli.session().errors().size() <= 1);
+  }
+
+  @Test
+  public void testUnknownCommand() {
+    String output = profile("3", "0", "missing");
+
+    assertTrue(output.contains("Failed at run 1: Unknown command missing"), output);
+    assertTrue(cli.session().errors().size() <= 1);
+  }
+
+  @Test
+  public void testAllocationOnVirtualThreads() throws InterruptedException {
+    String[] output = new String[1];
+    Thread.ofVirtual().start(() -> output[0] = profile("2", "0", "counter", "count")).join();
+
+    assertEquals(2, runs.get());
+    assertTrue(output[0].contains("allocated: n/a"), output[0]);
+  }
+
+  @CommandDefinition(name = "counter", type = "Test", description = "Counts its runs")
+  public static class Counter {
+
+    @Action
+    public void count() {
+      runs.incrementAndGet();
+    }
+
+    @Action
+    public void echo(@InputParameter String word) {
+      received.add(word);
+    }
+
+    @Action
+    public void fail() {
+      runs.incrementAndGet();
+      throw new IllegalStateException("boom");
+    }
+
+  }
+
+}
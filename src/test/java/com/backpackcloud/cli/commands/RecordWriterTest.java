@@ -0,0 +1,96 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.OutputFormat;
+import com.backpackcloud.cli.RecordWriter;
+import com.backpackcloud.cli.Writer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jline.terminal.Terminal;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStyle;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class RecordWriterTest {
+
+  private final StringBuilder output = new StringBuilder();
+
+  private RecordWriter recordWriter(OutputFormat format) {
+    Writer writer = new Writer(null, AttributedStyle.DEFAULT, AttributedString::new,
+      text -> output.append(text.toAnsi()), Mockito.mock(Terminal.class));
+    return new RecordWriter(format, new ObjectMapper(), writer);
+  }
+
+  @Test
+  public void testCsvValuesAreEscaped() {
+    try (RecordWriter records = recordWriter(OutputFormat.CSV)) {
+      records.write("plain");
+      records.write("with, comma");
+      records.write("with \"quotes\"");
+      records.write(10);
+    }
+    assertEquals("value\nplain\n\"with, comma\"\n\"with \"\"quotes\"\"\"\n10\n", output.toString());
+  }
+
+  @Test
+  public void testCsvColumnsComeFromTheFirstRecord() {
+    Map<String, Object> first = new LinkedHashMap<>();
+    first.put("name", "first");
+    first.put("size", 1);
+    Map<String, Object> second = new LinkedHashMap<>();
+    second.put("size", 2);
+    second.put("other", "ignored");
+
+    try (RecordWriter records = recordWriter(OutputFormat.CSV)) {
+      records.write(first);
+      records.write(second);
+    }
+    assertEquals("name,size\nfirst,1\n,2\n", output.toString());
+  }
+
+  @Test
+  public void testNdjsonHasOneRecordPerLine() {
+    try (RecordWriter records = recordWriter(OutputFormat.NDJSON)) {
+      records.write(Map.of("tags", List.of("a", "b")));
+      records.write("text");
+    }
+    List<String> lines = output.toString().lines().toList();
+    assertEquals(2, lines.size());
+    assertFalse(lines.getFirst().contains("\n"));
+    assertEquals("\"text\"", lines.getLast());
+  }
+
+  @Test
+  public void testCsvNestedValuesAreCompact() {
+    Map<String, Object> record = new LinkedHashMap<>();
+    record.put("name", "nested");
+    record.put("tags", List.of("a", "b"));
+    record.put("missing", null);
+
+    try (RecordWriter records = recordWriter(OutputFormat.CSV)) {
+      records.write(record);
+    }
+    assertEquals("name,tags,missing\nnested,\"[\"\"a\"\",\"\"b\"\"]\",\n", output.toString());
+  }
+
+  @Test
+  public void testJsonIsIndented() {
+    try (RecordWriter records = recordWriter(OutputFormat.JSON)) {
+      records.write(Map.of("name", "value"));
+    }
+    assertEquals("[\n{\n  \"name\" : \"value\"\n}\n]\n", output.toString());
+  }
+
+  @Test
+  public void testEmptyJsonArray() {
+    recordWriter(OutputFormat.JSON).close();
+    assertEquals("[]\n", output.toString());
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.ui.Suggestion;
+import com.backpackcloud.cli.ui.components.RecursiveFileSuggester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecursiveFileSuggesterTest {
+
+  private Path root;
+
+  @BeforeEach
+  public void createTree() throws IOException {
+    root = Files.createTempDirectory("zipper-tree");
+    Files.createDirectories(root.resolve("src/main/java/com/example"));
+    Files.createDirectories(root.resolve("target/classes"));
+    Files.createDirectories(root.resolve("a/b/c/d"));
+    Files.writeString(root.resolve("src/main/java/com/example/CommandLine.java"), "");
+    Files.writeString(root.resolve("target/classes/CommandLine.class"), "");
+    Files.writeString(root.resolve("a/b/c/d/deep.txt"), "");
+  }
+
+  @AfterEach
+  public void deleteTree() throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void testFuzzySearch() {
+    try (RecursiveFileSuggester suggester = new RecursiveFileSuggester(root)) {
+      assertTrue(suggester.awaitIndex(Duration.ofSeconds(5)));
+
+      List<Suggestion> suggestions = suggester.suggest("cmdline");
+      assertEquals(root.resolve("src/main/java/com/example/CommandLine.java").toString(), suggestions.getFirst().value());
+    }
+  }
+
+  @Test
+  public void testIgnorePatternsAndDepth() {
+    try (RecursiveFileSuggester suggester = new RecursiveFileSuggester(root, 3, 10, List.of("target"))) {
+      assertTrue(suggester.awaitIndex(Duration.ofSeconds(5)));
+
+      assertFalse(contains(suggester.suggest("class"), value -> value.contains("target")));
+      assertTrue(contains(suggester.suggest("abc"), value -> value.endsWith("a/b/c")));
+      assertFalse(contains(suggester.suggest("deep"), value -> value.endsWith("deep.txt")));
+    }
+  }
+
+  @Test
+  public void testChangesAreIndexed() throws Exception {
+    try (RecursiveFileSuggester suggester = new RecursiveFileSuggester(root)) {
+      assertTrue(suggester.awaitIndex(Duration.ofSeconds(5)));
+
+      Files.createDirectories(root.resolve("docs"));
+      Files.writeString(root.resolve("docs/readme.md"), "");
+      waitUntil(() -> contains(suggester.suggest("readme"), value -> value.endsWith("docs/readme.md")));
+      assertTrue(contains(suggester.suggest("readme"), value -> value.endsWith("docs/readme.md")));
+
+      Files.delete(root.resolve("docs/readme.md"));
+      waitUntil(() -> suggester.suggest("readme").isEmpty());
+      assertTrue(suggester.suggest("readme").isEmpty());
+    }
+  }
+
+  private boolean contains(List<Suggestion> suggestions, Predicate<String> predicate) {
+    return suggestions.stream().map(Suggestion::value).anyMatch(predicate);
+  }
+
+  private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+  }
+
+}
@@ -0,0 +1,229 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.EventBus;
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.InputParameter;
+import com.backpackcloud.cli.annotations.ParameterSuggestion;
+import com.backpackcloud.cli.rpc.RpcServer;
+import com.backpackcloud.cli.ui.Suggestion;
+import com.backpackcloud.cli.ui.Theme;
+import com.backpackcloud.cli.ui.components.PromptSuggestion;
+import com.backpackcloud.io.SerialBitter;
+import com.backpackcloud.preferences.UserPreferences;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RpcServerTest {
+
+  private final SerialBitter json = SerialBitter.JSON();
+  private final CLI cli = createCLI();
+
+  private CLI createCLI() {
+    UserPreferences preferences = new UserPreferences();
+    preferences.register(Preferences.class);
+    EventBus eventBus = new EventBus();
+    Terminal terminal = createTerminal();
+    CLI cli = new CLI(terminal, preferences, Theme.create(SerialBitter.YAML()), eventBus);
+    cli.register(new AnnotatedCommand(new Numbers(), eventBus, preferences, terminal));
+    return cli;
+  }
+
+  private Terminal createTerminal() {
+    try {
+      return new DumbTerminal("test", Terminal.TYPE_DUMB, InputStream.nullInputStream(), new ByteArrayOutputStream(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  private List<Map<String, Object>> serve(String... requests) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] input = (String.join("\n", requests) + "\n").getBytes(StandardCharsets.UTF_8);
+    try (RpcServer server = new RpcServer(cli, new ByteArrayInputStream(input), output)) {
+      server.serve();
+    }
+    List<Map<String, Object>> messages = new ArrayList<>();
+    for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+      messages.add(json.deserialize(line, Map.class));
+    }
+    return messages;
+  }
+
+  private Map<String, Object> response(List<Map<String, Object>> messages, Object id) {
+    return messages.stream()
+      .filter(message -> id.equals(message.get("id")))
+      .findFirst()
+      .orElseThrow();
+  }
+
+  private List<Object> results(List<Map<String, Object>> messages, Object id) {
+    return messages.stream()
+      .filter(message -> RpcServer.RESULT.equals(message.get("method")))
+      .map(message -> (Map<String, Object>) message.get("params"))
+      .filter(params -> id.equals(params.get("id")))
+      .map(params -> params.get("value"))
+      .toList();
+  }
+
+  @Test
+  public void testCommandListing() {
+    Map<String, Object> response = response(serve("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"commands\"}"), 1);
+
+    List<Map<String, Object>> commands = (List<Map<String, Object>>) response.get("result");
+    Map<String, Object> numbers = commands.stream()
+      .filter(command -> "numbers".equals(command.get("name")))
+      .findFirst()
+      .orElseThrow();
+    assertEquals(Map.of("range", List.of("from", "to", "order"), "fail", List.of()), numbers.get("actions"));
+  }
+
+  @Test
+  public void testNamedArguments() {
+    List<Map<String, Object>> messages = serve(
+      "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"execute\",\"params\":{\"command\":\"numbers\",\"action\":\"range\"," +
+        "\"arguments\":{\"from\":3,\"to\":\"5\",\"order\":\"desc\"}}}"
+    );
+
+    assertEquals(List.of(5, 4, 3), results(messages, 1));
+    Map<String, Object> response = messages.getLast();
+    assertEquals(1, response.get("id"));
+    assertTrue(response.containsKey("result"));
+  }
+
+  @Test
+  public void testPositionalWords() {
+    List<Map<String, Object>> messages = serve(
+      "{\"jsonrpc\":\"2.0\",\"id\":\"a\",\"method\":\"execute\",\"params\":{\"command\":\"numbers\",\"action\":\"range\"," +
+        "\"words\":[1,3],\"arguments\":{\"order\":\"ASC\"}}}"
+    );
+
+    assertEquals(List.of(1, 2, 3), results(messages, "a"));
+  }
+
+  @Test
+  public void testErrors() {
+    List<Map<String, Object>> messages = serve(
+      "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"execute\",\"params\":{\"command\":\"numbers\",\"action\":\"fail\"}}",
+      "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"execute\",\"params\":{\"command\":\"numbers\",\"action\":\"range\",\"arguments\":{\"size\":1}}}",
+      "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"unknown\"}",
+      "{\"jsonrpc\":\"2.0\",\"id\":4,\"method\":\"execute\",\"params\":{}}",
+      "{not json"
+    );
+
+    assertEquals(Map.of("code", -32000, "message", "failed"), response(messages, 1).get("error"));
+    assertEquals(-32000, ((Map<String, Object>) response(messages, 2).get("error")).get("code"));
+    assertEquals(-32601, ((Map<String, Object>) response(messages, 3).get("error")).get("code"));
+    assertEquals(-32602, ((Map<String, Object>) response(messages, 4).get("error")).get("code"));
+    assertTrue(messages.stream()
+      .filter(message -> message.get("error") instanceof Map<?, ?> error && error.get("code").equals(-32700))
+      .anyMatch(message -> message.get("id") == null));
+  }
+
+  @Test
+  public void testRequestsThatAreNotObjects() {
+    List<Map<String, Object>> messages = serve(
+      "null",
+      "[1, 2]",
+      "42",
+      "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"commands\"}"
+    );
+
+    assertEquals(3, messages.stream()
+      .filter(message -> message.get("error") instanceof Map<?, ?> error && error.get("code").equals(-32600))
+      .filter(message -> message.get("id") == null)
+      .count());
+    assertTrue(response(messages, 1).containsKey("result"));
+  }
+
+  @Test
+  public void testSuggestions() {
+    Map<String, Object> response = response(serve(
+      "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"suggest\",\"params\":{\"line\":\"numbers range 1 2 \"}}"
+    ), 1);
+
+    List<Map<String, Object>> suggestions = (List<Map<String, Object>>) response.get("result");
+    assertEquals(List.of("asc", "desc"), suggestions.stream().map(suggestion -> suggestion.get("value")).sorted().toList());
+  }
+
+  @Test
+  public void testConcurrentRequests() {
+    int count = 100;
+    String[] requests = new String[count];
+    for (int i = 0; i < count; i++) {
+      requests[i] = "{\"jsonrpc\":\"2.0\",\"id\":" + i + ",\"method\":\"execute\",\"params\":{\"command\":\"numbers\"," +
+        "\"action\":\"range\",\"arguments\":{\"from\":" + i + ",\"to\":" + (i + 9) + "}}}";
+    }
+
+    List<Map<String, Object>> messages = serve(requests);
+
+    for (int i = 0; i < count; i++) {
+      List<Object> expected = new ArrayList<>();
+      for (int j = i; j <= i + 9; j++) {
+        expected.add(j);
+      }
+      assertEquals(expected, results(messages, i));
+      assertTrue(response(messages, i).containsKey("result"));
+    }
+  }
+
+  @Test
+  public void testCancellation() {
+    List<Map<String, Object>> messages = serve(
+      "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"execute\",\"params\":{\"command\":\"numbers\",\"action\":\"range\"," +
+        "\"arguments\":{\"from\":0,\"to\":" + Integer.MAX_VALUE + "}}}",
+      "{\"jsonrpc\":\"2.0\",\"method\":\"" + RpcServer.CANCEL + "\",\"params\":{\"id\":1}}"
+    );
+
+    assertEquals(-32800, ((Map<String, Object>) response(messages, 1).get("error")).get("code"));
+    assertFalse(results(messages, 1).size() == Integer.MAX_VALUE);
+  }
+
+  public enum Order {
+    ASC, DESC
+  }
+
+  @CommandDefinition(name = "numbers", type = "Test", description = "Lists numbers")
+  public static class Numbers {
+
+    @Action
+    public Stream<Integer> range(@InputParameter Integer from,
+                                 @InputParameter Integer to,
+                                 @InputParameter Order order) {
+      Stream<Integer> numbers = Stream.iterate(from, n -> n <= to, n -> n + 1);
+      return order == Order.DESC ? numbers.sorted((a, b) -> b - a) : numbers;
+    }
+
+    @Action
+    public void fail() {
+      throw new UnbelievableException("failed");
+    }
+
+    @ParameterSuggestion(action = "range", parameter = "order")
+    public List<Suggestion> orders() {
+      return Stream.of(Order.values())
+        .map(order -> (Suggestion) PromptSuggestion.suggest(order.name().toLowerCase()))
+        .toList();
+    }
+
+  }
+
+}
@@ -0,0 +1,44 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.ScriptReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ScriptReaderTest {
+
+  private ScriptReader reader(String script) {
+    return new ScriptReader(new BufferedReader(new StringReader(script)));
+  }
+
+  @Test
+  public void testCommentsAndBlankLinesAreSkipped() {
+    ScriptReader reader = reader("# setup\n\ntheme style prompt red\n   \n  # indented comment\npreferences list\n");
+
+    assertEquals(new ScriptReader.ScriptLine(3, "theme style prompt red"), reader.next());
+    assertEquals(new ScriptReader.ScriptLine(6, "preferences list"), reader.next());
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void testContinuationLines() {
+    ScriptReader reader = reader("foreach range 1..3 \\\n  theme style \\\n  prompt\nexit\n");
+
+    assertEquals(new ScriptReader.ScriptLine(1, "foreach range 1..3 theme style prompt"), reader.next());
+    assertEquals(new ScriptReader.ScriptLine(4, "exit"), reader.next());
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void testContinuationOnTheLastLine() {
+    ScriptReader reader = reader("preferences \\");
+
+    assertEquals(new ScriptReader.ScriptLine(1, "preferences"), reader.next());
+    assertNull(reader.next());
+  }
+
+}
@@ -0,0 +1,201 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.Command;
+import com.backpackcloud.cli.CommandContext;
+import com.backpackcloud.cli.EventBus;
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.cli.Session;
+import com.backpackcloud.cli.ui.Theme;
+import com.backpackcloud.io.SerialBitter;
+import com.backpackcloud.preferences.UserPreferences;
+import com.backpackcloud.text.InputValue;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionTest {
+
+  private final CLI cli = createCLI();
+
+  private CLI createCLI() {
+    UserPreferences preferences = new UserPreferences();
+    preferences.register(Preferences.class);
+    CLI cli = new CLI(createTerminal(new ByteArrayOutputStream()), preferences, Theme.create(SerialBitter.YAML()), new EventBus());
+    cli.register(new Echo(), new Fail());
+    return cli;
+  }
+
+  private Terminal createTerminal(ByteArrayOutputStream output) {
+    try {
+      return new DumbTerminal("test", Terminal.TYPE_DUMB, InputStream.nullInputStream(), output, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  @Test
+  public void testPreferencesAreIsolated() {
+    Session session = cli.openSession(createTerminal(new ByteArrayOutputStream()));
+    session.preferences().find(Preferences.STOP_ON_ERROR.id()).orElseThrow().set("false");
+
+    assertFalse(session.preferences().isEnabled(Preferences.STOP_ON_ERROR));
+    assertTrue(cli.session().preferences().isEnabled(Preferences.STOP_ON_ERROR));
+  }
+
+  @Test
+  public void testErrorsAreIsolated() {
+    Session first = cli.openSession(createTerminal(new ByteArrayOutputStream()));
+    Session second = cli.openSession(createTerminal(new ByteArrayOutputStream()));
+
+    assertEquals(1, first.run("fail"));
+
+    assertEquals(1, first.errors().size());
+    assertTrue(first.lastCommandFailed());
+    assertTrue(second.errors().isEmpty());
+    assertFalse(second.lastCommandFailed());
+    assertTrue(cli.session().errors().isEmpty());
+  }
+
+  @Test
+  public void testOnlySucceededLinesAreRecorded() {
+    Session session = cli.openSession(createTerminal(new ByteArrayOutputStream()));
+
+    session.run("fail");
+    assertTrue(session.lastExecution().orElseThrow().lines().isEmpty());
+
+    session.run("missing");
+    assertTrue(session.lastExecution().orElseThrow().lines().isEmpty());
+
+    session.run("echo", "hello");
+    assertEquals(1, session.lastExecution().orElseThrow().lines().size());
+  }
+
+  @Test
+  public void testOutputGoesToTheSessionTerminal() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    Session session = cli.openSession(createTerminal(output));
+
+    session.execute("echo hello");
+
+    assertEquals("hello\n", output.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testConcurrentSessions() throws InterruptedException {
+    int sessions = 8;
+    int commands = 200;
+    List<ByteArrayOutputStream> outputs = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < sessions; i++) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      outputs.add(output);
+      Session session = cli.openSession(createTerminal(output));
+      String name = "session-" + i;
+      threads.add(Thread.ofVirtual().start(() -> {
+        for (int j = 0; j < commands; j++) {
+          session.execute("echo " + name);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (int i = 0; i < sessions; i++) {
+      String expected = ("session-" + i + "\n").repeat(commands);
+      assertEquals(expected, outputs.get(i).toString(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testQuotedPipesAreArguments() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    Session session = cli.openSession(createTerminal(output));
+
+    session.execute("echo a \"|\" b", "echo a '|' b", "echo a \\| b");
+
+    assertEquals("a | b\na | b\na | b\n", output.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testQuotedRedirectsAreArguments() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    Session session = cli.openSession(createTerminal(output));
+    Path file = Files.createTempFile("zipper-redirect", ".txt");
+    try {
+      session.execute("echo \">\" " + file, "echo '>>' " + file, "echo size > " + file);
+
+      assertEquals("> " + file + "\n>> " + file + "\n", output.toString(StandardCharsets.UTF_8));
+      assertEquals("size\n", Files.readString(file));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static class Echo implements Command {
+
+    @Override
+    public String type() {
+      return "Test";
+    }
+
+    @Override
+    public String name() {
+      return "echo";
+    }
+
+    @Override
+    public String description() {
+      return "Prints the given words";
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+      context.writer().writeln(context.input().words().stream()
+        .map(InputValue::get)
+        .collect(Collectors.joining(" ")));
+    }
+
+  }
+
+  private static class Fail implements Command {
+
+    @Override
+    public String type() {
+      return "Test";
+    }
+
+    @Override
+    public String name() {
+      return "fail";
+    }
+
+    @Override
+    public String description() {
+      return "Always fails";
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+      throw new UnbelievableException("failed");
+    }
+
+  }
+
+}
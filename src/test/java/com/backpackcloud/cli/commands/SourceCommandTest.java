@@ -0,0 +1,73 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.cli.builder.CLIBuilder;
+import com.backpackcloud.io.SerialBitter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SourceCommandTest {
+
+  private final CLI cli = CLIBuilder.oneShot(SerialBitter.YAML()).build();
+  private Path first;
+  private Path second;
+
+  @BeforeEach
+  public void createFiles() throws IOException {
+    first = Files.createTempFile("zipper-source", ".zs");
+    second = Files.createTempFile("zipper-source", ".zs");
+  }
+
+  @AfterEach
+  public void deleteFiles() throws IOException {
+    Files.deleteIfExists(first);
+    Files.deleteIfExists(second);
+  }
+
+  private String run(Path script) {
+    StringWriter output = new StringWriter();
+    cli.run(cli.writerFor(output, false), "source", script.toString());
+    return output.toString();
+  }
+
+  @Test
+  public void testNestedScripts() throws IOException {
+    Files.writeString(first, "source " + second + "\n");
+    Files.writeString(second, "preferences list\n");
+
+    String output = run(first);
+
+    assertTrue(output.contains(Preferences.STOP_ON_ERROR.id()), output);
+    assertTrue(output.contains("source: 1 commands (0 failed"), output);
+  }
+
+  @Test
+  public void testScriptSourcingItself() throws IOException {
+    Files.writeString(first, "source " + first + "\n");
+
+    String output = run(first);
+
+    assertTrue(output.contains("is already being sourced"), output);
+  }
+
+  @Test
+  public void testCycleBetweenScripts() throws IOException {
+    Files.writeString(first, "source " + second + "\n");
+    Files.writeString(second, "source " + first + "\n");
+
+    String output = run(first);
+
+    // the failure points to where the cycle was closed
+    assertTrue(output.contains(second + ":1: Script " + first + " is already being sourced"), output);
+  }
+
+}
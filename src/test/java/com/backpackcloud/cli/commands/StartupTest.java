@@ -0,0 +1,229 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.EventBus;
+import com.backpackcloud.cli.StartupProfiler;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.builder.CLIBuilder;
+import com.backpackcloud.cli.ui.Prompt;
+import com.backpackcloud.cli.ui.PromptWriter;
+import com.backpackcloud.io.SerialBitter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StartupTest {
+
+  private static final CyclicBarrier barrier = new CyclicBarrier(2);
+
+  @Test
+  public void testIndependentComponentsAreCreatedConcurrently() {
+    barrier.reset();
+    CLIBuilder builder = new CLIBuilder(SerialBitter.YAML())
+      .addComponent(Left.class)
+      .addComponent(Right.class);
+
+    CLI cli = builder.build();
+
+    List<String> phases = cli.startupProfiler().phases().stream().map(StartupProfiler.Phase::name).toList();
+    assertTrue(phases.containsAll(List.of("terminal", "theme", "preferences", "component Left", "component Right", "build")));
+    assertEquals("build", cli.startupProfiler().criticalPath().getLast().name());
+  }
+
+  @Test
+  public void testDependenciesAreCreatedFirst() {
+    CLIBuilder builder = new CLIBuilder(SerialBitter.YAML())
+      .addComponent(Dependent.class)
+      .addComponent(Dependency.class);
+
+    builder.build();
+
+    StartupProfiler.Phase dependent = phase(builder, "component Dependent");
+    assertEquals(Set.of("component Dependency"), dependent.dependencies());
+    assertTrue(phase(builder, "component Dependency").end().compareTo(dependent.start()) <= 0);
+  }
+
+  @Test
+  public void testComponentsNeededBeforeTheBuild() {
+    CLIBuilder builder = CLIBuilder.oneShot(SerialBitter.YAML())
+      .addComponent(Dependency.class)
+      .addComponent(Dependent.class)
+      .addLeftPrompt(DependentPrompt.class);
+
+    assertTrue(phase(builder, "component Dependent").start().compareTo(phase(builder, "component Dependency").start()) <= 0);
+
+    builder.build();
+
+    assertEquals(1, builder.startupProfiler().phases().stream().filter(phase -> phase.name().equals("component Dependent")).count());
+  }
+
+  @Test
+  public void testCircularDependencies() {
+    CLIBuilder builder = CLIBuilder.oneShot(SerialBitter.YAML())
+      .addComponent(Chicken.class)
+      .addComponent(Egg.class);
+
+    assertThrows(UnbelievableException.class, builder::build);
+  }
+
+  @Test
+  public void testReportCommand() {
+    CLI cli = CLIBuilder.oneShot(SerialBitter.YAML()).build();
+
+    StringWriter text = new StringWriter();
+    assertEquals(0, cli.run(cli.writerFor(text, false), "startup-report"));
+    assertTrue(text.toString().contains("critical path: "));
+
+    StringWriter json = new StringWriter();
+    assertEquals(0, cli.run(cli.writerFor(json, false), "startup-report", CLI.OUTPUT_FORMAT_FLAG + "json"));
+    List<Map<String, Object>> records = SerialBitter.JSON().deserialize(json.toString(), List.class);
+    Map<String, Object> report = records.getFirst();
+    List<String> phases = ((List<Map<String, Object>>) report.get("phases")).stream()
+      .map(phase -> (String) phase.get("name"))
+      .toList();
+    assertTrue(phases.containsAll(List.of("preferences", "command StartupReportCommand", "scan startup-report", "build")));
+  }
+
+  @Test
+  public void testReportDump() throws IOException {
+    Path file = Files.createTempFile("zipper-startup", ".json");
+    System.setProperty(StartupProfiler.REPORT_PROPERTY, file.toString());
+    try {
+      CLI cli = CLIBuilder.oneShot(SerialBitter.YAML()).build();
+
+      cli.finishStartup();
+      Map<String, Object> report = SerialBitter.JSON().deserialize(Files.readString(file), Map.class);
+      assertEquals("build", ((List<String>) report.get("criticalPath")).getLast());
+
+      // nothing is recorded after the startup
+      int phases = cli.startupProfiler().phases().size();
+      cli.register(new AnnotatedCommand(new Late(), new EventBus(), cli.session().preferences(), cli.session().terminal()));
+      assertEquals(phases, cli.startupProfiler().phases().size());
+
+      Files.delete(file);
+      cli.finishStartup();
+      assertFalse(Files.exists(file));
+    } finally {
+      System.clearProperty(StartupProfiler.REPORT_PROPERTY);
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testAllocations() throws InterruptedException {
+    StartupProfiler profiler = new StartupProfiler(true);
+
+    profiler.measure("platform", () -> new byte[1 << 20]);
+    Thread.ofVirtual().start(() -> profiler.measure("virtual", () -> new byte[1 << 20])).join();
+
+    Map<String, Long> allocated = new HashMap<>();
+    profiler.phases().forEach(phase -> allocated.put(phase.name(), phase.allocated()));
+    assertTrue(allocated.get("platform") >= 1 << 20);
+    assertEquals(-1, allocated.get("virtual"));
+  }
+
+  private StartupProfiler.Phase phase(CLIBuilder builder, String name) {
+    return builder.startupProfiler().phases().stream()
+      .filter(phase -> phase.name().equals(name))
+      .findFirst()
+      .orElseThrow();
+  }
+
+  private static void meet() {
+    try {
+      // fails if the other component isn't being created at the same time
+      barrier.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  public static class Left {
+
+    public Left() {
+      meet();
+    }
+
+  }
+
+  @CommandDefinition(name = "late", description = "Registered after the startup")
+  public static class Late {
+
+    @Action
+    public void run() {
+
+    }
+
+  }
+
+  public static class Right {
+
+    public Right() {
+      meet();
+    }
+
+  }
+
+  public static class Dependency {
+
+  }
+
+  public static class Dependent {
+
+    private final Dependency dependency;
+
+    public Dependent(Dependency dependency) {
+      this.dependency = dependency;
+    }
+
+  }
+
+  public static class DependentPrompt implements PromptWriter {
+
+    public DependentPrompt(Dependent dependent) {
+      assertSame(Dependency.class, dependent.dependency.getClass());
+    }
+
+    @Override
+    public void addTo(Prompt prompt, PromptSide side) {
+
+    }
+
+  }
+
+  public static class Chicken {
+
+    public Chicken(Egg egg) {
+
+    }
+
+  }
+
+  public static class Egg {
+
+    public Egg(Chicken chicken) {
+
+    }
+
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.ui.Theme;
+import com.backpackcloud.io.SerialBitter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ThemeCacheTest {
+
+  private Path cache;
+
+  @BeforeEach
+  public void createFile() throws IOException {
+    cache = Files.createTempFile("zipper-theme", ".bin");
+    Files.delete(cache);
+  }
+
+  @AfterEach
+  public void cleanUp() throws IOException {
+    System.clearProperty(Theme.CACHE_PROPERTY);
+    Files.deleteIfExists(cache);
+  }
+
+  private void assertSameTheme(Theme expected, Theme actual) {
+    assertEquals(expected.colorMap().colors(), actual.colorMap().colors());
+    for (String color : expected.colorMap().colors()) {
+      assertEquals(expected.colorMap().valueOf(color), actual.colorMap().valueOf(color));
+    }
+    assertEquals(new HashSet<>(expected.iconMap().icons()), new HashSet<>(actual.iconMap().icons()));
+    for (String icon : expected.iconMap().icons()) {
+      assertEquals(expected.iconMap().symbolOf(icon), actual.iconMap().symbolOf(icon));
+    }
+    assertEquals(new HashSet<>(expected.styleMap().styles()), new HashSet<>(actual.styleMap().styles()));
+    for (String style : expected.styleMap().styles()) {
+      assertEquals(expected.styleMap().styleOf(style), actual.styleMap().styleOf(style));
+    }
+  }
+
+  @Test
+  public void testCacheIsWrittenOnFirstLoad() {
+    Theme theme = Theme.create(SerialBitter.YAML(), cache);
+
+    assertTrue(Files.isRegularFile(cache));
+    assertSameTheme(Theme.create(SerialBitter.YAML()), theme);
+  }
+
+  @Test
+  public void testCacheIsReadWithoutParsing() {
+    Theme parsed = Theme.create(SerialBitter.YAML(), cache);
+
+    // nothing is deserialized if the cache is valid
+    assertSameTheme(parsed, Theme.create(null, cache));
+  }
+
+  @Test
+  public void testStaleCacheIsRebuilt() throws IOException {
+    Theme.create(SerialBitter.YAML(), cache);
+    byte[] valid = Files.readAllBytes(cache);
+    byte[] stale = valid.clone();
+    // the checksum comes right after the magic number and the version
+    stale[8] ^= 0x7F;
+    Files.write(cache, stale);
+
+    Theme theme = Theme.create(SerialBitter.YAML(), cache);
+
+    assertSameTheme(Theme.create(SerialBitter.YAML()), theme);
+    assertArrayEquals(valid, Files.readAllBytes(cache));
+  }
+
+  @Test
+  public void testCorruptedCacheIsRebuilt() throws IOException {
+    Files.writeString(cache, "colors: broken");
+
+    Theme theme = Theme.create(SerialBitter.YAML(), cache);
+
+    assertSameTheme(Theme.create(SerialBitter.YAML()), theme);
+    assertSameTheme(theme, Theme.create(null, cache));
+  }
+
+  @Test
+  public void testCorruptedSizeIsRebuilt() throws IOException {
+    Theme.create(SerialBitter.YAML(), cache);
+    byte[] valid = Files.readAllBytes(cache);
+    byte[] corrupted = valid.clone();
+    // the size of the first map comes after the header, the map count and the map name
+    int offset = 4 + 4 + 8 + 4 + 2 + "colors".length();
+    ByteBuffer.wrap(corrupted, offset, 4).putInt(-100);
+    Files.write(cache, corrupted);
+
+    Theme theme = Theme.create(SerialBitter.YAML(), cache);
+
+    assertSameTheme(Theme.create(SerialBitter.YAML()), theme);
+    assertArrayEquals(valid, Files.readAllBytes(cache));
+  }
+
+  @Test
+  public void testProperty() {
+    System.setProperty(Theme.CACHE_PROPERTY, cache.toString());
+
+    Theme theme = Theme.create(SerialBitter.YAML());
+    assertTrue(Files.isRegularFile(cache));
+
+    assertSameTheme(theme, Theme.lazy(null));
+  }
+
+}
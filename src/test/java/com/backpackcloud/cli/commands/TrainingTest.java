@@ -0,0 +1,124 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.UnbelievableException;
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.Command;
+import com.backpackcloud.cli.CommandContext;
+import com.backpackcloud.cli.ErrorRegistry;
+import com.backpackcloud.cli.EventBus;
+import com.backpackcloud.cli.Preferences;
+import com.backpackcloud.cli.StartupProfiler;
+import com.backpackcloud.cli.ui.Theme;
+import com.backpackcloud.cli.ui.components.FileSuggester;
+import com.backpackcloud.cli.ui.components.UsageIndex;
+import com.backpackcloud.io.SerialBitter;
+import com.backpackcloud.preferences.UserPreferences;
+import com.backpackcloud.text.InputValue;
+import org.jline.reader.impl.history.DefaultHistory;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrainingTest {
+
+  private final Record record = new Record();
+  private Path usageFile;
+
+  @BeforeEach
+  public void createFile() throws IOException {
+    usageFile = Files.createTempFile("zipper-usage", ".txt");
+  }
+
+  @AfterEach
+  public void cleanUp() throws IOException {
+    System.clearProperty(CLI.TRAINING_PROPERTY);
+    Files.deleteIfExists(usageFile);
+  }
+
+  private CLI createCLI() {
+    UserPreferences preferences = new UserPreferences();
+    preferences.register(Preferences.class);
+    CLI cli = new CLI(createTerminal(), preferences, Theme.create(SerialBitter.YAML()), new EventBus(),
+      new DefaultHistory(), new UsageIndex(usageFile), new ErrorRegistry(), new StartupProfiler(), new FileSuggester());
+    cli.register(record);
+    cli.addStartupCommand("record", "startup");
+    cli.addTrainingCommand("record", "first");
+    cli.addTrainingCommand("missing");
+    cli.addTrainingCommand("record", "second");
+    return cli;
+  }
+
+  private Terminal createTerminal() {
+    try {
+      return new DumbTerminal("test", Terminal.TYPE_DUMB, InputStream.nullInputStream(), new ByteArrayOutputStream(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UnbelievableException(e);
+    }
+  }
+
+  @Test
+  public void testFullTraining() throws IOException {
+    CLI cli = createCLI();
+    System.setProperty(CLI.TRAINING_PROPERTY, "full");
+
+    cli.start();
+
+    assertEquals(List.of("first", "second"), record.lines);
+    assertTrue(cli.session().errors().isEmpty());
+    assertEquals(0, Files.size(usageFile));
+  }
+
+  @Test
+  public void testPromptTraining() {
+    CLI cli = createCLI();
+    System.setProperty(CLI.TRAINING_PROPERTY, CLI.TRAINING_PROMPT);
+
+    cli.start();
+
+    assertTrue(record.lines.isEmpty());
+  }
+
+  private static class Record implements Command {
+
+    private final List<String> lines = new ArrayList<>();
+
+    @Override
+    public String type() {
+      return "Test";
+    }
+
+    @Override
+    public String name() {
+      return "record";
+    }
+
+    @Override
+    public String description() {
+      return "Records the given words";
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+      lines.add(context.input().words().stream()
+        .map(InputValue::get)
+        .collect(Collectors.joining(" ")));
+    }
+
+  }
+
+}
@@ -0,0 +1,64 @@
+package com.backpackcloud.cli.commands;
+
+import com.backpackcloud.cli.ui.components.UsageIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UsageIndexTest {
+
+  private Path file;
+
+  @BeforeEach
+  public void createFile() throws IOException {
+    file = Files.createTempFile("zipper-usage", ".txt");
+  }
+
+  @AfterEach
+  public void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testPrefixesAreScored() {
+    UsageIndex index = new UsageIndex();
+    index.record(List.of("theme", "style", "prompt"));
+    index.record(List.of("theme", "styles"));
+
+    assertTrue(index.score(List.of("theme")) > index.score(List.of("theme", "styles")));
+    assertTrue(index.score(List.of("theme", "style", "prompt")) > 0);
+    assertEquals(0, index.score(List.of("theme", "colors")));
+  }
+
+  @Test
+  public void testEviction() {
+    UsageIndex index = new UsageIndex(null, 10);
+    index.record(List.of("frequent"));
+    index.record(List.of("frequent"));
+    for (int i = 0; i < 100; i++) {
+      index.record(List.of("command" + i));
+    }
+
+    assertTrue(index.score(List.of("frequent")) > 0);
+    assertEquals(0, index.score(List.of("command0")));
+  }
+
+  @Test
+  public void testPersistence() {
+    UsageIndex index = new UsageIndex(file);
+    index.record(List.of("theme", "styles"));
+    index.save();
+
+    UsageIndex loaded = new UsageIndex(file);
+    assertEquals(index.score(List.of("theme", "styles")), loaded.score(List.of("theme", "styles")), 0.01);
+  }
+
+}
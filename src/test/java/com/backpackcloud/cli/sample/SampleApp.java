@@ -0,0 +1,87 @@
+package com.backpackcloud.cli.sample;
+
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.annotations.Action;
+import com.backpackcloud.cli.annotations.CommandDefinition;
+import com.backpackcloud.cli.annotations.InputParameter;
+import com.backpackcloud.cli.annotations.Observe;
+import com.backpackcloud.cli.builder.CLIBuilder;
+import com.backpackcloud.io.SerialBitter;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * A small application exercising the parts of the CLI that depend on reflection and
+ * resources. The {@code native} profile builds it as a native image and runs it as a
+ * smoke test, it exits with a non-zero status if anything doesn't work.
+ */
+public class SampleApp {
+
+  private static int failures;
+
+  public static void main(String[] args) {
+    Counter counter = new Counter();
+    CLI cli = CLIBuilder.oneShot(SerialBitter.YAML())
+      .addComponent(counter, Counter.class)
+      .addCommand(Greeter.class)
+      .build();
+
+    check(cli, "Hello, native!\n"::equals, "greet", "hello", "native", "loud");
+    check(cli, "hello, native\n"::equals, "greet", "hello", "native", "quiet");
+    check(cli, output -> output.contains("\"Ataxexe\"") && output.contains("\"age\""), "greet", "people", CLI.OUTPUT_FORMAT_FLAG + "json");
+    check(cli, output -> output.contains("completion"), "preferences", "list");
+    check(cli, output -> !output.isBlank(), "theme", "styles");
+    int ended = counter.ended;
+    check(cli, output -> counter.ended == ended + 1, "greet", "hello", "counter", "quiet");
+
+    System.out.println(failures == 0 ? "All checks passed" : failures + " checks failed");
+    System.exit(failures == 0 ? 0 : 1);
+  }
+
+  private static void check(CLI cli, Predicate<String> expectation, String... words) {
+    StringWriter output = new StringWriter();
+    int status = cli.run(cli.writerFor(output, false), words);
+    if (status != 0 || !expectation.test(output.toString())) {
+      failures++;
+      System.out.println("FAILED: " + String.join(" ", words) + "\n" + output);
+    }
+  }
+
+  public enum Tone {
+    LOUD, QUIET
+  }
+
+  public record Person(String name, int age) {
+
+  }
+
+  public static class Counter {
+
+    private int ended;
+
+    @Observe(CLI.EVENT_COMMAND_END)
+    public void onEnd() {
+      ended++;
+    }
+
+  }
+
+  @CommandDefinition(name = "greet", type = "Sample", description = "Greets people")
+  public static class Greeter {
+
+    @Action
+    public String hello(@InputParameter String name, @InputParameter Tone tone) {
+      return tone == Tone.LOUD ? "Hello, " + name + "!" : "hello, " + name.toLowerCase(Locale.ROOT);
+    }
+
+    @Action
+    public List<Person> people() {
+      return List.of(new Person("Ataxexe", 40), new Person("Zipper", 2));
+    }
+
+  }
+
+}
@@ -0,0 +1,26 @@
+package com.backpackcloud.cli.sample;
+
+import com.backpackcloud.cli.CLI;
+import com.backpackcloud.cli.builder.CLIBuilder;
+import com.backpackcloud.io.SerialBitter;
+
+/**
+ * An interactive shell with the default commands and prompts plus the sample ones. The
+ * {@code cds} profile starts it with {@link CLI#TRAINING_PROPERTY} set to dump a class data
+ * sharing archive, and {@link StartupBenchmark} uses it to measure the time to the first prompt.
+ */
+public class SampleShell {
+
+  public static void main(String[] args) {
+    CLI cli = new CLIBuilder(SerialBitter.YAML())
+      .addCommand(SampleApp.Greeter.class)
+      .addTrainingCommand("greet", "hello", "training", "loud")
+      .addTrainingCommand("greet", "people", CLI.OUTPUT_FORMAT_FLAG + "json")
+      .addTrainingCommand("preferences", "list")
+      .addTrainingCommand("theme", "styles")
+      .addTrainingCommand("errors")
+      .build();
+    cli.start();
+  }
+
+}
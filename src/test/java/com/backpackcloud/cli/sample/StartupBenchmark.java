@@ -0,0 +1,97 @@
+package com.backpackcloud.cli.sample;
+
+import com.backpackcloud.cli.CLI;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time {@link SampleShell} takes to get to its first prompt with and without a
+ * class data sharing archive. Each run is a new JVM started with the training property set to
+ * {@link CLI#TRAINING_PROMPT}, so it exits as soon as the prompt is ready.
+ * <p>
+ * Arguments: the archive file, the number of measured runs (defaults to 10) and the classpath
+ * to use (defaults to the one of this JVM, which must be made of jars for the archive to be used).
+ */
+public class StartupBenchmark {
+
+  private static final int WARMUP = 2;
+
+  public static void main(String[] args) throws Exception {
+    Path archive = Path.of(args[0]);
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    String classpath = args.length > 2 ? args[2] : System.getProperty("java.class.path");
+
+    if (!Files.isRegularFile(archive)) {
+      System.out.println("No archive found at " + archive);
+      System.exit(1);
+    }
+
+    long[] without = measure(runs, classpath, null);
+    long[] with = measure(runs, classpath, archive);
+
+    report("without archive", without);
+    report("with archive", with);
+    System.out.printf("speedup: %.2fx%n", (double) mean(without) / mean(with));
+  }
+
+  private static long[] measure(int runs, String classpath, Path archive) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    if (archive != null) {
+      command.add("-XX:SharedArchiveFile=" + archive);
+      // fails the run instead of silently starting without the archive
+      command.add("-Xshare:on");
+    }
+    command.add("-D" + CLI.TRAINING_PROPERTY + "=" + CLI.TRAINING_PROMPT);
+    command.add("-cp");
+    command.add(classpath);
+    command.add(SampleShell.class.getName());
+
+    for (int i = 0; i < WARMUP; i++) {
+      run(command);
+    }
+    long[] times = new long[runs];
+    for (int i = 0; i < runs; i++) {
+      times[i] = run(command);
+    }
+    return times;
+  }
+
+  private static long run(List<String> command) throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(command)
+      .redirectInput(ProcessBuilder.Redirect.PIPE)
+      .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+      .redirectError(ProcessBuilder.Redirect.DISCARD)
+      .start();
+    process.getOutputStream().close();
+    int status = process.waitFor();
+    long elapsed = System.nanoTime() - start;
+    if (status != 0) {
+      throw new IllegalStateException(String.join(" ", command) + " exited with " + status);
+    }
+    return TimeUnit.NANOSECONDS.toMillis(elapsed);
+  }
+
+  private static long mean(long[] times) {
+    long total = 0;
+    for (long time : times) {
+      total += time;
+    }
+    return total / times.length;
+  }
+
+  private static void report(String label, long[] times) {
+    long min = Long.MAX_VALUE;
+    for (long time : times) {
+      min = Math.min(min, time);
+    }
+    System.out.printf("%-16s mean %5d ms, min %5d ms (%d runs)%n", label, mean(times), min, times.length);
+  }
+
+}